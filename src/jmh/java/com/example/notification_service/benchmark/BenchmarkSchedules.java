@@ -0,0 +1,20 @@
+package com.example.notification_service.benchmark;
+
+final class BenchmarkSchedules {
+    static final String WORKING_WEEK = """
+            {
+                "wednesday": ["08:00-13:00"],
+                "thursday": ["08:00-13:00"],
+                "friday": ["08:00-13:00"],
+                "saturday": ["09:30-10:30"],
+                "sunday": ["16:00-20:00", "21:00-22:00"]
+            }
+            """;
+
+    static final String NORMALIZED_WORKING_WEEK = "{\"WEDNESDAY\":[\"08:00-13:00\"],\"THURSDAY\":[\"08:00-13:00\"],"
+            + "\"FRIDAY\":[\"08:00-13:00\"],\"SATURDAY\":[\"09:30-10:30\"],"
+            + "\"SUNDAY\":[\"16:00-20:00\",\"21:00-22:00\"]}";
+
+    private BenchmarkSchedules() {
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.notification_service.benchmark;
+
+import com.example.notification_service.configuration.NotificationProperties;
+import com.example.notification_service.entity.Event;
+import com.example.notification_service.entity.User;
+import com.example.notification_service.repository.DeliveryLogRepository;
+import com.example.notification_service.repository.UserEventRepository;
+import com.example.notification_service.service.DeliveryAcknowledgements;
+import com.example.notification_service.service.DeliveryAuditLog;
+import com.example.notification_service.service.DeliveryCursorService;
+import com.example.notification_service.service.DeliveryRateLimiter;
+import com.example.notification_service.service.EventRelay;
+import com.example.notification_service.service.NearCache;
+import com.example.notification_service.service.NotificationMetrics;
+import com.example.notification_service.service.UserService;
+import com.example.notification_service.web_socket.service.LiveSessionRegistry;
+import com.example.notification_service.web_socket.service.PrivateNotificationService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * Рассылка одного события: половина пользователей активна, подключена и получает сообщение через брокер,
+ * остальные получат его из ленты после своего курсора. Репозитории заменены заглушками, сериализация сообщений
+ * и буфер журнала доставки настоящие.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class FanOutBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    private int users;
+
+    private PrivateNotificationService privateNotificationService;
+    private DeliveryAuditLog deliveryAuditLog;
+    private Event event;
+
+    @Setup
+    public void setup() {
+        List<Long> activeUserIds = LongStream.rangeClosed(1, users / 2).boxed().toList();
+        List<User> activeUsers = activeUserIds.stream()
+                .map(id -> new User(id, "Пользователь " + id, BenchmarkSchedules.NORMALIZED_WORKING_WEEK))
+                .toList();
+
+        UserService userService = mock(UserService.class, withSettings().stubOnly());
+        when(userService.findActiveUserIds(any())).thenReturn(activeUserIds);
+        when(userService.findAllById(any())).thenReturn(activeUsers);
+        UserEventRepository userEventRepository = mock(UserEventRepository.class, withSettings().stubOnly());
+        DeliveryCursorService deliveryCursorService = mock(DeliveryCursorService.class, withSettings().stubOnly());
+        LiveSessionRegistry liveSessionRegistry = mock(LiveSessionRegistry.class, withSettings().stubOnly());
+        when(liveSessionRegistry.isConnected(any())).thenReturn(true);
+
+        MessageChannel brokerChannel = (message, timeout) -> true;
+        SimpMessagingTemplate template = new SimpMessagingTemplate(brokerChannel);
+        template.setMessageConverter(new MappingJackson2MessageConverter());
+        NotificationMetrics notificationMetrics = new NotificationMetrics(new SimpleMeterRegistry());
+        NotificationProperties properties = new NotificationProperties();
+        properties.getAudit().setSink(NotificationProperties.Audit.Sink.TABLE);
+        properties.getRateLimit().setUser(new NotificationProperties.RateLimit.Bucket(Integer.MAX_VALUE, Integer.MAX_VALUE));
+        properties.getRateLimit().setGlobal(new NotificationProperties.RateLimit.Bucket(Integer.MAX_VALUE, Integer.MAX_VALUE));
+        deliveryAuditLog = new DeliveryAuditLog(properties, notificationMetrics,
+                mock(DeliveryLogRepository.class, withSettings().stubOnly()));
+        privateNotificationService = new PrivateNotificationService(template, userService, userEventRepository,
+                notificationMetrics, deliveryCursorService, liveSessionRegistry,
+                mock(EventRelay.class, withSettings().stubOnly()), deliveryAuditLog,
+                new DeliveryAcknowledgements(userEventRepository, deliveryCursorService, notificationMetrics),
+                new DeliveryRateLimiter(properties, notificationMetrics),
+                mock(ApplicationEventPublisher.class, withSettings().stubOnly()),
+                mock(NearCache.class, withSettings().stubOnly()));
+
+        event = new Event(1L, "произошла утечка масла во втором редукторе", ZonedDateTime.now());
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        deliveryAuditLog.stop();
+    }
+
+    @Benchmark
+    public void sendEvent() {
+        privateNotificationService.deliverEvents(List.of(event), privateNotificationService.localRecipients(event));
+    }
+}
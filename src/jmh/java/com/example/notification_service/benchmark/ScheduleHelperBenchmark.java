@@ -0,0 +1,52 @@
+package com.example.notification_service.benchmark;
+
+import com.example.notification_service.entity.User;
+import com.example.notification_service.service.CompiledSchedule;
+import com.example.notification_service.service.ScheduleHelper;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ScheduleHelperBenchmark {
+    private ScheduleHelper scheduleHelper;
+    private User cachedUser;
+    private User uncachedUser;
+    private User rawUser;
+    private LocalDateTime activeTime;
+
+    @Setup
+    public void setup() {
+        scheduleHelper = new ScheduleHelper();
+
+        cachedUser = new User(1L, "Иванов Иван Иванович", BenchmarkSchedules.NORMALIZED_WORKING_WEEK);
+        CompiledSchedule compiled = scheduleHelper.normalizeUserSchedule(cachedUser);
+        scheduleHelper.cacheSchedule(cachedUser.getId(), compiled);
+
+        uncachedUser = new User(null, "Петров Пётр Петрович", BenchmarkSchedules.NORMALIZED_WORKING_WEEK);
+        rawUser = new User(null, "Сидоров Сидор Сидорович", BenchmarkSchedules.WORKING_WEEK);
+        activeTime = LocalDateTime.of(2025, 6, 4, 9, 15);
+    }
+
+    @Benchmark
+    public boolean isUserActiveCached() {
+        return scheduleHelper.isUserActive(cachedUser, activeTime);
+    }
+
+    @Benchmark
+    public boolean isUserActiveUncached() {
+        return scheduleHelper.isUserActive(uncachedUser, activeTime);
+    }
+
+    @Benchmark
+    public CompiledSchedule normalizeUserSchedule() {
+        rawUser.setNotificationSchedule(BenchmarkSchedules.WORKING_WEEK);
+        return scheduleHelper.normalizeUserSchedule(rawUser);
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.notification_service.benchmark;
+
+import com.example.notification_service.mapper.ScheduleDescriber;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UserMapperBenchmark {
+    private ScheduleDescriber scheduleDescriber;
+
+    @Setup
+    public void setup() {
+        scheduleDescriber = new ScheduleDescriber();
+    }
+
+    @Benchmark
+    public String exportNotificationSchedule() {
+        return scheduleDescriber.exportNotificationSchedule(BenchmarkSchedules.NORMALIZED_WORKING_WEEK);
+    }
+}
@@ -0,0 +1,172 @@
+package com.example.notification_service.configuration;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "notification")
+public class NotificationProperties {
+    private Pipeline pipeline = new Pipeline();
+    private Outbox outbox = new Outbox();
+    private Drain drain = new Drain();
+    private Audit audit = new Audit();
+    private Cache cache = new Cache();
+    private UserImport userImport = new UserImport();
+    private RateLimit rateLimit = new RateLimit();
+    private Export export = new Export();
+
+    @Data
+    public static class Pipeline {
+        private int deliveryThreads = 4;
+        /**
+         * Сколько уведомлений о публикации может ждать потока доставки. Уведомление сверх этого
+         * доставляется потоком, получившим его, и тот не читает следующие, пока не закончит.
+         */
+        private int deliveryQueueCapacity = 1_000;
+    }
+
+    @Data
+    public static class Outbox {
+        /**
+         * Максимальное число сохранённых, но ещё не опубликованных событий.
+         * При превышении новые события отклоняются с кодом 503.
+         */
+        private int capacity = 1_000;
+        private int workers = 2;
+        private int batchSize = 100;
+        /**
+         * Период опроса outbox, если исполнителя не разбудило создание события на этом экземпляре.
+         */
+        private Duration pollInterval = Duration.ofSeconds(1);
+        /**
+         * Время, на которое исполнитель захватывает пачку событий. Неопубликованные за это время события
+         * публикуются повторно.
+         */
+        private Duration lease = Duration.ofMinutes(1);
+    }
+
+    @Data
+    public static class Drain {
+        /**
+         * Максимальное число пользователей, очереди которых доставляются одновременно.
+         * 0 — половина пула соединений Hikari.
+         */
+        private int maxConcurrency = 0;
+        /**
+         * Время, на которое экземпляр захватывает пользователя для доставки его очереди.
+         * Если доставка не завершилась за это время, пользователя может захватить другой экземпляр.
+         */
+        private Duration lease = Duration.ofMinutes(5);
+    }
+
+    @Data
+    public static class Audit {
+        private boolean enabled = true;
+        private Sink sink = Sink.FILE;
+        private Path file = Path.of("logs/delivery-audit.log");
+        private Format format = Format.TEXT;
+        /**
+         * Размер файла журнала, при превышении которого он переименовывается в {@code <file>.1}, а старые
+         * файлы сдвигаются на номер дальше. Хранится не больше {@code maxHistory} старых файлов.
+         */
+        private DataSize maxFileSize = DataSize.ofMegabytes(100);
+        private int maxHistory = 10;
+        /**
+         * Время хранения записей в таблице {@code delivery_log}. Более старые записи удаляются раз в час.
+         */
+        private Duration retention = Duration.ofDays(30);
+        /**
+         * Ёмкость буфера записей, округляется вверх до степени двойки. Записи сверх ёмкости отбрасываются.
+         */
+        private int bufferSize = 65_536;
+        private int batchSize = 1_000;
+        private Duration flushInterval = Duration.ofSeconds(1);
+
+        public enum Sink {
+            FILE,
+            TABLE
+        }
+
+        public enum Format {
+            TEXT,
+            JSON
+        }
+    }
+
+    @Data
+    public static class Cache {
+        private Entry events = new Entry(10_000, Duration.ofMinutes(10));
+        private Entry users = new Entry(100_000, Duration.ofMinutes(10));
+
+        /**
+         * Размер и время жизни записей кэша. Время жизни ограничивает устаревание записи,
+         * если уведомление об изменении с другого экземпляра не было получено.
+         */
+        @Data
+        @NoArgsConstructor
+        @AllArgsConstructor
+        public static class Entry {
+            private long maximumSize;
+            private Duration ttl;
+        }
+    }
+
+    @Data
+    public static class UserImport {
+        /**
+         * Число пользователей, расписания которых проверяются параллельно и вставляются одним запросом.
+         */
+        private int batchSize = 1_000;
+        /**
+         * Число потоков, на которых нормализуются расписания пачки. Потоки общие для всех импортов.
+         */
+        private int normalizeThreads = 2;
+    }
+
+    @Data
+    public static class RateLimit {
+        private boolean enabled = true;
+        /**
+         * Ограничение сообщений одному пользователю.
+         */
+        private Bucket user = new Bucket(50, 500);
+        /**
+         * Ограничение сообщений всем пользователям экземпляра.
+         */
+        private Bucket global = new Bucket(20_000, 20_000);
+        /**
+         * Через сколько повторяется доставка очереди, остановленная ограничением.
+         */
+        private Duration retryDelay = Duration.ofSeconds(1);
+
+        /**
+         * Скорость пополнения корзины в сообщениях в секунду и её ёмкость.
+         */
+        @Data
+        @NoArgsConstructor
+        @AllArgsConstructor
+        public static class Bucket {
+            private int permitsPerSecond;
+            private int burst;
+        }
+    }
+
+    @Data
+    public static class Export {
+        /**
+         * Время потоковой выгрузки списка в NDJSON и её транзакции чтения. Остальные асинхронные запросы
+         * ограничены таймаутом контейнера.
+         */
+        private Duration timeout = Duration.ofMinutes(10);
+        /**
+         * Число выгрузок, выполняемых одновременно; остальные ждут в очереди.
+         */
+        private int threads = 2;
+    }
+}
@@ -5,8 +5,10 @@ import com.example.notification_service.repository.EventRepository;
 import com.example.notification_service.service.EventService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
 
 import java.net.URI;
 import java.util.List;
@@ -18,11 +20,21 @@ import java.util.Optional;
 public class EventController {
     private final EventService eventService;
     private final EventRepository eventRepository;
+    private final NdjsonExport ndjsonExport;
 
     @GetMapping("/")
-    public ResponseEntity<List<Event>> listEvents() {
-        List<Event> events = eventRepository.findAll();
-        return ResponseEntity.ok(events);
+    public ResponseEntity<List<Event>> listEvents(@RequestParam(required = false) Long after,
+                                                  @RequestParam(required = false) Integer limit) {
+        if (!PageResponses.paged(after, limit)) {
+            return ResponseEntity.ok(eventService.findAll());
+        }
+        int pageSize = PageResponses.limit(limit);
+        return PageResponses.page("/api/events/", eventService.findPage(after == null ? 0 : after, pageSize), pageSize, Event::getId);
+    }
+
+    @GetMapping(value = "/", produces = PageResponses.NDJSON)
+    public ResponseEntity<ResponseBodyEmitter> streamEvents() {
+        return ndjsonExport.stream(eventService::forEachEvent);
     }
 
     @GetMapping("/{id}")
@@ -38,6 +50,15 @@ public class EventController {
         return ResponseEntity.created(location).build();
     }
 
+    /**
+     * Создаёт события из массива одним запросом к базе данных. Возвращает идентификаторы в порядке массива.
+     */
+    @PostMapping("/batch")
+    public ResponseEntity<List<Long>> createEvents(@Valid @RequestBody List<Event> events) {
+        List<Long> ids = eventService.createEvents(events).stream().map(Event::getId).toList();
+        return ResponseEntity.status(HttpStatus.CREATED).body(ids);
+    }
+
     @PutMapping("/{id}")
     public ResponseEntity<Event> updateEvent(@PathVariable Long id, @Valid @RequestBody Event updatedEvent) {
         Optional<Event> existingEventOpt = eventRepository.findById(id);
@@ -48,13 +69,13 @@ public class EventController {
         Event existingEvent = existingEventOpt.get();
         existingEvent.setMessage(updatedEvent.getMessage());
         existingEvent.setOccurredAt(updatedEvent.getOccurredAt());
-        eventRepository.save(existingEvent);
+        eventService.updateEvent(existingEvent);
         return ResponseEntity.ok(existingEvent);
     }
 
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteEvent(@PathVariable Long id) {
-        eventRepository.deleteById(id);
+        eventService.deleteEvent(id);
         return ResponseEntity.noContent().build();
     }
 }
@@ -0,0 +1,109 @@
+package com.example.notification_service.controller;
+
+import com.example.notification_service.configuration.NotificationProperties;
+import com.example.notification_service.service.NotificationMetrics;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionTimedOutException;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Потоковая выгрузка списков в NDJSON: по объекту JSON на строку, объекты пишутся в ответ по мере чтения
+ * из базы данных.
+ * <p>
+ * Выгрузка выполняется на выделенных потоках {@code ndjson-export} в транзакции чтения и ограничена
+ * по времени {@code notification.export.timeout}: по его истечении ответ завершается, а транзакция
+ * откатывается и не удерживает снимок базы данных. Таймаут остальных асинхронных запросов не меняется.
+ */
+@Component
+class NdjsonExport {
+    private static final MediaType NDJSON = MediaType.parseMediaType(PageResponses.NDJSON);
+    private static final int CHUNK_SIZE = 8_192;
+
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final ExecutorService executor;
+    private final Duration timeout;
+
+    NdjsonExport(ObjectMapper objectMapper,
+                 PlatformTransactionManager transactionManager,
+                 NotificationProperties properties,
+                 NotificationMetrics notificationMetrics) {
+        NotificationProperties.Export export = properties.getExport();
+        this.objectMapper = objectMapper;
+        this.timeout = export.getTimeout();
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.transactionTemplate.setTimeout((int) Math.max(1, timeout.toSeconds()));
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = notificationMetrics.monitor(Executors.newFixedThreadPool(export.getThreads(), runnable -> {
+            Thread thread = new Thread(runnable, "ndjson-export-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }), "ndjson-export");
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Ответ, в который пишутся объекты, переданные {@code source} своему обработчику.
+     */
+    <T> ResponseEntity<ResponseBodyEmitter> stream(Consumer<Consumer<T>> source) {
+        ResponseBodyEmitter emitter = new ResponseBodyEmitter(timeout.toMillis());
+        executor.execute(() -> write(emitter, source));
+        return ResponseEntity.ok().contentType(NDJSON).body(emitter);
+    }
+
+    private <T> void write(ResponseBodyEmitter emitter, Consumer<Consumer<T>> source) {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        ByteArrayOutputStream chunk = new ByteArrayOutputStream(2 * CHUNK_SIZE);
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(chunk)) {
+            generator.setRootValueSeparator(null);
+            transactionTemplate.executeWithoutResult(status -> source.accept(value -> {
+                if (System.nanoTime() - deadline > 0) {
+                    throw new TransactionTimedOutException("Выгрузка не завершилась за " + timeout);
+                }
+                try {
+                    objectMapper.writeValue(generator, value);
+                    generator.writeRaw('\n');
+                    generator.flush();
+                    if (chunk.size() >= CHUNK_SIZE) {
+                        send(emitter, chunk);
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }));
+            generator.flush();
+            send(emitter, chunk);
+            emitter.complete();
+        } catch (IOException | RuntimeException e) {
+            emitter.completeWithError(e);
+        }
+    }
+
+    private static void send(ResponseBodyEmitter emitter, ByteArrayOutputStream chunk) throws IOException {
+        if (chunk.size() > 0) {
+            emitter.send(chunk.toByteArray(), NDJSON);
+            chunk.reset();
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.notification_service.controller;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Ответы списков: весь список или, если клиент передал {@code after} или {@code limit}, страница по курсору
+ * {@code ?after=<id>&limit=}. Потоковая выгрузка в NDJSON — см. {@link NdjsonExport}.
+ */
+final class PageResponses {
+    static final String NDJSON = "application/x-ndjson";
+    static final int DEFAULT_LIMIT = 100;
+    static final int MAX_LIMIT = 1_000;
+
+    private PageResponses() {
+    }
+
+    /**
+     * Запрошена ли страница. Без параметров список возвращается целиком, как до появления страниц.
+     */
+    static boolean paged(Long after, Integer limit) {
+        return after != null || limit != null;
+    }
+
+    static int limit(Integer requested) {
+        return requested == null ? DEFAULT_LIMIT : Math.max(1, Math.min(requested, MAX_LIMIT));
+    }
+
+    /**
+     * Страница списка. Если страница заполнена, в заголовке {@code Link} передаётся ссылка на следующую.
+     */
+    static <T> ResponseEntity<List<T>> page(String path, List<T> page, int limit, Function<T, Long> id) {
+        if (page.size() < limit) {
+            return ResponseEntity.ok(page);
+        }
+        String next = "<%s?after=%d&limit=%d>; rel=\"next\"".formatted(path, id.apply(page.get(page.size() - 1)), limit);
+        return ResponseEntity.ok().header(HttpHeaders.LINK, next).body(page);
+    }
+}
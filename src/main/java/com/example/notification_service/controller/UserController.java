@@ -2,15 +2,23 @@ package com.example.notification_service.controller;
 
 
 import com.example.notification_service.dto.UserDto;
+import com.example.notification_service.dto.UserImportResult;
 import com.example.notification_service.entity.User;
 import com.example.notification_service.mapper.UserMapper;
+import com.example.notification_service.service.UserImporter;
 import com.example.notification_service.service.UserService;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
 import java.util.List;
 import java.util.Optional;
@@ -20,12 +28,25 @@ import java.util.Optional;
 @RequiredArgsConstructor
 public class UserController {
     private final UserService userService;
+    private final UserImporter userImporter;
     private final UserMapper userMapper;
+    private final ObjectMapper objectMapper;
+    private final NdjsonExport ndjsonExport;
 
     @GetMapping("/")
-    public ResponseEntity<List<UserDto>> listUsers() {
-        List<User> users = userService.findAll();
-        return ResponseEntity.ok(userMapper.toDto(users));
+    public ResponseEntity<List<UserDto>> listUsers(@RequestParam(required = false) Long after,
+                                                   @RequestParam(required = false) Integer limit) {
+        if (!PageResponses.paged(after, limit)) {
+            return ResponseEntity.ok(userMapper.toDto(userService.findAll()));
+        }
+        int pageSize = PageResponses.limit(limit);
+        List<UserDto> users = userMapper.toDto(userService.findPage(after == null ? 0 : after, pageSize));
+        return PageResponses.page("/api/users/", users, pageSize, UserDto::id);
+    }
+
+    @GetMapping(value = "/", produces = PageResponses.NDJSON)
+    public ResponseEntity<ResponseBodyEmitter> streamUsers() {
+        return ndjsonExport.<UserDto>stream(action -> userService.forEachUser(user -> action.accept(userMapper.toDto(user))));
     }
 
     @GetMapping("/{id}")
@@ -43,18 +64,26 @@ public class UserController {
         return ResponseEntity.created(location).build();
     }
 
+    /**
+     * Создаёт пользователей из массива JSON или потока NDJSON. Тело читается потоково,
+     * пользователи создаются пачками по мере чтения.
+     */
+    @PostMapping(value = "/import", consumes = {MediaType.APPLICATION_JSON_VALUE, PageResponses.NDJSON})
+    public ResponseEntity<UserImportResult> importUsers(InputStream body) throws IOException {
+        try (MappingIterator<User> users = objectMapper.readerFor(User.class).readValues(body)) {
+            UserImportResult result = userImporter.importUsers(users);
+            return result.complete() ? ResponseEntity.ok(result) : ResponseEntity.badRequest().body(result);
+        }
+    }
+
     @PutMapping("/{id}")
     public ResponseEntity<UserDto> updateUser(@PathVariable Long id, @Valid @RequestBody User updatedUser) {
-        Optional<User> existingUserOpt = userService.findById(id);
-        if (existingUserOpt.isEmpty()) {
+        if (userService.findById(id).isEmpty()) {
             return ResponseEntity.notFound().build();
         }
 
-        User existingUser = existingUserOpt.get();
-        existingUser.setFullName(updatedUser.getFullName());
-        existingUser.setNotificationSchedule(updatedUser.getNotificationSchedule());
-
-        User saved = userService.normalizeUserNotificationScheduleAndSave(existingUser);
+        User user = new User(id, updatedUser.getFullName(), updatedUser.getNotificationSchedule());
+        User saved = userService.normalizeUserNotificationScheduleAndSave(user);
         return ResponseEntity.ok(userMapper.toDto(saved));
     }
 
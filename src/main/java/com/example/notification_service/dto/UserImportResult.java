@@ -0,0 +1,15 @@
+package com.example.notification_service.dto;
+
+import java.util.List;
+
+/**
+ * Итог импорта пользователей.
+ *
+ * @param imported число созданных пользователей
+ * @param rejected число отклонённых записей
+ * @param complete прочитан ли весь запрос; при ошибке разбора импорт прерывается,
+ *                 уже созданные пользователи остаются
+ * @param errors   описания первых ошибок с номерами записей, начиная с 1
+ */
+public record UserImportResult(long imported, long rejected, boolean complete, List<String> errors) {
+}
@@ -1,5 +1,6 @@
 package com.example.notification_service.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
@@ -13,9 +14,14 @@ import java.time.ZonedDateTime;
 @AllArgsConstructor
 @NoArgsConstructor
 public class Event {
+    /**
+     * Шаг последовательности {@code events_seq}: одним обращением к ней выделяется блок идентификаторов.
+     */
+    public static final int ID_ALLOCATION_SIZE = 50;
 
     @Id
-    @GeneratedValue()
+    @GeneratedValue(generator = "events_seq")
+    @SequenceGenerator(name = "events_seq", sequenceName = "events_seq", allocationSize = ID_ALLOCATION_SIZE)
     private Long id;
 
     @Column
@@ -23,4 +29,15 @@ public class Event {
 
     @Column(name = "occurred_at")
     private ZonedDateTime occurredAt;
+
+    /**
+     * Порядковый номер события в ленте рассылки, назначается после фиксации транзакции создания.
+     */
+    @JsonIgnore
+    @Column(name = "delivery_seq", insertable = false, updatable = false)
+    private Long deliverySeq;
+
+    public Event(Long id, String message, ZonedDateTime occurredAt) {
+        this(id, message, occurredAt, null);
+    }
 }
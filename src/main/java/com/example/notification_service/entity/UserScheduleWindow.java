@@ -0,0 +1,28 @@
+package com.example.notification_service.entity;
+
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Период информирования пользователя: полуинтервал минут недели [fromMinute, toMinute).
+ * Таблица дополнительно хранит его как {@code int4range} в вычисляемом столбце {@code minutes}
+ * с индексом GiST, по которому ищутся пользователи, активные в заданную минуту.
+ */
+@Data
+@Entity
+@Table(name = "user_schedule_windows", schema = "notification_service")
+@NoArgsConstructor
+public class UserScheduleWindow {
+    @EmbeddedId
+    private UserScheduleWindowPK id;
+
+    @Column(name = "to_minute")
+    private Integer toMinute;
+
+    public UserScheduleWindow(Long userId, int fromMinute, int toMinute) {
+        this.id = new UserScheduleWindowPK(userId, fromMinute);
+        this.toMinute = toMinute;
+    }
+}
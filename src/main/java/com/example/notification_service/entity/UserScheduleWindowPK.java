@@ -0,0 +1,21 @@
+package com.example.notification_service.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+
+@Data
+@Embeddable
+@EqualsAndHashCode
+@AllArgsConstructor
+@NoArgsConstructor
+public class UserScheduleWindowPK {
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Column(name = "from_minute")
+    private Integer fromMinute;
+}
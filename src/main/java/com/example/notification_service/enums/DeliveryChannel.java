@@ -0,0 +1,15 @@
+package com.example.notification_service.enums;
+
+import lombok.Getter;
+
+@Getter
+public enum DeliveryChannel {
+    LIVE("live"),
+    QUEUED("queued");
+
+    private final String code;
+
+    DeliveryChannel(String code) {
+        this.code = code;
+    }
+}
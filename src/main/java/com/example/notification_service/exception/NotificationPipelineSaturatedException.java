@@ -0,0 +1,12 @@
+package com.example.notification_service.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class NotificationPipelineSaturatedException extends RuntimeException {
+
+    public NotificationPipelineSaturatedException() {
+        super("Очередь рассылки событий переполнена");
+    }
+}
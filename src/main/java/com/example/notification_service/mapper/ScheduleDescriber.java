@@ -0,0 +1,101 @@
+package com.example.notification_service.mapper;
+
+import com.example.notification_service.enums.DayOfWeekEnum;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.mapstruct.Named;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Описания расписаний пользователей для DTO.
+ * <p>
+ * Расписания хранятся нормализованными и у многих пользователей совпадают, поэтому описание строится один раз
+ * на расписание и кэшируется по исходному JSON.
+ */
+@Component
+public class ScheduleDescriber {
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Cache<String, String> descriptions = Caffeine.newBuilder().maximumSize(10_000).build();
+
+    @Named("exportNotificationSchedule")
+    public String exportNotificationSchedule(String notificationSchedule) {
+        if (notificationSchedule == null || notificationSchedule.isBlank()) {
+            return null;
+        }
+        return descriptions.get(notificationSchedule, this::describe);
+    }
+
+    /**
+     * Строит описание расписания без кэша.
+     */
+    private String describe(String notificationSchedule) {
+        try {
+            Map<String, List<String>> schedule = objectMapper.readValue(
+                    notificationSchedule,
+                    new TypeReference<>() {
+                    });
+
+            return buildNormalizedSchedule(schedule);
+        } catch (IOException ex) {
+            throw new RuntimeException("Ошибка парсинга расписания", ex);
+        }
+    }
+
+    private String buildNormalizedSchedule(Map<String, List<String>> schedule) {
+        StringBuilder result = new StringBuilder();
+
+        DayOfWeekEnum lastStartDay = null;
+        DayOfWeekEnum lastEndDay = null;
+        String lastTimes = null;
+
+        for (DayOfWeekEnum day : DayOfWeekEnum.dayOfWeeks()) {
+            List<String> times = schedule.getOrDefault(day.name(), List.of());
+
+            if (times.isEmpty()) continue;
+
+            String currentTimes = formatTimes(times);
+
+            if (!currentTimes.equals(lastTimes)) {
+                if (lastStartDay != null) {
+                    appendRange(result, lastStartDay, lastEndDay, lastTimes);
+                }
+
+                lastStartDay = day;
+                lastEndDay = day;
+                lastTimes = currentTimes;
+            } else {
+                lastEndDay = day;
+            }
+        }
+
+        if (lastStartDay != null) {
+            appendRange(result, lastStartDay, lastEndDay, lastTimes);
+        }
+
+        return result.toString().trim();
+    }
+
+    private void appendRange(StringBuilder builder, DayOfWeekEnum startDay, DayOfWeekEnum endDay, String times) {
+        String range = startDay.getRuName();
+        if (!startDay.equals(endDay)) {
+            range += "-" + endDay.getRuName();
+        }
+        builder.append(builder.isEmpty() ? "" : ", ").append(range).append(times);
+    }
+
+    private String formatTimes(List<String> times) {
+        return times.stream()
+                .map(period -> {
+                    String[] split = period.split("-");
+                    return " с %s до %s".formatted(split[0], split[1]);
+                })
+                .collect(Collectors.joining(" и"));
+    }
+}
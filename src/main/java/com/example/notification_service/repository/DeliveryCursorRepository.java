@@ -0,0 +1,133 @@
+package com.example.notification_service.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Курсоры доставки: для каждого пользователя — номер последнего обработанного события ленты рассылки.
+ */
+@Repository
+@RequiredArgsConstructor
+public class DeliveryCursorRepository {
+    private static final int SCAN_FETCH_SIZE = 1_000;
+    private static final String REGISTER = """
+            INSERT INTO notification_service.user_delivery_cursors (user_id, last_delivery_seq)
+            SELECT ?, coalesce(max(delivery_seq), 0) FROM notification_service.events
+            ON CONFLICT DO NOTHING
+            """;
+    private static final String REGISTER_ALL = """
+            INSERT INTO notification_service.user_delivery_cursors (user_id, last_delivery_seq)
+            SELECT u.id, s.last_delivery_seq
+            FROM unnest(?::int8[]) AS u(id),
+                 (SELECT coalesce(max(delivery_seq), 0) AS last_delivery_seq FROM notification_service.events) s
+            ON CONFLICT DO NOTHING
+            """;
+    private static final String FIND = """
+            SELECT last_delivery_seq FROM notification_service.user_delivery_cursors WHERE user_id = ?
+            """;
+    private static final String ADVANCE = """
+            UPDATE notification_service.user_delivery_cursors SET last_delivery_seq = ?
+            WHERE user_id = ? AND last_delivery_seq = ?
+            """;
+    private static final String FIND_OLDEST = """
+            SELECT coalesce(min(last_delivery_seq), 0) FROM notification_service.user_delivery_cursors
+            """;
+    private static final String FIND_LAGGING = """
+            SELECT c.user_id, c.last_delivery_seq, u.notification_schedule
+            FROM notification_service.user_delivery_cursors c
+            JOIN notification_service.users u ON u.id = c.user_id
+            WHERE c.last_delivery_seq < ?
+            """;
+    private static final String CLAIM = """
+            UPDATE notification_service.user_delivery_cursors c
+            SET drain_owner = ?, drain_lease_until = now() + make_interval(secs => ?)
+            WHERE c.user_id IN (
+                SELECT user_id FROM notification_service.user_delivery_cursors
+                WHERE user_id = ANY (?) AND (drain_lease_until IS NULL OR drain_lease_until < now())
+                FOR UPDATE SKIP LOCKED
+            )
+            RETURNING c.user_id
+            """;
+    private static final String RELEASE = """
+            UPDATE notification_service.user_delivery_cursors SET drain_owner = NULL, drain_lease_until = NULL
+            WHERE user_id = ? AND drain_owner = ?
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Создаёт курсор нового пользователя на последнем событии ленты: ранее созданные события ему не доставляются.
+     */
+    public void register(Long userId) {
+        jdbcTemplate.update(REGISTER, userId);
+    }
+
+    /**
+     * Создаёт курсоры новых пользователей одним запросом, как {@link #register(Long)}.
+     */
+    public void registerAll(Collection<Long> userIds) {
+        jdbcTemplate.update(connection -> {
+            PreparedStatement statement = connection.prepareStatement(REGISTER_ALL);
+            statement.setArray(1, connection.createArrayOf("bigint", userIds.toArray()));
+            return statement;
+        });
+    }
+
+    public Long findCursor(Long userId) {
+        List<Long> cursors = jdbcTemplate.queryForList(FIND, Long.class, userId);
+        return cursors.isEmpty() ? null : cursors.get(0);
+    }
+
+    /**
+     * Переносит курсор, только если его не сдвинули с момента чтения.
+     */
+    public boolean advance(Long userId, long expectedSeq, long deliverySeq) {
+        return jdbcTemplate.update(ADVANCE, deliverySeq, userId, expectedSeq) == 1;
+    }
+
+    /**
+     * Захватывает пользователей для доставки очереди на время {@code lease}. Пользователи, захваченные
+     * другим исполнителем или заблокированные параллельным захватом, пропускаются без ожидания.
+     * Возвращает идентификаторы захваченных пользователей.
+     */
+    public List<Long> claim(Collection<Long> userIds, UUID owner, Duration lease) {
+        return jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(CLAIM);
+            statement.setObject(1, owner);
+            statement.setDouble(2, lease.toMillis() / 1000.0);
+            statement.setArray(3, connection.createArrayOf("bigint", userIds.toArray()));
+            return statement;
+        }, (resultSet, rowNum) -> resultSet.getLong(1));
+    }
+
+    public void release(Long userId, UUID owner) {
+        jdbcTemplate.update(RELEASE, userId, owner);
+    }
+
+    public long findOldestCursor() {
+        return jdbcTemplate.queryForObject(FIND_OLDEST, Long.class);
+    }
+
+    /**
+     * Потоково обходит курсоры, отстающие от {@code deliverySeq}. Вызывается внутри транзакции,
+     * иначе драйвер Postgres игнорирует размер порции и читает результат целиком.
+     */
+    public void forEachLagging(long deliverySeq, Consumer<UserCursor> action) {
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(FIND_LAGGING);
+            statement.setFetchSize(SCAN_FETCH_SIZE);
+            statement.setLong(1, deliverySeq);
+            return statement;
+        }, resultSet -> {
+            action.accept(new UserCursor(resultSet.getLong(1), resultSet.getLong(2), resultSet.getString(3)));
+        });
+    }
+}
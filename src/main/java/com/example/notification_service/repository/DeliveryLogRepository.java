@@ -0,0 +1,60 @@
+package com.example.notification_service.repository;
+
+import com.example.notification_service.service.DeliveryRecord;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Журнал доставки в таблице {@code delivery_log}. Пачка записей вставляется одним запросом.
+ */
+@Repository
+@RequiredArgsConstructor
+public class DeliveryLogRepository {
+    private static final String INSERT_ALL = """
+            INSERT INTO notification_service.delivery_log (user_id, event_id, delivered_at, channel)
+            SELECT * FROM unnest(?::int8[], ?::int8[], ?::timestamptz[], ?::varchar[])
+            """;
+    private static final String DELETE_BEFORE = """
+            DELETE FROM notification_service.delivery_log
+            WHERE ctid = ANY (ARRAY(
+                SELECT ctid FROM notification_service.delivery_log WHERE delivered_at < ? LIMIT ?
+            ))
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public void insertAll(List<DeliveryRecord> records) {
+        Object[] userIds = new Object[records.size()];
+        Object[] eventIds = new Object[records.size()];
+        Object[] deliveredAt = new Object[records.size()];
+        Object[] channels = new Object[records.size()];
+        for (int i = 0; i < records.size(); i++) {
+            DeliveryRecord record = records.get(i);
+            userIds[i] = record.userId();
+            eventIds[i] = record.eventId();
+            deliveredAt[i] = new Timestamp(record.deliveredAtMillis());
+            channels[i] = record.channel().getCode();
+        }
+        jdbcTemplate.update(connection -> {
+            PreparedStatement statement = connection.prepareStatement(INSERT_ALL);
+            statement.setArray(1, connection.createArrayOf("bigint", userIds));
+            statement.setArray(2, connection.createArrayOf("bigint", eventIds));
+            statement.setArray(3, connection.createArrayOf("timestamptz", deliveredAt));
+            statement.setArray(4, connection.createArrayOf("varchar", channels));
+            return statement;
+        });
+    }
+
+    /**
+     * Удаляет до {@code limit} записей, доставленных раньше {@code before}. Возвращает число удалённых.
+     */
+    public int deleteDeliveredBefore(Instant before, int limit) {
+        return jdbcTemplate.update(DELETE_BEFORE, Timestamp.from(before), limit);
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.notification_service.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.OptionalInt;
+import java.util.UUID;
+
+/**
+ * Outbox публикации событий: строка на каждое сохранённое, но ещё не опубликованное событие.
+ */
+@Repository
+@RequiredArgsConstructor
+public class EventOutboxRepository {
+    private static final String ADD = """
+            INSERT INTO notification_service.event_outbox (event_id)
+            SELECT unnest(?)
+            """;
+    private static final String RESERVE = """
+            UPDATE notification_service.event_outbox_capacity
+            SET pending = pending + ?
+            WHERE pending + ? <= ?
+            RETURNING pending
+            """;
+    private static final String CLAIM = """
+            UPDATE notification_service.event_outbox o
+            SET claimed_by = ?, claimed_until = now() + make_interval(secs => ?)
+            WHERE o.event_id IN (
+                SELECT event_id FROM notification_service.event_outbox
+                WHERE claimed_until IS NULL OR claimed_until < now()
+                ORDER BY event_id
+                LIMIT ?
+                FOR UPDATE SKIP LOCKED
+            )
+            RETURNING o.event_id
+            """;
+    private static final String COMPLETE = """
+            DELETE FROM notification_service.event_outbox
+            WHERE event_id = ANY (?) AND claimed_by = ?
+            """;
+    private static final String COUNT_PENDING = """
+            SELECT pending FROM notification_service.event_outbox_capacity
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Добавляет события в outbox в текущей транзакции без проверки ёмкости, см. {@link #reserve}.
+     */
+    public void add(Collection<Long> eventIds) {
+        jdbcTemplate.update(connection -> {
+            PreparedStatement statement = connection.prepareStatement(ADD);
+            statement.setArray(1, connection.createArrayOf("bigint", eventIds.toArray()));
+            return statement;
+        });
+    }
+
+    /**
+     * Учитывает {@code events} добавленных событий в счётчике неопубликованных, если вместе с ними их будет
+     * не больше {@code capacity}. Строка счётчика блокируется до конца текущей транзакции, поэтому вызывать
+     * следует непосредственно перед фиксацией. Удалённые строки outbox вычитаются из счётчика триггером.
+     * Возвращает число неопубликованных событий вместе с добавленными или пустое значение, если места нет.
+     */
+    public OptionalInt reserve(int events, int capacity) {
+        List<Integer> pending = jdbcTemplate.query(RESERVE, (resultSet, rowNum) -> resultSet.getInt(1),
+                events, events, capacity);
+        return pending.isEmpty() ? OptionalInt.empty() : OptionalInt.of(pending.get(0));
+    }
+
+    /**
+     * Захватывает до {@code limit} неопубликованных событий на время {@code lease}. Строки, захваченные
+     * другим исполнителем, пропускаются без ожидания. Возвращает идентификаторы захваченных событий.
+     */
+    public List<Long> claim(UUID owner, Duration lease, int limit) {
+        return jdbcTemplate.query(CLAIM, (resultSet, rowNum) -> resultSet.getLong(1),
+                owner, lease.toMillis() / 1000.0, limit);
+    }
+
+    /**
+     * Удаляет опубликованные события одним запросом, если они всё ещё захвачены этим исполнителем.
+     */
+    public void complete(Collection<Long> eventIds, UUID owner) {
+        jdbcTemplate.update(connection -> {
+            PreparedStatement statement = connection.prepareStatement(COMPLETE);
+            statement.setArray(1, connection.createArrayOf("bigint", eventIds.toArray()));
+            statement.setObject(2, owner);
+            return statement;
+        });
+    }
+
+    /**
+     * Число неопубликованных событий из счётчика без чтения строк outbox.
+     */
+    public int countPending() {
+        return jdbcTemplate.queryForObject(COUNT_PENDING, Integer.class);
+    }
+}
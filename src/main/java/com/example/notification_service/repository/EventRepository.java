@@ -1,7 +1,39 @@
 package com.example.notification_service.repository;
 
 import com.example.notification_service.entity.Event;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
-public interface EventRepository extends JpaRepository<Event, Long> {
+import java.util.List;
+import java.util.stream.Stream;
+
+public interface EventRepository extends JpaRepository<Event, Long>, EventRepositoryCustom {
+
+    @Query("select e.id from Event e where e.deliverySeq > :deliverySeq order by e.deliverySeq")
+    List<Long> findSequencedIdsAfter(@Param("deliverySeq") Long deliverySeq, Limit limit);
+
+    @Query("""
+            select new com.example.notification_service.repository.SequencedEvent(e.id, e.deliverySeq, e.occurredAt)
+            from Event e where e.deliverySeq > :deliverySeq order by e.deliverySeq
+            """)
+    List<SequencedEvent> findSequencedSummariesAfter(@Param("deliverySeq") Long deliverySeq);
+
+    List<Event> findByIdGreaterThanOrderById(Long id, Limit limit);
+
+    /**
+     * Потоково читает все события по возрастанию идентификатора порциями по 1000 строк.
+     * События создаются вне контекста персистентности и не накапливаются в нём.
+     * Поток должен читаться и закрываться внутри транзакции.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("""
+            select new com.example.notification_service.entity.Event(e.id, e.message, e.occurredAt, e.deliverySeq)
+            from Event e order by e.id
+            """)
+    Stream<Event> streamAll();
 }
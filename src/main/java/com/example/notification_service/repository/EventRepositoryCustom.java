@@ -0,0 +1,34 @@
+package com.example.notification_service.repository;
+
+import com.example.notification_service.entity.Event;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+public interface EventRepositoryCustom {
+
+    /**
+     * Выделяет {@code count} идентификаторов событий блоками последовательности {@code events_seq},
+     * так же, как их выделяет Hibernate.
+     */
+    List<Long> allocateIds(int count);
+
+    /**
+     * Вставляет события с уже назначенными идентификаторами одним запросом.
+     */
+    void insertAll(List<Event> events);
+
+    /**
+     * Назначает событиям следующие номера в ленте рассылки в порядке идентификаторов под транзакционной
+     * рекомендательной блокировкой, поэтому номера видны читателям строго в порядке возрастания.
+     * Вызывается внутри транзакции; уже назначенные номера не меняются.
+     * Возвращает номера по идентификаторам событий.
+     */
+    Map<Long, Long> assignDeliverySeqs(Collection<Long> eventIds);
+
+    /**
+     * Отправляет уведомление {@code NOTIFY}. Внутри транзакции оно доставляется слушателям после фиксации.
+     */
+    void publishNotification(String channel, String payload);
+}
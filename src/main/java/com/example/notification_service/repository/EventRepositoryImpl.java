@@ -0,0 +1,94 @@
+package com.example.notification_service.repository;
+
+import com.example.notification_service.entity.Event;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.example.notification_service.entity.Event.ID_ALLOCATION_SIZE;
+
+@RequiredArgsConstructor
+public class EventRepositoryImpl implements EventRepositoryCustom {
+    private static final long DELIVERY_SEQ_LOCK = 0x6e6f7469_66696572L;
+    private static final String LOCK_DELIVERY_SEQ = "SELECT pg_advisory_xact_lock(?)";
+    private static final String INSERT_ALL = """
+            INSERT INTO notification_service.events (id, message, occurred_at)
+            SELECT * FROM unnest(?::int8[], ?::varchar[], ?::timestamptz[])
+            """;
+    private static final String ASSIGN_DELIVERY_SEQS = """
+            UPDATE notification_service.events e
+            SET delivery_seq = s.delivery_seq
+            FROM (
+                SELECT id, nextval('notification_service.events_delivery_seq') AS delivery_seq
+                FROM (
+                    SELECT id FROM notification_service.events
+                    WHERE id = ANY (?) AND delivery_seq IS NULL
+                    ORDER BY id
+                ) unsequenced
+            ) s
+            WHERE e.id = s.id
+            """;
+    private static final String FIND_DELIVERY_SEQS = """
+            SELECT id, delivery_seq FROM notification_service.events WHERE id = ANY (?)
+            """;
+    private static final String NOTIFY = "SELECT pg_notify(?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public List<Long> allocateIds(int count) {
+        return PooledSequence.allocate(jdbcTemplate, "events_seq", ID_ALLOCATION_SIZE, count);
+    }
+
+    @Override
+    public void insertAll(List<Event> events) {
+        Object[] ids = new Object[events.size()];
+        Object[] messages = new Object[events.size()];
+        Object[] occurredAt = new Object[events.size()];
+        for (int i = 0; i < events.size(); i++) {
+            Event event = events.get(i);
+            ids[i] = event.getId();
+            messages[i] = event.getMessage();
+            occurredAt[i] = Timestamp.from(event.getOccurredAt().toInstant());
+        }
+        jdbcTemplate.update(connection -> {
+            PreparedStatement statement = connection.prepareStatement(INSERT_ALL);
+            statement.setArray(1, connection.createArrayOf("bigint", ids));
+            statement.setArray(2, connection.createArrayOf("varchar", messages));
+            statement.setArray(3, connection.createArrayOf("timestamptz", occurredAt));
+            return statement;
+        });
+    }
+
+    @Override
+    public Map<Long, Long> assignDeliverySeqs(Collection<Long> eventIds) {
+        jdbcTemplate.query(LOCK_DELIVERY_SEQ, (ResultSetExtractor<Void>) resultSet -> null, DELIVERY_SEQ_LOCK);
+        Object[] ids = eventIds.toArray();
+        jdbcTemplate.update(connection -> {
+            PreparedStatement statement = connection.prepareStatement(ASSIGN_DELIVERY_SEQS);
+            statement.setArray(1, connection.createArrayOf("bigint", ids));
+            return statement;
+        });
+        Map<Long, Long> deliverySeqs = new HashMap<>(ids.length * 2);
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(FIND_DELIVERY_SEQS);
+            statement.setArray(1, connection.createArrayOf("bigint", ids));
+            return statement;
+        }, resultSet -> {
+            deliverySeqs.put(resultSet.getLong(1), resultSet.getLong(2));
+        });
+        return deliverySeqs;
+    }
+
+    @Override
+    public void publishNotification(String channel, String payload) {
+        jdbcTemplate.query(NOTIFY, (ResultSetExtractor<Void>) resultSet -> null, channel, payload);
+    }
+}
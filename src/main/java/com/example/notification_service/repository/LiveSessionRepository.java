@@ -0,0 +1,55 @@
+package com.example.notification_service.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.util.Collection;
+
+/**
+ * Подключённые пользователи всех экземпляров сервиса.
+ * <p>
+ * Запись действительна, пока жив серверный процесс, на котором её экземпляр слушает рассылку,
+ * поэтому записи упавшего экземпляра перестают учитываться без отдельной очистки.
+ */
+@Repository
+@RequiredArgsConstructor
+public class LiveSessionRepository {
+    private static final String ADD = """
+            INSERT INTO notification_service.live_sessions (user_id, node_pid, node_started_at)
+            SELECT unnest(?), ?, ?
+            ON CONFLICT DO NOTHING
+            """;
+    private static final String REMOVE = """
+            DELETE FROM notification_service.live_sessions
+            WHERE user_id = ? AND node_pid = ? AND node_started_at = ?
+            """;
+    private static final String REMOVE_DEAD_NODES = """
+            DELETE FROM notification_service.live_sessions ls
+            WHERE NOT EXISTS (
+                SELECT 1 FROM pg_stat_activity a
+                WHERE a.pid = ls.node_pid AND a.backend_start = ls.node_started_at
+            )
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public void addAll(Collection<Long> userIds, RelayNode node) {
+        jdbcTemplate.update(connection -> {
+            PreparedStatement statement = connection.prepareStatement(ADD);
+            statement.setArray(1, connection.createArrayOf("bigint", userIds.toArray()));
+            statement.setInt(2, node.pid());
+            statement.setObject(3, node.startedAt());
+            return statement;
+        });
+    }
+
+    public void remove(Long userId, RelayNode node) {
+        jdbcTemplate.update(REMOVE, userId, node.pid(), node.startedAt());
+    }
+
+    public int removeDeadNodes() {
+        return jdbcTemplate.update(REMOVE_DEAD_NODES);
+    }
+}
@@ -0,0 +1,9 @@
+package com.example.notification_service.repository;
+
+import java.time.Instant;
+
+/**
+ * Число пользователей, которым событие ещё не доставлено.
+ */
+public record PendingEventCount(Long eventId, Instant occurredAt, long users) {
+}
@@ -0,0 +1,31 @@
+package com.example.notification_service.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Выделение идентификаторов блоками последовательности с шагом {@code allocationSize} так же,
+ * как их выделяет оптимизатор {@code pooled} Hibernate: значение последовательности — верхняя граница блока.
+ * Поэтому идентификаторы, выделенные здесь и при сохранении сущностей через JPA, не пересекаются.
+ */
+final class PooledSequence {
+    private static final String NEXT_BLOCKS = "SELECT nextval(?::regclass) FROM generate_series(1, ?)";
+
+    private PooledSequence() {
+    }
+
+    static List<Long> allocate(JdbcTemplate jdbcTemplate, String sequence, int allocationSize, int count) {
+        List<Long> ids = new ArrayList<>(count);
+        while (ids.size() < count) {
+            int blocks = (count - ids.size() + allocationSize - 1) / allocationSize;
+            for (long upper : jdbcTemplate.queryForList(NEXT_BLOCKS, Long.class, sequence, blocks)) {
+                for (long id = Math.max(1, upper - allocationSize + 1); id <= upper && ids.size() < count; id++) {
+                    ids.add(id);
+                }
+            }
+        }
+        return ids;
+    }
+}
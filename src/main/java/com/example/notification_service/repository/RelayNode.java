@@ -0,0 +1,10 @@
+package com.example.notification_service.repository;
+
+import java.time.OffsetDateTime;
+
+/**
+ * Экземпляр сервиса, определяемый соединением, на котором он слушает рассылку:
+ * номер серверного процесса Postgres и время его запуска.
+ */
+public record RelayNode(int pid, OffsetDateTime startedAt) {
+}
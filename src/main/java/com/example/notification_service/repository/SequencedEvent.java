@@ -0,0 +1,9 @@
+package com.example.notification_service.repository;
+
+import java.time.ZonedDateTime;
+
+/**
+ * Событие ленты рассылки без текста сообщения.
+ */
+public record SequencedEvent(Long id, Long deliverySeq, ZonedDateTime occurredAt) {
+}
@@ -0,0 +1,7 @@
+package com.example.notification_service.repository;
+
+/**
+ * Курсор доставки пользователя вместе с его расписанием.
+ */
+public record UserCursor(Long userId, long lastDeliverySeq, String notificationSchedule) {
+}
@@ -2,12 +2,33 @@ package com.example.notification_service.repository;
 
 import com.example.notification_service.entity.UserEvent;
 import com.example.notification_service.entity.UserEventPK;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.ZonedDateTime;
 import java.util.List;
 
 @Repository
-public interface UserEventRepository extends JpaRepository<UserEvent, UserEventPK> {
-    List<UserEvent> findByUserId(Long userId);
+public interface UserEventRepository extends JpaRepository<UserEvent, UserEventPK>, UserEventRepositoryCustom {
+
+    @Query("""
+            select e.id from UserEvent ue join ue.event e
+            where ue.id.userId = :userId
+            order by e.occurredAt, e.id
+            """)
+    List<Long> findPendingEventIds(@Param("userId") Long userId, Limit limit);
+
+    @Query("""
+            select e.id from UserEvent ue join ue.event e
+            where ue.id.userId = :userId
+              and (e.occurredAt > :occurredAt or (e.occurredAt = :occurredAt and e.id > :eventId))
+            order by e.occurredAt, e.id
+            """)
+    List<Long> findPendingEventIdsAfter(@Param("userId") Long userId,
+                                        @Param("occurredAt") ZonedDateTime occurredAt,
+                                        @Param("eventId") Long eventId,
+                                        Limit limit);
 }
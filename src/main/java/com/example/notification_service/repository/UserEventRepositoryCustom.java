@@ -0,0 +1,40 @@
+package com.example.notification_service.repository;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface UserEventRepositoryCustom {
+
+    /**
+     * Ставит события в очередь пользователя одним запросом. Возвращает количество добавленных строк.
+     */
+    int enqueue(Long userId, Collection<Long> eventIds);
+
+    /**
+     * Ставит события в очереди тех пользователей, которые не подключены ни к одному экземпляру сервиса.
+     * Возвращает количество добавленных строк.
+     */
+    int enqueueForDisconnectedUsers(Collection<Long> eventIds, Collection<Long> userIds);
+
+    /**
+     * Ставит в очереди пользователей события списка одним запросом: пользователю {@code userIds[i]} — события,
+     * начиная с индекса {@code firstEvents[i]}. Возвращает количество добавленных строк.
+     */
+    int enqueueFrom(List<Long> eventIds, List<Long> userIds, List<Integer> firstEvents);
+
+    /**
+     * Удаляет доставленные пользователю события из очереди одним запросом.
+     * Возвращает идентификаторы событий, строки которых действительно были удалены.
+     */
+    List<Long> deleteDelivered(Long userId, Collection<Long> eventIds);
+
+    /**
+     * Удаляет всю очередь пользователя. Возвращает идентификаторы удалённых событий.
+     */
+    List<Long> deleteAllForUser(Long userId);
+
+    /**
+     * Число недоставленных строк очереди по каждому событию.
+     */
+    List<PendingEventCount> countPendingByEvent();
+}
@@ -0,0 +1,110 @@
+package com.example.notification_service.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.PreparedStatement;
+import java.util.Collection;
+import java.util.List;
+
+@RequiredArgsConstructor
+public class UserEventRepositoryImpl implements UserEventRepositoryCustom {
+    private static final String ENQUEUE = """
+            INSERT INTO notification_service.user_events (user_id, event_id)
+            SELECT ?, unnest(?)
+            ON CONFLICT DO NOTHING
+            """;
+    private static final String ENQUEUE_FOR_DISCONNECTED_USERS = """
+            INSERT INTO notification_service.user_events (user_id, event_id)
+            SELECT d.id, e.id
+            FROM (
+                SELECT u.id FROM unnest(?) AS u(id)
+                WHERE NOT EXISTS (
+                    SELECT 1 FROM notification_service.live_sessions ls
+                    JOIN pg_stat_activity a ON a.pid = ls.node_pid AND a.backend_start = ls.node_started_at
+                    WHERE ls.user_id = u.id
+                )
+            ) d
+            CROSS JOIN unnest(?) AS e(id)
+            ON CONFLICT DO NOTHING
+            """;
+    private static final String ENQUEUE_FROM = """
+            INSERT INTO notification_service.user_events (user_id, event_id)
+            SELECT d.user_id, e.id
+            FROM unnest(?, ?) AS d(user_id, first_event)
+            JOIN unnest(?) WITH ORDINALITY AS e(id, n) ON e.n > d.first_event
+            ON CONFLICT DO NOTHING
+            """;
+    private static final String DELETE_DELIVERED = """
+            DELETE FROM notification_service.user_events
+            WHERE user_id = ? AND event_id = ANY (?)
+            RETURNING event_id
+            """;
+    private static final String DELETE_ALL_FOR_USER = """
+            DELETE FROM notification_service.user_events
+            WHERE user_id = ?
+            RETURNING event_id
+            """;
+    private static final String COUNT_PENDING_BY_EVENT = """
+            SELECT e.id, e.occurred_at, count(*)
+            FROM notification_service.user_events ue
+            JOIN notification_service.events e ON e.id = ue.event_id
+            GROUP BY e.id, e.occurred_at
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public int enqueue(Long userId, Collection<Long> eventIds) {
+        return jdbcTemplate.update(connection -> {
+            PreparedStatement statement = connection.prepareStatement(ENQUEUE);
+            statement.setLong(1, userId);
+            statement.setArray(2, connection.createArrayOf("bigint", eventIds.toArray()));
+            return statement;
+        });
+    }
+
+    @Override
+    public int enqueueForDisconnectedUsers(Collection<Long> eventIds, Collection<Long> userIds) {
+        return jdbcTemplate.update(connection -> {
+            PreparedStatement statement = connection.prepareStatement(ENQUEUE_FOR_DISCONNECTED_USERS);
+            statement.setArray(1, connection.createArrayOf("bigint", userIds.toArray()));
+            statement.setArray(2, connection.createArrayOf("bigint", eventIds.toArray()));
+            return statement;
+        });
+    }
+
+    @Override
+    public int enqueueFrom(List<Long> eventIds, List<Long> userIds, List<Integer> firstEvents) {
+        return jdbcTemplate.update(connection -> {
+            PreparedStatement statement = connection.prepareStatement(ENQUEUE_FROM);
+            statement.setArray(1, connection.createArrayOf("bigint", userIds.toArray()));
+            statement.setArray(2, connection.createArrayOf("integer", firstEvents.toArray()));
+            statement.setArray(3, connection.createArrayOf("bigint", eventIds.toArray()));
+            return statement;
+        });
+    }
+
+    @Override
+    public List<Long> deleteDelivered(Long userId, Collection<Long> eventIds) {
+        return jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(DELETE_DELIVERED);
+            statement.setLong(1, userId);
+            statement.setArray(2, connection.createArrayOf("bigint", eventIds.toArray()));
+            return statement;
+        }, (resultSet, rowNum) -> resultSet.getLong(1));
+    }
+
+    @Override
+    public List<Long> deleteAllForUser(Long userId) {
+        return jdbcTemplate.query(DELETE_ALL_FOR_USER, (resultSet, rowNum) -> resultSet.getLong(1), userId);
+    }
+
+    @Override
+    public List<PendingEventCount> countPendingByEvent() {
+        return jdbcTemplate.query(COUNT_PENDING_BY_EVENT, (resultSet, rowNum) -> new PendingEventCount(
+                resultSet.getLong(1),
+                resultSet.getTimestamp(2).toInstant(),
+                resultSet.getLong(3)));
+    }
+}
@@ -1,9 +1,50 @@
 package com.example.notification_service.repository;
 
 import com.example.notification_service.entity.User;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
 @Repository
-public interface UserRepository extends JpaRepository<User, Long> {
+public interface UserRepository extends JpaRepository<User, Long>, UserRepositoryCustom {
+
+    /**
+     * Потоково читает расписания всех пользователей порциями по 1000 строк.
+     * Поток должен читаться и закрываться внутри транзакции.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("select new com.example.notification_service.repository.UserSchedule(u.id, u.notificationSchedule) from User u")
+    Stream<UserSchedule> streamSchedules();
+
+    /**
+     * Расписания найденных пользователей без загрузки сущностей.
+     */
+    @Query("""
+            select new com.example.notification_service.repository.UserSchedule(u.id, u.notificationSchedule)
+            from User u where u.id in :ids
+            """)
+    List<UserSchedule> findSchedules(@Param("ids") Collection<Long> ids);
+
+    List<User> findByIdGreaterThanOrderById(Long id, Limit limit);
+
+    /**
+     * Потоково читает всех пользователей по возрастанию идентификатора порциями по 1000 строк.
+     * Пользователи создаются вне контекста персистентности и не накапливаются в нём.
+     * Поток должен читаться и закрываться внутри транзакции.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("""
+            select new com.example.notification_service.entity.User(u.id, u.fullName, u.notificationSchedule)
+            from User u order by u.id
+            """)
+    Stream<User> streamAll();
 }
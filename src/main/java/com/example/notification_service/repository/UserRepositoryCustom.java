@@ -0,0 +1,19 @@
+package com.example.notification_service.repository;
+
+import com.example.notification_service.entity.User;
+
+import java.util.List;
+
+public interface UserRepositoryCustom {
+
+    /**
+     * Выделяет {@code count} идентификаторов пользователей блоками последовательности {@code users_seq},
+     * так же, как их выделяет Hibernate: значение последовательности — верхняя граница блока.
+     */
+    List<Long> allocateIds(int count);
+
+    /**
+     * Вставляет пользователей с уже назначенными идентификаторами одним запросом.
+     */
+    void insertAll(List<User> users);
+}
@@ -0,0 +1,46 @@
+package com.example.notification_service.repository;
+
+import com.example.notification_service.entity.User;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.PreparedStatement;
+import java.util.List;
+
+import static com.example.notification_service.entity.User.ID_ALLOCATION_SIZE;
+
+@RequiredArgsConstructor
+public class UserRepositoryImpl implements UserRepositoryCustom {
+    private static final String INSERT_ALL = """
+            INSERT INTO notification_service.users (id, full_name, notification_schedule)
+            SELECT u.id, u.full_name, u.notification_schedule::jsonb
+            FROM unnest(?::int8[], ?::varchar[], ?::text[]) AS u(id, full_name, notification_schedule)
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public List<Long> allocateIds(int count) {
+        return PooledSequence.allocate(jdbcTemplate, "users_seq", ID_ALLOCATION_SIZE, count);
+    }
+
+    @Override
+    public void insertAll(List<User> users) {
+        Object[] ids = new Object[users.size()];
+        Object[] fullNames = new Object[users.size()];
+        Object[] schedules = new Object[users.size()];
+        for (int i = 0; i < users.size(); i++) {
+            User user = users.get(i);
+            ids[i] = user.getId();
+            fullNames[i] = user.getFullName();
+            schedules[i] = user.getNotificationSchedule();
+        }
+        jdbcTemplate.update(connection -> {
+            PreparedStatement statement = connection.prepareStatement(INSERT_ALL);
+            statement.setArray(1, connection.createArrayOf("bigint", ids));
+            statement.setArray(2, connection.createArrayOf("varchar", fullNames));
+            statement.setArray(3, connection.createArrayOf("text", schedules));
+            return statement;
+        });
+    }
+}
@@ -0,0 +1,7 @@
+package com.example.notification_service.repository;
+
+/**
+ * Идентификатор пользователя и его расписание без загрузки сущности в контекст персистентности.
+ */
+public record UserSchedule(Long id, String notificationSchedule) {
+}
@@ -0,0 +1,26 @@
+package com.example.notification_service.repository;
+
+import com.example.notification_service.entity.UserScheduleWindow;
+import com.example.notification_service.entity.UserScheduleWindowPK;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface UserScheduleWindowRepository extends JpaRepository<UserScheduleWindow, UserScheduleWindowPK>,
+        UserScheduleWindowRepositoryCustom {
+
+    /**
+     * Идентификаторы пользователей, активных в минуту недели {@code minuteOfWeek}, по возрастанию.
+     * Читается только индекс GiST по периодам, содержащим эту минуту.
+     */
+    @Query(value = """
+            SELECT DISTINCT user_id FROM notification_service.user_schedule_windows
+            WHERE minutes @> :minuteOfWeek
+            ORDER BY user_id
+            """, nativeQuery = true)
+    List<Long> findActiveUserIds(@Param("minuteOfWeek") int minuteOfWeek);
+}
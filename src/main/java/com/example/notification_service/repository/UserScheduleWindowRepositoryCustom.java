@@ -0,0 +1,18 @@
+package com.example.notification_service.repository;
+
+import com.example.notification_service.entity.UserScheduleWindow;
+
+import java.util.List;
+
+public interface UserScheduleWindowRepositoryCustom {
+
+    /**
+     * Заменяет периоды информирования пользователя.
+     */
+    void replaceAll(Long userId, List<UserScheduleWindow> windows);
+
+    /**
+     * Вставляет периоды информирования новых пользователей одним запросом.
+     */
+    void insertAll(List<UserScheduleWindow> windows);
+}
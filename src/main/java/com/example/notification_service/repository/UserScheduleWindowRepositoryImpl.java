@@ -0,0 +1,53 @@
+package com.example.notification_service.repository;
+
+import com.example.notification_service.entity.UserScheduleWindow;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.PreparedStatement;
+import java.util.List;
+
+@RequiredArgsConstructor
+public class UserScheduleWindowRepositoryImpl implements UserScheduleWindowRepositoryCustom {
+    private static final String DELETE_FOR_USER = """
+            DELETE FROM notification_service.user_schedule_windows WHERE user_id = ?
+            """;
+    private static final String INSERT_ALL = """
+            INSERT INTO notification_service.user_schedule_windows (user_id, from_minute, to_minute)
+            SELECT w.user_id, w.from_minute, w.to_minute
+            FROM unnest(?::int8[], ?::int4[], ?::int4[]) AS w(user_id, from_minute, to_minute)
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    @Transactional
+    public void replaceAll(Long userId, List<UserScheduleWindow> windows) {
+        jdbcTemplate.update(DELETE_FOR_USER, userId);
+        insertAll(windows);
+    }
+
+    @Override
+    public void insertAll(List<UserScheduleWindow> windows) {
+        if (windows.isEmpty()) {
+            return;
+        }
+        Object[] userIds = new Object[windows.size()];
+        Object[] fromMinutes = new Object[windows.size()];
+        Object[] toMinutes = new Object[windows.size()];
+        for (int i = 0; i < windows.size(); i++) {
+            UserScheduleWindow window = windows.get(i);
+            userIds[i] = window.getId().getUserId();
+            fromMinutes[i] = window.getId().getFromMinute();
+            toMinutes[i] = window.getToMinute();
+        }
+        jdbcTemplate.update(connection -> {
+            PreparedStatement statement = connection.prepareStatement(INSERT_ALL);
+            statement.setArray(1, connection.createArrayOf("bigint", userIds));
+            statement.setArray(2, connection.createArrayOf("integer", fromMinutes));
+            statement.setArray(3, connection.createArrayOf("integer", toMinutes));
+            return statement;
+        });
+    }
+}
@@ -0,0 +1,351 @@
+package com.example.notification_service.service;
+
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.example.notification_service.service.CompiledSchedule.MINUTES_PER_WEEK;
+
+/**
+ * Индекс активных пользователей по минутам недели.
+ * <p>
+ * Для каждой минуты недели хранятся отсортированные массивы идентификаторов пользователей,
+ * у которых в эту минуту период информирования начинается или заканчивается.
+ * Множество активных пользователей хранится отсортированным массивом и сдвигается
+ * от минуты к минуте применением этих переходов, поэтому запрос «кто активен сейчас»
+ * стоит O(активных пользователей) и не обращается к таблице пользователей.
+ * Запрос за прошедшую минуту, например для события, опубликованного с задержкой, обслуживается
+ * применением переходов в обратную сторону и не сдвигает текущую минуту индекса.
+ */
+@Component
+public class ActiveUserIndex {
+    private static final long[] NO_USERS = new long[0];
+    private static final long UNSET = Long.MIN_VALUE;
+
+    private final Map<Long, CompiledSchedule> schedules = new HashMap<>();
+    private final long[][] openings = new long[MINUTES_PER_WEEK][];
+    private final long[][] closings = new long[MINUTES_PER_WEEK][];
+
+    private volatile long currentEpochMinute = UNSET;
+    private volatile long[] activeUserIds = NO_USERS;
+    private volatile Snapshot previousMinute;
+    private volatile boolean ready;
+
+    public ActiveUserIndex() {
+        Arrays.fill(openings, NO_USERS);
+        Arrays.fill(closings, NO_USERS);
+    }
+
+    /**
+     * Полностью перестраивает индекс по расписаниям всех пользователей.
+     */
+    public synchronized void load(Map<Long, CompiledSchedule> loadedSchedules, LocalDateTime now) {
+        schedules.clear();
+        schedules.putAll(loadedSchedules);
+
+        int[] openingCounts = new int[MINUTES_PER_WEEK];
+        int[] closingCounts = new int[MINUTES_PER_WEEK];
+        for (CompiledSchedule schedule : loadedSchedules.values()) {
+            for (int minute : schedule.openingMinutes()) {
+                openingCounts[minute]++;
+            }
+            for (int minute : schedule.closingMinutes()) {
+                closingCounts[minute]++;
+            }
+        }
+        for (int minute = 0; minute < MINUTES_PER_WEEK; minute++) {
+            openings[minute] = openingCounts[minute] == 0 ? NO_USERS : new long[openingCounts[minute]];
+            closings[minute] = closingCounts[minute] == 0 ? NO_USERS : new long[closingCounts[minute]];
+        }
+
+        Arrays.fill(openingCounts, 0);
+        Arrays.fill(closingCounts, 0);
+        for (var entry : loadedSchedules.entrySet()) {
+            long userId = entry.getKey();
+            for (int minute : entry.getValue().openingMinutes()) {
+                openings[minute][openingCounts[minute]++] = userId;
+            }
+            for (int minute : entry.getValue().closingMinutes()) {
+                closings[minute][closingCounts[minute]++] = userId;
+            }
+        }
+        for (int minute = 0; minute < MINUTES_PER_WEEK; minute++) {
+            Arrays.sort(openings[minute]);
+            Arrays.sort(closings[minute]);
+        }
+
+        rebuild(epochMinute(now));
+        ready = true;
+    }
+
+    public synchronized void put(Long userId, CompiledSchedule schedule) {
+        CompiledSchedule previous = schedules.put(userId, schedule);
+        if (previous != null) {
+            for (int minute : previous.openingMinutes()) {
+                openings[minute] = remove(openings[minute], userId);
+            }
+            for (int minute : previous.closingMinutes()) {
+                closings[minute] = remove(closings[minute], userId);
+            }
+        }
+        for (int minute : schedule.openingMinutes()) {
+            openings[minute] = insert(openings[minute], userId);
+        }
+        for (int minute : schedule.closingMinutes()) {
+            closings[minute] = insert(closings[minute], userId);
+        }
+
+        if (currentEpochMinute != UNSET) {
+            activeUserIds = schedule.isActiveAt(minuteOfWeek(currentEpochMinute))
+                    ? insert(activeUserIds, userId)
+                    : remove(activeUserIds, userId);
+        }
+        Snapshot past = previousMinute;
+        if (past != null) {
+            previousMinute = new Snapshot(past.epochMinute(), schedule.isActiveAt(minuteOfWeek(past.epochMinute()))
+                    ? insert(past.activeUserIds(), userId)
+                    : remove(past.activeUserIds(), userId));
+        }
+    }
+
+    /**
+     * Добавляет или заменяет расписания многих пользователей сразу: переходы каждой минуты
+     * сливаются с новыми одним проходом, а не вставкой по одному идентификатору.
+     */
+    public synchronized void putAll(Map<Long, CompiledSchedule> added) {
+        if (added.isEmpty()) {
+            return;
+        }
+        for (var entry : added.entrySet()) {
+            CompiledSchedule previous = schedules.put(entry.getKey(), entry.getValue());
+            if (previous != null) {
+                for (int minute : previous.openingMinutes()) {
+                    openings[minute] = remove(openings[minute], entry.getKey());
+                }
+                for (int minute : previous.closingMinutes()) {
+                    closings[minute] = remove(closings[minute], entry.getKey());
+                }
+            }
+        }
+
+        Map<Integer, List<Long>> addedOpenings = new HashMap<>();
+        Map<Integer, List<Long>> addedClosings = new HashMap<>();
+        for (var entry : added.entrySet()) {
+            for (int minute : entry.getValue().openingMinutes()) {
+                addedOpenings.computeIfAbsent(minute, m -> new ArrayList<>()).add(entry.getKey());
+            }
+            for (int minute : entry.getValue().closingMinutes()) {
+                addedClosings.computeIfAbsent(minute, m -> new ArrayList<>()).add(entry.getKey());
+            }
+        }
+        addedOpenings.forEach((minute, userIds) -> openings[minute] = union(openings[minute], sorted(userIds)));
+        addedClosings.forEach((minute, userIds) -> closings[minute] = union(closings[minute], sorted(userIds)));
+
+        if (currentEpochMinute != UNSET) {
+            int minute = minuteOfWeek(currentEpochMinute);
+            activeUserIds = union(difference(activeUserIds, sorted(added.keySet())), added.entrySet().stream()
+                    .filter(entry -> entry.getValue().isActiveAt(minute))
+                    .mapToLong(Map.Entry::getKey)
+                    .sorted()
+                    .toArray());
+        }
+        // снимок прошедшей минуты проще вычислить заново при следующем запросе
+        previousMinute = null;
+    }
+
+    public synchronized void remove(Long userId) {
+        CompiledSchedule previous = schedules.remove(userId);
+        if (previous == null) {
+            return;
+        }
+        for (int minute : previous.openingMinutes()) {
+            openings[minute] = remove(openings[minute], userId);
+        }
+        for (int minute : previous.closingMinutes()) {
+            closings[minute] = remove(closings[minute], userId);
+        }
+        activeUserIds = remove(activeUserIds, userId);
+        Snapshot past = previousMinute;
+        if (past != null) {
+            previousMinute = new Snapshot(past.epochMinute(), remove(past.activeUserIds(), userId));
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public synchronized int size() {
+        return schedules.size();
+    }
+
+    /**
+     * Возвращает отсортированный массив идентификаторов пользователей, активных в момент {@code now}.
+     * Массив не изменяется после публикации и не должен изменяться вызывающим кодом.
+     * Последний ответ за прошедшую минуту запоминается: запросы за события одной минуты, опубликованные
+     * с задержкой, повторно переходы не применяют.
+     */
+    public long[] activeUserIds(LocalDateTime now) {
+        long epochMinute = epochMinute(now);
+        if (epochMinute == currentEpochMinute) {
+            return activeUserIds;
+        }
+        Snapshot previous = previousMinute;
+        if (previous != null && previous.epochMinute() == epochMinute) {
+            return previous.activeUserIds();
+        }
+        return advanceTo(epochMinute);
+    }
+
+    private synchronized long[] advanceTo(long target) {
+        if (target == currentEpochMinute) {
+            return activeUserIds;
+        }
+        if (currentEpochMinute != UNSET && target < currentEpochMinute) {
+            return activeBefore(target);
+        }
+        long steps = target - currentEpochMinute;
+        if (currentEpochMinute == UNSET || steps >= MINUTES_PER_WEEK) {
+            rebuild(target);
+            return activeUserIds;
+        }
+        previousMinute = target == currentEpochMinute + 1 ? new Snapshot(currentEpochMinute, activeUserIds) : null;
+
+        long[] active = activeUserIds;
+        for (long epochMinute = currentEpochMinute + 1; epochMinute <= target; epochMinute++) {
+            int minute = minuteOfWeek(epochMinute);
+            if (openings[minute].length > 0 || closings[minute].length > 0) {
+                active = union(difference(active, closings[minute]), openings[minute]);
+            }
+        }
+        activeUserIds = active;
+        currentEpochMinute = target;
+        return active;
+    }
+
+    /**
+     * Вычисляет множество активных пользователей в прошедшую минуту, отменяя переходы от текущей минуты назад.
+     * Расписания повторяются каждую неделю, поэтому отменяется не больше недели переходов.
+     */
+    private long[] activeBefore(long target) {
+        Snapshot past = previousMinute;
+        if (past != null && past.epochMinute() == target) {
+            return past.activeUserIds();
+        }
+        long steps = Math.floorMod(currentEpochMinute - target, (long) MINUTES_PER_WEEK);
+        long[] active = activeUserIds;
+        for (long epochMinute = currentEpochMinute; epochMinute > currentEpochMinute - steps; epochMinute--) {
+            int minute = minuteOfWeek(epochMinute);
+            if (openings[minute].length > 0 || closings[minute].length > 0) {
+                active = union(difference(active, openings[minute]), closings[minute]);
+            }
+        }
+        previousMinute = new Snapshot(target, active);
+        return active;
+    }
+
+    private void rebuild(long epochMinute) {
+        previousMinute = null;
+        int minute = minuteOfWeek(epochMinute);
+        activeUserIds = schedules.entrySet().stream()
+                .filter(entry -> entry.getValue().isActiveAt(minute))
+                .mapToLong(Map.Entry::getKey)
+                .sorted()
+                .toArray();
+        currentEpochMinute = epochMinute;
+    }
+
+    private static long epochMinute(LocalDateTime dateTime) {
+        return dateTime.toEpochSecond(ZoneOffset.UTC) / 60;
+    }
+
+    private static int minuteOfWeek(long epochMinute) {
+        // 1970-01-01 — четверг, отсчёт минут недели ведётся с понедельника
+        return (int) Math.floorMod(epochMinute + 3L * CompiledSchedule.MINUTES_PER_DAY, (long) MINUTES_PER_WEEK);
+    }
+
+    private static long[] sorted(Collection<Long> ids) {
+        return ids.stream().mapToLong(Long::longValue).sorted().toArray();
+    }
+
+    private static long[] insert(long[] ids, long id) {
+        int position = Arrays.binarySearch(ids, id);
+        if (position >= 0) {
+            return ids;
+        }
+        position = -position - 1;
+        long[] result = new long[ids.length + 1];
+        System.arraycopy(ids, 0, result, 0, position);
+        result[position] = id;
+        System.arraycopy(ids, position, result, position + 1, ids.length - position);
+        return result;
+    }
+
+    private static long[] remove(long[] ids, long id) {
+        int position = Arrays.binarySearch(ids, id);
+        if (position < 0) {
+            return ids;
+        }
+        if (ids.length == 1) {
+            return NO_USERS;
+        }
+        long[] result = new long[ids.length - 1];
+        System.arraycopy(ids, 0, result, 0, position);
+        System.arraycopy(ids, position + 1, result, position, ids.length - position - 1);
+        return result;
+    }
+
+    private static long[] union(long[] left, long[] right) {
+        if (right.length == 0) {
+            return left;
+        }
+        long[] result = new long[left.length + right.length];
+        int i = 0, j = 0, size = 0;
+        while (i < left.length && j < right.length) {
+            if (left[i] < right[j]) {
+                result[size++] = left[i++];
+            } else if (left[i] > right[j]) {
+                result[size++] = right[j++];
+            } else {
+                result[size++] = left[i++];
+                j++;
+            }
+        }
+        while (i < left.length) {
+            result[size++] = left[i++];
+        }
+        while (j < right.length) {
+            result[size++] = right[j++];
+        }
+        return size == result.length ? result : Arrays.copyOf(result, size);
+    }
+
+    private static long[] difference(long[] left, long[] right) {
+        if (right.length == 0) {
+            return left;
+        }
+        long[] result = new long[left.length];
+        int i = 0, j = 0, size = 0;
+        while (i < left.length) {
+            if (j == right.length || left[i] < right[j]) {
+                result[size++] = left[i++];
+            } else if (left[i] > right[j]) {
+                j++;
+            } else {
+                i++;
+                j++;
+            }
+        }
+        return size == result.length ? result : Arrays.copyOf(result, size);
+    }
+
+    private record Snapshot(long epochMinute, long[] activeUserIds) {
+    }
+}
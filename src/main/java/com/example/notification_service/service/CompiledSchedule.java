@@ -0,0 +1,204 @@
+package com.example.notification_service.service;
+
+import java.time.DayOfWeek;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Скомпилированное расписание оповещений: битовая карта недели с точностью до минуты.
+ * Проверка активности сводится к чтению одного бита без выделения памяти.
+ */
+public final class CompiledSchedule {
+    public static final int MINUTES_PER_DAY = 24 * 60;
+    public static final int MINUTES_PER_WEEK = 7 * MINUTES_PER_DAY;
+
+    private final String source;
+    private final long[] weekBits;
+    private final long[] openingBits;
+    private final long[] closingBits;
+
+    private CompiledSchedule(String source, long[] weekBits) {
+        this.source = source;
+        this.weekBits = weekBits;
+        this.openingBits = new long[weekBits.length];
+        this.closingBits = new long[weekBits.length];
+
+        int last = weekBits.length - 1;
+        long lastMinuteCarry = (weekBits[last] >>> ((MINUTES_PER_WEEK - 1) & 63)) & 1L;
+        long validBitsOfLastWord = -1L >>> (Long.SIZE - (MINUTES_PER_WEEK - last * Long.SIZE));
+        for (int i = 0; i <= last; i++) {
+            long carry = i == 0 ? lastMinuteCarry : weekBits[i - 1] >>> 63;
+            long previousMinuteBits = (weekBits[i] << 1) | carry;
+            long mask = i == last ? validBitsOfLastWord : -1L;
+            openingBits[i] = weekBits[i] & ~previousMinuteBits & mask;
+            closingBits[i] = ~weekBits[i] & previousMinuteBits & mask;
+        }
+    }
+
+    public static CompiledSchedule compile(String source, Map<DayOfWeek, List<String>> schedule) {
+        long[] bits = new long[words()];
+        if (schedule != null) {
+            for (var entry : schedule.entrySet()) {
+                if (entry.getValue() == null) {
+                    continue;
+                }
+                int dayOffset = (entry.getKey().getValue() - 1) * MINUTES_PER_DAY;
+                for (String interval : entry.getValue()) {
+                    String[] parts = interval.split("-");
+                    int start = parseMinuteOfDay(parts[0]);
+                    int end = parseMinuteOfDay(parts[1]);
+                    for (int minute = start; minute <= end; minute++) {
+                        int minuteOfWeek = dayOffset + minute;
+                        bits[minuteOfWeek >>> 6] |= 1L << minuteOfWeek;
+                    }
+                }
+            }
+        }
+        return new CompiledSchedule(source, bits);
+    }
+
+    public static int minuteOfWeek(LocalDateTime dateTime) {
+        return (dateTime.getDayOfWeek().getValue() - 1) * MINUTES_PER_DAY
+                + dateTime.getHour() * 60
+                + dateTime.getMinute();
+    }
+
+    public boolean isActiveAt(LocalDateTime dateTime) {
+        return isActiveAt(minuteOfWeek(dateTime));
+    }
+
+    public boolean isActiveAt(int minuteOfWeek) {
+        return (weekBits[minuteOfWeek >>> 6] & (1L << minuteOfWeek)) != 0;
+    }
+
+    /**
+     * Возвращает число минут от указанной минуты недели до ближайшего начала периода
+     * информирования (строго после неё), либо -1, если периоды не начинаются никогда.
+     */
+    public int minutesUntilNextOpening(int minuteOfWeek) {
+        int from = minuteOfWeek + 1;
+        int next = nextOpeningFrom(from);
+        if (next < 0) {
+            next = nextOpeningFrom(0);
+            if (next < 0) {
+                return -1;
+            }
+            next += MINUTES_PER_WEEK;
+        }
+        return next - minuteOfWeek;
+    }
+
+    /**
+     * Минуты недели, в которые начинается период информирования.
+     */
+    public int[] openingMinutes() {
+        return minutesOf(openingBits);
+    }
+
+    /**
+     * Минуты недели, в которые период информирования уже закончился (первая минута после периода).
+     */
+    public int[] closingMinutes() {
+        return minutesOf(closingBits);
+    }
+
+    /**
+     * Периоды информирования как полуинтервалы минут недели [начало, конец), по возрастанию начала.
+     * Период, переходящий через конец недели, делится на два: до конца недели и с её начала.
+     */
+    public List<Window> windows() {
+        int[] openings = openingMinutes();
+        int[] closings = closingMinutes();
+        if (openings.length == 0) {
+            return isEmpty() ? List.of() : List.of(new Window(0, MINUTES_PER_WEEK));
+        }
+
+        List<Window> windows = new ArrayList<>(openings.length + 1);
+        for (int opening : openings) {
+            int next = Arrays.binarySearch(closings, opening + 1);
+            next = next < 0 ? -next - 1 : next;
+            if (next < closings.length) {
+                windows.add(new Window(opening, closings[next]));
+            } else {
+                windows.add(new Window(opening, MINUTES_PER_WEEK));
+                if (closings[0] > 0) {
+                    windows.add(0, new Window(0, closings[0]));
+                }
+            }
+        }
+        return windows;
+    }
+
+    public boolean isEmpty() {
+        for (long word : weekBits) {
+            if (word != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Проверяет, что расписание скомпилировано из той же JSON-строки,
+     * что сейчас хранится у пользователя.
+     */
+    public boolean isCompiledFrom(String notificationSchedule) {
+        return source != null && source.equals(notificationSchedule);
+    }
+
+    private int nextOpeningFrom(int from) {
+        if (from >= MINUTES_PER_WEEK) {
+            return -1;
+        }
+        int wordIndex = from >>> 6;
+        long word = openingBits[wordIndex] & (-1L << from);
+        while (true) {
+            if (word != 0) {
+                int minute = wordIndex * Long.SIZE + Long.numberOfTrailingZeros(word);
+                return minute < MINUTES_PER_WEEK ? minute : -1;
+            }
+            if (++wordIndex == openingBits.length) {
+                return -1;
+            }
+            word = openingBits[wordIndex];
+        }
+    }
+
+    private static int[] minutesOf(long[] bits) {
+        int count = 0;
+        for (long word : bits) {
+            count += Long.bitCount(word);
+        }
+
+        int[] minutes = new int[count];
+        int index = 0;
+        for (int wordIndex = 0; wordIndex < bits.length; wordIndex++) {
+            long word = bits[wordIndex];
+            while (word != 0) {
+                minutes[index++] = wordIndex * Long.SIZE + Long.numberOfTrailingZeros(word);
+                word &= word - 1;
+            }
+        }
+        return minutes;
+    }
+
+    public record Window(int fromMinute, int toMinute) {
+    }
+
+    private static int parseMinuteOfDay(String time) {
+        String[] parts = time.trim().split(":");
+        int hour = Integer.parseInt(parts[0]);
+        int minute = Integer.parseInt(parts[1]);
+        if (hour < 0 || hour > 23 || minute < 0 || minute > 59) {
+            throw new IllegalArgumentException("Некорректное время: " + time);
+        }
+        return hour * 60 + minute;
+    }
+
+    private static int words() {
+        return (MINUTES_PER_WEEK + Long.SIZE - 1) / Long.SIZE;
+    }
+}
@@ -0,0 +1,213 @@
+package com.example.notification_service.service;
+
+import com.example.notification_service.repository.UserEventRepository;
+import com.example.notification_service.web_socket.service.UserDisconnectedEvent;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Подтверждения получения сообщений очереди.
+ * <p>
+ * Пользователю, подписанному с подтверждениями, очередь и лента доставляются без удаления строк
+ * и сдвига курсора, отправленные сообщения запоминаются в порядке отправки вместе с отправленными сразу.
+ * Клиент присылает идентификатор последнего полученного события, и подтверждение относится ко всем сообщениям,
+ * отправленным до него включительно: подтверждённые строки очереди удаляются одним запросом, курсор переносится
+ * за подтверждённые события ленты. Пока пользователь подключён, повторная доставка продолжает с места,
+ * где остановилась предыдущая, и не отправляет неподтверждённое ещё раз. Отправленные сообщения хранятся
+ * только в памяти экземпляра, который их отправил, и забываются при отключении пользователя:
+ * неподтверждённое остаётся в базе данных и отправляется повторно после переподключения.
+ */
+@Component
+@RequiredArgsConstructor
+public class DeliveryAcknowledgements {
+    private final UserEventRepository userEventRepository;
+    private final DeliveryCursorService deliveryCursorService;
+    private final NotificationMetrics notificationMetrics;
+
+    private final Map<Long, Unacknowledged> unacknowledgedByUser = new ConcurrentHashMap<>();
+
+    /**
+     * Начинает доставку пользователю с курсора {@code cursor} или продолжает доставку, начатую раньше
+     * в этом подключении: отправленное и ещё не подтверждённое ею повторно не отправляется.
+     */
+    public Unacknowledged start(Long userId, long cursor) {
+        Unacknowledged unacknowledged = unacknowledgedByUser.computeIfAbsent(userId, id -> new Unacknowledged(id, cursor));
+        unacknowledged.catchUp(cursor);
+        return unacknowledged;
+    }
+
+    /**
+     * Запоминает событие, отправленное пользователю сразу при рассылке, чтобы подтверждение по нему
+     * относилось и к отправленному раньше. Пока доставка пользователю не начиналась, ничего не делает.
+     */
+    public void sentLive(Long userId, Long eventId) {
+        if (unacknowledgedByUser.isEmpty()) {
+            return;
+        }
+        Unacknowledged unacknowledged = unacknowledgedByUser.get(userId);
+        if (unacknowledged != null) {
+            unacknowledged.sentLive(eventId);
+        }
+    }
+
+    /**
+     * Подтверждает сообщения, отправленные пользователю до события {@code eventId} включительно.
+     * Подтверждение события, которое не отправлялось этим экземпляром, игнорируется.
+     */
+    public void acknowledge(Long userId, Long eventId) {
+        Unacknowledged unacknowledged = unacknowledgedByUser.get(userId);
+        if (unacknowledged != null) {
+            unacknowledged.acknowledge(eventId);
+        }
+    }
+
+    @EventListener
+    public void onUserDisconnected(UserDisconnectedEvent event) {
+        unacknowledgedByUser.remove(event.userId());
+    }
+
+    /**
+     * Сообщения, отправленные пользователю и ожидающие подтверждения.
+     * <p>
+     * Состояние меняется под блокировкой, а удаление строк очереди и сдвиг курсора выполняются после неё:
+     * подтверждение приходит на потоке входящих сообщений клиентов и не должно ждать базу данных под блокировкой,
+     * которую берёт доставка.
+     */
+    public final class Unacknowledged {
+        private final Long userId;
+        private final Deque<Sent> sent = new ArrayDeque<>();
+        private final Set<Long> sentFromQueue = new HashSet<>();
+        private long cursor;
+        private long feedEnd;
+
+        private Unacknowledged(Long userId, long cursor) {
+            this.userId = userId;
+            this.cursor = cursor;
+            this.feedEnd = cursor;
+        }
+
+        public synchronized void sentFromQueue(Long eventId) {
+            sent.addLast(new Sent(eventId, Sent.QUEUED));
+            sentFromQueue.add(eventId);
+        }
+
+        public synchronized void sentFromFeed(Long eventId, long deliverySeq) {
+            sent.addLast(new Sent(eventId, deliverySeq));
+        }
+
+        private synchronized void sentLive(Long eventId) {
+            sent.addLast(new Sent(eventId, Sent.LIVE));
+        }
+
+        /**
+         * Отправлена ли строка очереди с событием {@code eventId} и ещё не удалена подтверждением.
+         */
+        public synchronized boolean isSentFromQueue(Long eventId) {
+            return sentFromQueue.contains(eventId);
+        }
+
+        /**
+         * Номер в ленте, до которого она уже прочитана: доставка продолжает чтение ленты после него.
+         */
+        public synchronized long feedEnd() {
+            return feedEnd;
+        }
+
+        /**
+         * Отмечает, что лента прочитана до номера {@code deliverySeq}, включая события, которые
+         * пользователю не отправлялись. Курсор переносится сюда, когда подтверждено всё отправленное.
+         */
+        public void readFeedUpTo(long deliverySeq) {
+            long advanceTo;
+            synchronized (this) {
+                feedEnd = Math.max(feedEnd, deliverySeq);
+                advanceTo = sent.isEmpty() ? feedEnd : cursor;
+            }
+            advanceTo(advanceTo);
+        }
+
+        private synchronized void catchUp(long cursor) {
+            this.cursor = Math.max(this.cursor, cursor);
+            feedEnd = Math.max(feedEnd, cursor);
+        }
+
+        private void acknowledge(Long eventId) {
+            List<Long> queued = new ArrayList<>();
+            List<Long> fromFeed = new ArrayList<>();
+            long deliverySeq;
+            synchronized (this) {
+                if (sent.stream().noneMatch(message -> message.eventId() == eventId)) {
+                    return;
+                }
+                deliverySeq = cursor;
+                Sent message;
+                do {
+                    message = sent.pollFirst();
+                    if (message.deliverySeq() == Sent.QUEUED) {
+                        queued.add(message.eventId());
+                    } else if (message.deliverySeq() != Sent.LIVE) {
+                        fromFeed.add(message.eventId());
+                        deliverySeq = Math.max(deliverySeq, message.deliverySeq());
+                    }
+                } while (message.eventId() != eventId);
+                if (sent.isEmpty()) {
+                    deliverySeq = Math.max(deliverySeq, feedEnd);
+                }
+            }
+
+            if (!queued.isEmpty()) {
+                notificationMetrics.pendingRemoved(userEventRepository.deleteDelivered(userId, queued));
+                synchronized (this) {
+                    queued.forEach(sentFromQueue::remove);
+                }
+            }
+            if (!fromFeed.isEmpty()) {
+                notificationMetrics.pendingRemoved(fromFeed);
+            }
+            advanceTo(deliverySeq);
+        }
+
+        /**
+         * Переносит курсор на {@code deliverySeq}, если он ещё не там. Курсор, сдвинутый параллельно,
+         * перечитывается, и перенос повторяется, пока курсор не окажется на месте или дальше;
+         * если курсор не сдвигался, а перенести его не удалось, перенос прекращается.
+         */
+        private void advanceTo(long deliverySeq) {
+            long current;
+            synchronized (this) {
+                current = cursor;
+            }
+            while (current < deliverySeq) {
+                if (deliveryCursorService.advance(userId, current, deliverySeq)) {
+                    current = deliverySeq;
+                } else {
+                    long actual = deliveryCursorService.cursor(userId);
+                    if (actual <= current) {
+                        break;
+                    }
+                    current = actual;
+                }
+            }
+            catchUp(current);
+        }
+    }
+
+    /**
+     * Отправленное сообщение: для события ленты — его номер в ленте, для строки очереди — {@link #QUEUED},
+     * для события, отправленного сразу при рассылке, — {@link #LIVE}.
+     */
+    private record Sent(long eventId, long deliverySeq) {
+        static final long QUEUED = 0;
+        static final long LIVE = -1;
+    }
+}
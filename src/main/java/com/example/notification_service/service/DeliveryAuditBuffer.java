@@ -0,0 +1,86 @@
+package com.example.notification_service.service;
+
+import com.example.notification_service.enums.DeliveryChannel;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Кольцевой буфер записей журнала доставки без блокировок: много писателей, один читатель.
+ * <p>
+ * Писатель занимает ячейку сдвигом хвоста через CAS, заполняет поля и публикует ячейку,
+ * записав в неё номер занятой позиции. Читатель забирает опубликованные ячейки по порядку.
+ * Если буфер заполнен, запись отбрасывается: доставка не ждёт журнала.
+ */
+public class DeliveryAuditBuffer {
+    private static final DeliveryChannel[] CHANNELS = DeliveryChannel.values();
+
+    private final int mask;
+    private final long[] userIds;
+    private final long[] eventIds;
+    private final long[] timestamps;
+    private final byte[] channels;
+    private final AtomicLongArray published;
+    private final AtomicLong tail = new AtomicLong();
+    private volatile long head;
+
+    public DeliveryAuditBuffer(int capacity) {
+        int size = capacity <= 2 ? 2 : Integer.highestOneBit(capacity - 1) << 1;
+        this.mask = size - 1;
+        this.userIds = new long[size];
+        this.eventIds = new long[size];
+        this.timestamps = new long[size];
+        this.channels = new byte[size];
+        this.published = new AtomicLongArray(size);
+    }
+
+    /**
+     * Добавляет запись. Возвращает {@code false}, если буфер заполнен и запись отброшена.
+     */
+    public boolean offer(long userId, long eventId, long timestamp, DeliveryChannel channel) {
+        long position;
+        do {
+            position = tail.get();
+            if (position - head > mask) {
+                return false;
+            }
+        } while (!tail.compareAndSet(position, position + 1));
+
+        int slot = (int) (position & mask);
+        userIds[slot] = userId;
+        eventIds[slot] = eventId;
+        timestamps[slot] = timestamp;
+        channels[slot] = (byte) channel.ordinal();
+        published.set(slot, position + 1);
+        return true;
+    }
+
+    /**
+     * Забирает до {@code limit} опубликованных записей в {@code target}. Вызывается одним потоком.
+     * Возвращает число забранных записей.
+     */
+    public int drainTo(List<DeliveryRecord> target, int limit) {
+        long position = head;
+        int drained = 0;
+        while (drained < limit) {
+            int slot = (int) (position & mask);
+            if (published.get(slot) != position + 1) {
+                break;
+            }
+            target.add(new DeliveryRecord(userIds[slot], eventIds[slot], timestamps[slot], CHANNELS[channels[slot]]));
+            position++;
+            drained++;
+        }
+        head = position;
+        return drained;
+    }
+
+    public int size() {
+        return (int) Math.max(0, tail.get() - head);
+    }
+
+    public int capacity() {
+        return mask + 1;
+    }
+}
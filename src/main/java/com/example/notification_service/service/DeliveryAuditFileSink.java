@@ -0,0 +1,106 @@
+package com.example.notification_service.service;
+
+import com.example.notification_service.configuration.NotificationProperties;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Журнал доставки в файле, открытом на дозапись. Строка на каждую доставку:
+ * в формате {@code TEXT} — время, пользователь, событие и способ доставки через табуляцию,
+ * в формате {@code JSON} — объект JSON.
+ * <p>
+ * Файл, который превысил бы {@code maxFileSize}, переименовывается в {@code <file>.1}, предыдущие
+ * старые файлы сдвигаются на номер дальше, и запись продолжается в новый файл. Файлы с номером больше
+ * {@code maxHistory} удаляются, поэтому журнал занимает на диске не больше {@code maxHistory + 1} файлов.
+ */
+public class DeliveryAuditFileSink implements DeliveryAuditSink {
+    private final Path file;
+    private final NotificationProperties.Audit.Format format;
+    private final long maxFileSize;
+    private final int maxHistory;
+    private final StringBuilder line = new StringBuilder(128);
+    private Writer writer;
+    private long size;
+
+    public DeliveryAuditFileSink(Path file, NotificationProperties.Audit.Format format,
+                                 long maxFileSize, int maxHistory) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        this.file = file;
+        this.format = format;
+        this.maxFileSize = maxFileSize;
+        this.maxHistory = maxHistory;
+        open();
+    }
+
+    @Override
+    public void write(List<DeliveryRecord> records) throws IOException {
+        for (DeliveryRecord record : records) {
+            line.setLength(0);
+            String deliveredAt = Instant.ofEpochMilli(record.deliveredAtMillis()).toString();
+            if (format == NotificationProperties.Audit.Format.JSON) {
+                line.append("{\"deliveredAt\":\"").append(deliveredAt)
+                        .append("\",\"userId\":").append(record.userId())
+                        .append(",\"eventId\":").append(record.eventId())
+                        .append(",\"channel\":\"").append(record.channel().getCode()).append("\"}");
+            } else {
+                line.append(deliveredAt).append('\t')
+                        .append(record.userId()).append('\t')
+                        .append(record.eventId()).append('\t')
+                        .append(record.channel().getCode());
+            }
+            line.append('\n');
+            // строки журнала состоят из символов ASCII, их длина равна числу байтов
+            if (size > 0 && size + line.length() > maxFileSize) {
+                rotate();
+            }
+            writer.append(line);
+            size += line.length();
+        }
+        writer.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+
+    private void open() throws IOException {
+        this.writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND, StandardOpenOption.WRITE);
+        this.size = Files.size(file);
+    }
+
+    private void rotate() throws IOException {
+        writer.close();
+        try {
+            if (maxHistory > 0) {
+                Files.deleteIfExists(archived(maxHistory));
+                for (int i = maxHistory - 1; i >= 1; i--) {
+                    if (Files.exists(archived(i))) {
+                        Files.move(archived(i), archived(i + 1), StandardCopyOption.REPLACE_EXISTING);
+                    }
+                }
+                Files.move(file, archived(1), StandardCopyOption.REPLACE_EXISTING);
+            } else {
+                Files.delete(file);
+            }
+        } finally {
+            open();
+        }
+    }
+
+    private Path archived(int index) {
+        return file.resolveSibling(file.getFileName() + "." + index);
+    }
+}
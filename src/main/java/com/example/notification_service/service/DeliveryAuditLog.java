@@ -0,0 +1,149 @@
+package com.example.notification_service.service;
+
+import com.example.notification_service.configuration.NotificationProperties;
+import com.example.notification_service.enums.DeliveryChannel;
+import com.example.notification_service.repository.DeliveryLogRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Журнал доставки сообщений пользователям.
+ * <p>
+ * При доставке запись только кладётся в кольцевой буфер; отдельный поток забирает записи пачками
+ * и пишет их в файл или в таблицу {@code delivery_log}. Если приёмник не успевает и буфер заполнен,
+ * записи отбрасываются и учитываются метрикой {@code notification.audit.dropped}. Файл журнала ограничен
+ * по размеру (см. {@link DeliveryAuditFileSink}), из таблицы раз в час удаляются записи старше
+ * {@code notification.audit.retention}.
+ */
+@Component
+public class DeliveryAuditLog {
+    private static final Logger logger = LoggerFactory.getLogger(DeliveryAuditLog.class);
+    private static final int PURGE_BATCH_SIZE = 10_000;
+
+    private final NotificationProperties.Audit properties;
+    private final NotificationMetrics notificationMetrics;
+    private final DeliveryLogRepository deliveryLogRepository;
+    private final DeliveryAuditBuffer buffer;
+    private final DeliveryAuditSink sink;
+    private final Thread flusher;
+
+    private volatile boolean running = true;
+
+    public DeliveryAuditLog(NotificationProperties properties,
+                            NotificationMetrics notificationMetrics,
+                            DeliveryLogRepository deliveryLogRepository) {
+        this.properties = properties.getAudit();
+        this.notificationMetrics = notificationMetrics;
+        this.deliveryLogRepository = deliveryLogRepository;
+        this.buffer = new DeliveryAuditBuffer(this.properties.getBufferSize());
+        this.sink = this.properties.isEnabled() ? sink(this.properties, deliveryLogRepository) : null;
+        this.flusher = new Thread(this::flushLoop, "delivery-audit");
+        this.flusher.setDaemon(true);
+        if (sink != null) {
+            notificationMetrics.gaugeAuditBuffered(buffer::size);
+            flusher.start();
+        }
+    }
+
+    /**
+     * Регистрирует доставку события пользователю.
+     */
+    public void record(long userId, long eventId, DeliveryChannel channel) {
+        if (sink == null) {
+            return;
+        }
+        if (!buffer.offer(userId, eventId, System.currentTimeMillis(), channel)) {
+            notificationMetrics.auditDropped();
+        }
+    }
+
+    /**
+     * Удаляет из таблицы {@code delivery_log} записи старше времени хранения. Записи удаляются пачками,
+     * чтобы не держать долгую транзакцию; экземпляры могут удалять одновременно.
+     */
+    @Scheduled(cron = "0 0 * * * *")
+    public void purgeExpired() {
+        if (properties.getSink() != NotificationProperties.Audit.Sink.TABLE) {
+            return;
+        }
+        Instant before = Instant.now().minus(properties.getRetention());
+        long purged = 0;
+        int deleted;
+        do {
+            deleted = deliveryLogRepository.deleteDeliveredBefore(before, PURGE_BATCH_SIZE);
+            purged += deleted;
+        } while (deleted == PURGE_BATCH_SIZE && running);
+        if (purged > 0) {
+            logger.info("Удалено записей журнала доставки старше {}: {}", before, purged);
+        }
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        if (sink == null) {
+            return;
+        }
+        LockSupport.unpark(flusher);
+        flusher.join(TimeUnit.SECONDS.toMillis(10));
+    }
+
+    /**
+     * Записывает в приёмник одну пачку из буфера. Возвращает число записанных записей.
+     */
+    int flush() {
+        List<DeliveryRecord> batch = new ArrayList<>(Math.min(properties.getBatchSize(), buffer.size()));
+        if (buffer.drainTo(batch, properties.getBatchSize()) == 0) {
+            return 0;
+        }
+        try {
+            sink.write(batch);
+        } catch (IOException | RuntimeException e) {
+            logger.error("Не удалось записать {} записей журнала доставки", batch.size(), e);
+        }
+        return batch.size();
+    }
+
+    private void flushLoop() {
+        while (running) {
+            if (flush() < properties.getBatchSize()) {
+                LockSupport.parkNanos(properties.getFlushInterval().toNanos());
+            }
+        }
+        int flushed;
+        do {
+            flushed = flush();
+        } while (flushed > 0);
+        try {
+            sink.close();
+        } catch (IOException e) {
+            logger.error("Не удалось закрыть журнал доставки", e);
+        }
+    }
+
+    private static DeliveryAuditSink sink(NotificationProperties.Audit properties,
+                                          DeliveryLogRepository deliveryLogRepository) {
+        return switch (properties.getSink()) {
+            case TABLE -> deliveryLogRepository::insertAll;
+            case FILE -> {
+                try {
+                    yield new DeliveryAuditFileSink(properties.getFile(), properties.getFormat(),
+                            properties.getMaxFileSize().toBytes(), properties.getMaxHistory());
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Не удалось открыть журнал доставки " + properties.getFile(), e);
+                }
+            }
+        };
+    }
+}
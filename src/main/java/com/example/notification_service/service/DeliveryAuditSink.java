@@ -0,0 +1,16 @@
+package com.example.notification_service.service;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Приёмник пачек записей журнала доставки.
+ */
+@FunctionalInterface
+public interface DeliveryAuditSink {
+
+    void write(List<DeliveryRecord> records) throws IOException;
+
+    default void close() throws IOException {
+    }
+}
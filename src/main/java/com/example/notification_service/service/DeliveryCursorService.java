@@ -0,0 +1,168 @@
+package com.example.notification_service.service;
+
+import com.example.notification_service.entity.Event;
+import com.example.notification_service.repository.DeliveryCursorRepository;
+import com.example.notification_service.repository.EventRepository;
+import com.example.notification_service.repository.PendingEventCount;
+import com.example.notification_service.repository.SequencedEvent;
+import com.example.notification_service.repository.UserEventRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Доставка событий по курсорам.
+ * <p>
+ * Событие хранится один раз и получает номер в ленте рассылки. Пользователям, активным в момент
+ * события, оно доставляется сразу, остальным — при обработке ленты после их курсора. Какие события
+ * были доставлены сразу, определяется тем же расписанием, поэтому при рассылке не пишется
+ * ни одной строки на пользователя. При смене расписания недоставленная часть ленты переносится
+ * в очередь {@code user_events}, чтобы новое расписание не изменило решение, принятое по старому.
+ */
+@Service
+@RequiredArgsConstructor
+public class DeliveryCursorService {
+    private static final int SETTLE_PAGE_SIZE = 500;
+
+    private final EventRepository eventRepository;
+    private final DeliveryCursorRepository deliveryCursorRepository;
+    private final UserEventRepository userEventRepository;
+    private final ScheduleHelper scheduleHelper;
+    private final NearCache nearCache;
+
+    public void register(Long userId) {
+        deliveryCursorRepository.register(userId);
+    }
+
+    public void registerAll(Collection<Long> userIds) {
+        deliveryCursorRepository.registerAll(userIds);
+    }
+
+    /**
+     * Возвращает курсор пользователя, создавая его при отсутствии.
+     */
+    public long cursor(Long userId) {
+        Long cursor = deliveryCursorRepository.findCursor(userId);
+        if (cursor != null) {
+            return cursor;
+        }
+        deliveryCursorRepository.register(userId);
+        return deliveryCursorRepository.findCursor(userId);
+    }
+
+    /**
+     * Возвращает события ленты после номера {@code deliverySeq}. Из базы данных читаются только
+     * идентификаторы, содержимое событий берётся из кэша.
+     */
+    public List<Event> eventsAfter(long deliverySeq, int limit) {
+        return nearCache.findEvents(eventRepository.findSequencedIdsAfter(deliverySeq, Limit.of(limit)));
+    }
+
+    public boolean advance(Long userId, long expectedSeq, long deliverySeq) {
+        return deliveryCursorRepository.advance(userId, expectedSeq, deliverySeq);
+    }
+
+    public List<Long> claim(Collection<Long> userIds, UUID owner, Duration lease) {
+        return deliveryCursorRepository.claim(userIds, owner, lease);
+    }
+
+    public void release(Long userId, UUID owner) {
+        deliveryCursorRepository.release(userId, owner);
+    }
+
+    /**
+     * Переносит недоставленную часть ленты пользователя в его очередь по прежнему расписанию
+     * и сдвигает курсор в конец ленты.
+     */
+    public void settle(Long userId, CompiledSchedule previousSchedule) {
+        long cursor = cursor(userId);
+        while (true) {
+            List<Event> page = eventsAfter(cursor, SETTLE_PAGE_SIZE);
+            if (page.isEmpty()) {
+                return;
+            }
+            List<Long> pendingEventIds = page.stream()
+                    .filter(event -> !deliveredLive(event, previousSchedule))
+                    .map(Event::getId)
+                    .toList();
+            if (!pendingEventIds.isEmpty()) {
+                userEventRepository.enqueue(userId, pendingEventIds);
+            }
+
+            long last = page.get(page.size() - 1).getDeliverySeq();
+            if (!advance(userId, cursor, last) || page.size() < SETTLE_PAGE_SIZE) {
+                return;
+            }
+            cursor = last;
+        }
+    }
+
+    /**
+     * Подсчитывает недоставленные события ленты по каждому событию. Используется один раз
+     * при старте; время работы пропорционально объёму недоставленного.
+     */
+    @Transactional(readOnly = true)
+    public List<PendingEventCount> countBacklog() {
+        List<SequencedEvent> events = eventRepository.findSequencedSummariesAfter(deliveryCursorRepository.findOldestCursor());
+        if (events.isEmpty()) {
+            return List.of();
+        }
+
+        long[] deliverySeqs = new long[events.size()];
+        int[] minutesOfWeek = new int[events.size()];
+        for (int i = 0; i < events.size(); i++) {
+            SequencedEvent event = events.get(i);
+            deliverySeqs[i] = event.deliverySeq();
+            minutesOfWeek[i] = CompiledSchedule.minuteOfWeek(localTime(event.occurredAt()));
+        }
+
+        long[] pendingUsers = new long[events.size()];
+        deliveryCursorRepository.forEachLagging(deliverySeqs[deliverySeqs.length - 1], cursor -> {
+            CompiledSchedule schedule = scheduleHelper.compiledSchedule(cursor.userId(), cursor.notificationSchedule());
+            int from = Arrays.binarySearch(deliverySeqs, cursor.lastDeliverySeq());
+            for (int i = from < 0 ? -from - 1 : from + 1; i < deliverySeqs.length; i++) {
+                if (!schedule.isActiveAt(minutesOfWeek[i])) {
+                    pendingUsers[i]++;
+                }
+            }
+        });
+
+        List<PendingEventCount> backlog = new ArrayList<>();
+        for (int i = 0; i < events.size(); i++) {
+            if (pendingUsers[i] > 0) {
+                SequencedEvent event = events.get(i);
+                backlog.add(new PendingEventCount(event.id(), event.occurredAt().toInstant(), pendingUsers[i]));
+            }
+        }
+        return backlog;
+    }
+
+    /**
+     * Было ли событие доставлено пользователю сразу: пользователь был активен в момент события.
+     */
+    public static boolean deliveredLive(Event event, CompiledSchedule schedule) {
+        return event.getOccurredAt() != null && schedule.isActiveAt(localOccurredAt(event));
+    }
+
+    /**
+     * Момент события во времени, в котором заданы расписания пользователей.
+     */
+    public static LocalDateTime localOccurredAt(Event event) {
+        return event.getOccurredAt() == null ? LocalDateTime.now() : localTime(event.getOccurredAt());
+    }
+
+    private static LocalDateTime localTime(ZonedDateTime dateTime) {
+        return dateTime.withZoneSameInstant(ZoneId.systemDefault()).toLocalDateTime();
+    }
+}
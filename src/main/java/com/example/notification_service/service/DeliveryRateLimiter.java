@@ -0,0 +1,88 @@
+package com.example.notification_service.service;
+
+import com.example.notification_service.configuration.NotificationProperties;
+import com.example.notification_service.web_socket.service.UserDisconnectedEvent;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Ограничение скорости отправки сообщений по веб-сокету.
+ * <p>
+ * Каждое сообщение берёт маркер из корзины получателя и из общей корзины экземпляра, см. {@link TokenBucket}.
+ * Сообщение, для которого маркера нет, не отправляется и не теряется: оно остаётся или ставится в очередь
+ * {@code user_events} получателя и доставляется позже. Пока отложенное не доставлено, новые сообщения
+ * пользователю тоже откладываются, чтобы он получил их после отложенных.
+ * <p>
+ * Корзины пользователей хранятся, пока к ним обращаются; корзина, к которой не обращались дольше
+ * времени наполнения, полна и удаляется без потери состояния.
+ */
+@Component
+public class DeliveryRateLimiter {
+    private final boolean enabled;
+    private final NotificationProperties.RateLimit.Bucket userLimit;
+    private final TokenBucket global;
+    private final Cache<Long, TokenBucket> userBuckets;
+    private final Set<Long> backloggedUsers = ConcurrentHashMap.newKeySet();
+    private final NotificationMetrics notificationMetrics;
+
+    public DeliveryRateLimiter(NotificationProperties properties, NotificationMetrics notificationMetrics) {
+        NotificationProperties.RateLimit rateLimit = properties.getRateLimit();
+        this.enabled = rateLimit.isEnabled();
+        this.userLimit = rateLimit.getUser();
+        this.global = new TokenBucket(rateLimit.getGlobal().getPermitsPerSecond(), rateLimit.getGlobal().getBurst());
+        this.userBuckets = Caffeine.newBuilder()
+                .expireAfterAccess(new TokenBucket(userLimit.getPermitsPerSecond(), userLimit.getBurst()).refillTime())
+                .build();
+        this.notificationMetrics = notificationMetrics;
+        if (enabled) {
+            notificationMetrics.gaugeRateLimitAvailable(global::available);
+        }
+    }
+
+    /**
+     * Берёт маркер на одно сообщение пользователю. Если маркера нет в одной из корзин,
+     * не берёт ни одного и возвращает {@code false}.
+     */
+    public boolean tryAcquire(Long userId) {
+        if (!enabled) {
+            return true;
+        }
+        TokenBucket user = userBuckets.get(userId,
+                id -> new TokenBucket(userLimit.getPermitsPerSecond(), userLimit.getBurst()));
+        if (!user.tryAcquire()) {
+            notificationMetrics.rateLimitedByUser();
+            return false;
+        }
+        if (!global.tryAcquire()) {
+            user.refund();
+            notificationMetrics.rateLimitedGlobally();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Есть ли у пользователя сообщения, отложенные ограничением скорости и ещё не доставленные.
+     */
+    public boolean isBacklogged(Long userId) {
+        return !backloggedUsers.isEmpty() && backloggedUsers.contains(userId);
+    }
+
+    public void markBacklogged(Long userId) {
+        backloggedUsers.add(userId);
+    }
+
+    public void clearBacklog(Long userId) {
+        backloggedUsers.remove(userId);
+    }
+
+    @EventListener
+    public void onUserDisconnected(UserDisconnectedEvent event) {
+        clearBacklog(event.userId());
+    }
+}
@@ -0,0 +1,9 @@
+package com.example.notification_service.service;
+
+import com.example.notification_service.enums.DeliveryChannel;
+
+/**
+ * Запись журнала доставки: кому, какое событие, когда и каким способом было доставлено.
+ */
+public record DeliveryRecord(long userId, long eventId, long deliveredAtMillis, DeliveryChannel channel) {
+}
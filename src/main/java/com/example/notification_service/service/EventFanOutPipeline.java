@@ -0,0 +1,75 @@
+package com.example.notification_service.service;
+
+import com.example.notification_service.configuration.NotificationProperties;
+import com.example.notification_service.web_socket.service.PrivateNotificationService;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Асинхронная доставка опубликованных событий пользователям, подключённым к этому экземпляру.
+ * Публикацию сохранённых событий выполняет {@link EventOutbox}.
+ * <p>
+ * Очередь доставки ограничена {@code deliveryQueueCapacity}: когда потоки доставки не успевают, например
+ * из-за медленного брокера или клиентов, события доставляет поток, получивший уведомление. Пока он занят,
+ * уведомления копятся в Postgres, а не в памяти экземпляра.
+ */
+@Component
+public class EventFanOutPipeline {
+    private static final Logger logger = LoggerFactory.getLogger(EventFanOutPipeline.class);
+
+    private final PrivateNotificationService privateNotificationService;
+    private final ExecutorService deliveryExecutor;
+
+    public EventFanOutPipeline(PrivateNotificationService privateNotificationService,
+                               NotificationProperties properties,
+                               NotificationMetrics notificationMetrics) {
+        this.privateNotificationService = privateNotificationService;
+        NotificationProperties.Pipeline pipeline = properties.getPipeline();
+        this.deliveryExecutor = notificationMetrics.monitor(
+                new ThreadPoolExecutor(pipeline.getDeliveryThreads(), pipeline.getDeliveryThreads(), 0, TimeUnit.MILLISECONDS,
+                        new ArrayBlockingQueue<>(pipeline.getDeliveryQueueCapacity()), threadFactory("fan-out-deliver-"),
+                        new ThreadPoolExecutor.CallerRunsPolicy()),
+                "fan-out-deliver");
+    }
+
+    /**
+     * Передаёт опубликованные события на доставку пользователям этого экземпляра. Если очередь доставки
+     * заполнена, доставляет их сам и возвращается после доставки.
+     */
+    public void deliverRelayed(List<Long> eventIds) {
+        deliveryExecutor.execute(() -> deliver(eventIds));
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        deliveryExecutor.shutdown();
+        deliveryExecutor.awaitTermination(30, TimeUnit.SECONDS);
+    }
+
+    private void deliver(List<Long> eventIds) {
+        try {
+            privateNotificationService.deliverRelayedEvents(eventIds);
+        } catch (RuntimeException e) {
+            logger.error("Ошибка при рассылке событий {}", eventIds, e);
+        }
+    }
+
+    private static ThreadFactory threadFactory(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
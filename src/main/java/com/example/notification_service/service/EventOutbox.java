@@ -0,0 +1,252 @@
+package com.example.notification_service.service;
+
+import com.example.notification_service.configuration.NotificationProperties;
+import com.example.notification_service.entity.Event;
+import com.example.notification_service.exception.NotificationPipelineSaturatedException;
+import com.example.notification_service.repository.EventOutboxRepository;
+import com.example.notification_service.repository.EventRepository;
+import com.example.notification_service.web_socket.service.PrivateNotificationService;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.OptionalInt;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Публикация сохранённых событий через таблицу {@code event_outbox}.
+ * <p>
+ * Строка outbox записывается в одной транзакции с событием, поэтому принятое событие будет опубликовано,
+ * даже если экземпляр остановится до публикации. Исполнители захватывают пачки строк на время аренды,
+ * пропуская захваченные другими экземплярами, публикуют события и удаляют опубликованные строки.
+ * Повторная публикация после истечения аренды не приводит к повторной доставке: номер в ленте
+ * сохраняется, а слушатели пропускают уже полученные номера.
+ * <p>
+ * Ёмкость outbox соблюдается счётчиком неопубликованных событий в базе данных: транзакция, добавившая
+ * события, увеличивает его непосредственно перед фиксацией, см. {@link EventOutboxRepository#reserve}.
+ * Строка счётчика блокируется только на время фиксации, и транзакции разных экземпляров выполняются
+ * параллельно. Число неопубликованных событий для проверки до сохранения и для метрики хранится в памяти:
+ * исполнители перечитывают его не чаще периода опроса, а между перечитываниями оно учитывает события
+ * этого экземпляра.
+ */
+@Component
+public class EventOutbox {
+    private static final Logger logger = LoggerFactory.getLogger(EventOutbox.class);
+
+    private final EventOutboxRepository eventOutboxRepository;
+    private final EventRepository eventRepository;
+    private final PrivateNotificationService privateNotificationService;
+    private final NearCache nearCache;
+    private final NotificationProperties.Outbox properties;
+    private final ExecutorService workers;
+    private final UUID owner = UUID.randomUUID();
+    private final Object signal = new Object();
+    private final AtomicInteger pending = new AtomicInteger();
+    private final AtomicLong pendingCountedAt;
+
+    private volatile boolean running;
+    private boolean signalled;
+
+    public EventOutbox(EventOutboxRepository eventOutboxRepository,
+                       EventRepository eventRepository,
+                       PrivateNotificationService privateNotificationService,
+                       NearCache nearCache,
+                       NotificationProperties properties,
+                       NotificationMetrics notificationMetrics) {
+        this.eventOutboxRepository = eventOutboxRepository;
+        this.eventRepository = eventRepository;
+        this.privateNotificationService = privateNotificationService;
+        this.nearCache = nearCache;
+        this.properties = properties.getOutbox();
+        this.workers = notificationMetrics.monitor(
+                Executors.newFixedThreadPool(this.properties.getWorkers(), threadFactory()), "event-outbox");
+        this.pendingCountedAt = new AtomicLong(System.nanoTime() - this.properties.getPollInterval().toNanos());
+        notificationMetrics.gaugeOutboxPending(pending::get);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        running = true;
+        for (int i = 0; i < properties.getWorkers(); i++) {
+            workers.execute(this::work);
+        }
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        wakeUp();
+        workers.shutdown();
+        workers.awaitTermination(30, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Проверяет без запроса к базе данных, что в outbox есть место для нового события.
+     */
+    public void checkCapacity() {
+        checkCapacity(1);
+    }
+
+    /**
+     * Проверяет без запроса к базе данных, что в outbox есть место для {@code events} новых событий,
+     * чтобы не сохранять события, которые будут отклонены. Окончательно ёмкость проверяется при добавлении.
+     */
+    public void checkCapacity(int events) {
+        if (pending.get() + events > properties.getCapacity()) {
+            throw new NotificationPipelineSaturatedException();
+        }
+    }
+
+    /**
+     * Добавляет событие в outbox в текущей транзакции. Исполнители будут разбужены после её фиксации.
+     */
+    public void add(Event event) {
+        addAll(List.of(event));
+    }
+
+    /**
+     * Добавляет события в outbox одним запросом в текущей транзакции. Место для них занимается перед
+     * фиксацией транзакции; если места для всех событий нет, фиксация завершается исключением,
+     * и транзакция откатывается вместе с событиями. Исполнители будут разбужены после фиксации.
+     */
+    public void addAll(List<Event> events) {
+        List<Long> eventIds = events.stream().map(Event::getId).toList();
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            reserve(eventIds.size());
+            eventOutboxRepository.add(eventIds);
+            wakeUp();
+            return;
+        }
+        eventOutboxRepository.add(eventIds);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                reserve(eventIds.size());
+            }
+
+            @Override
+            public void afterCommit() {
+                wakeUp();
+            }
+        });
+    }
+
+    private void reserve(int events) {
+        OptionalInt reserved = eventOutboxRepository.reserve(events, properties.getCapacity());
+        if (reserved.isEmpty()) {
+            pending.set(properties.getCapacity());
+            throw new NotificationPipelineSaturatedException();
+        }
+        pending.set(reserved.getAsInt());
+    }
+
+    /**
+     * Публикует одну пачку событий из outbox. Возвращает число захваченных событий.
+     * События одной минуты публикуются вместе, см. {@link PrivateNotificationService#publishEvents(List)}.
+     * События, которые не удалось опубликовать, остаются в outbox и будут опубликованы повторно
+     * после истечения аренды.
+     */
+    int publishBatch() {
+        List<Long> claimed = eventOutboxRepository.claim(owner, properties.getLease(), properties.getBatchSize());
+        if (claimed.isEmpty()) {
+            return 0;
+        }
+
+        List<Event> events = new ArrayList<>(eventRepository.findAllById(claimed));
+        events.sort(Comparator.comparing(Event::getId));
+        List<Long> published = new ArrayList<>(claimed.size());
+        for (List<Event> sameMinute : PrivateNotificationService.groupByMinute(events)) {
+            try {
+                privateNotificationService.publishEvents(sameMinute);
+                for (Event event : sameMinute) {
+                    nearCache.putEvent(event);
+                    published.add(event.getId());
+                }
+            } catch (RuntimeException e) {
+                logger.error("Ошибка при публикации событий {}",
+                        sameMinute.stream().map(Event::getId).toList(), e);
+            }
+        }
+        if (!published.isEmpty()) {
+            eventOutboxRepository.complete(published, owner);
+            pending.accumulateAndGet(published.size(), (current, removed) -> Math.max(0, current - removed));
+        }
+        return claimed.size();
+    }
+
+    /**
+     * Перечитывает число неопубликованных событий, если с прошлого чтения прошёл период опроса.
+     * Перечитывает один исполнитель, остальные пропускают.
+     */
+    void countPending() {
+        long now = System.nanoTime();
+        long countedAt = pendingCountedAt.get();
+        if (now - countedAt < properties.getPollInterval().toNanos()
+                || !pendingCountedAt.compareAndSet(countedAt, now)) {
+            return;
+        }
+        pending.set(eventOutboxRepository.countPending());
+    }
+
+    private void work() {
+        while (running) {
+            int claimed;
+            try {
+                claimed = publishBatch();
+                countPending();
+            } catch (RuntimeException e) {
+                logger.error("Ошибка при обработке outbox событий", e);
+                claimed = 0;
+            }
+            if (claimed < properties.getBatchSize()) {
+                awaitSignal(properties.getPollInterval());
+            }
+        }
+    }
+
+    private void wakeUp() {
+        synchronized (signal) {
+            signalled = true;
+            signal.notifyAll();
+        }
+    }
+
+    private void awaitSignal(Duration timeout) {
+        synchronized (signal) {
+            try {
+                if (!signalled && running) {
+                    signal.wait(timeout.toMillis());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                running = false;
+            } finally {
+                signalled = false;
+            }
+        }
+    }
+
+    private static ThreadFactory threadFactory() {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "event-outbox-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.notification_service.service;
+
+import com.example.notification_service.entity.Event;
+import com.example.notification_service.repository.EventRepository;
+import com.example.notification_service.repository.UserEventRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Публикация событий для всех экземпляров сервиса через {@code LISTEN/NOTIFY} Postgres.
+ * <p>
+ * В одной транзакции событиям назначаются номера в ленте рассылки, активным пользователям,
+ * не подключённым ни к одному экземпляру, события ставятся в очередь, и отправляются уведомления
+ * с идентификаторами и номерами событий. Postgres доставляет уведомления после фиксации в порядке
+ * фиксации транзакций; каждый экземпляр доставляет события своим пользователям (см. {@link EventRelayListener}).
+ */
+@Component
+@RequiredArgsConstructor
+public class EventRelay {
+    public static final String CHANNEL = "notification_events";
+    /**
+     * Предельная длина уведомления; Postgres ограничивает её 8000 байтами.
+     */
+    static final int MAX_PAYLOAD_LENGTH = 7_900;
+
+    private final EventRepository eventRepository;
+    private final UserEventRepository userEventRepository;
+
+    /**
+     * Публикует события с общим множеством активных пользователей.
+     * Возвращает число строк, поставленных в очереди неподключённых пользователей.
+     */
+    @Transactional
+    public int publish(List<Event> events, Collection<Long> activeUserIds) {
+        List<Long> eventIds = events.stream().map(Event::getId).toList();
+        Map<Long, Long> deliverySeqs = eventRepository.assignDeliverySeqs(eventIds);
+        for (Event event : events) {
+            event.setDeliverySeq(deliverySeqs.get(event.getId()));
+        }
+        int enqueued = activeUserIds.isEmpty() ? 0
+                : userEventRepository.enqueueForDisconnectedUsers(eventIds, activeUserIds);
+        for (String payload : payloads(events)) {
+            eventRepository.publishNotification(CHANNEL, payload);
+        }
+        return enqueued;
+    }
+
+    /**
+     * Уведомления вида {@code <идентификатор>:<номер>,<идентификатор>:<номер>...} в порядке номеров,
+     * каждое не длиннее {@link #MAX_PAYLOAD_LENGTH}.
+     */
+    static List<String> payloads(List<Event> events) {
+        List<String> payloads = new ArrayList<>();
+        StringBuilder payload = new StringBuilder();
+        events.stream()
+                .sorted(Comparator.comparing(Event::getDeliverySeq))
+                .map(event -> event.getId() + ":" + event.getDeliverySeq())
+                .forEach(entry -> {
+                    if (!payload.isEmpty() && payload.length() + 1 + entry.length() > MAX_PAYLOAD_LENGTH) {
+                        payloads.add(payload.toString());
+                        payload.setLength(0);
+                    }
+                    if (!payload.isEmpty()) {
+                        payload.append(',');
+                    }
+                    payload.append(entry);
+                });
+        if (!payload.isEmpty()) {
+            payloads.add(payload.toString());
+        }
+        return payloads;
+    }
+
+    /**
+     * Разбирает уведомление вида {@code <идентификатор>:<номер>[,<идентификатор>:<номер>...]}.
+     *
+     * @throws IllegalArgumentException если уведомление имеет другой формат
+     */
+    static List<RelayedEvent> parse(String payload) {
+        List<RelayedEvent> events = new ArrayList<>();
+        for (String entry : payload.split(",")) {
+            int separator = entry.indexOf(':');
+            if (separator < 0) {
+                throw new IllegalArgumentException("Некорректное уведомление о событии: " + payload);
+            }
+            events.add(new RelayedEvent(Long.valueOf(entry.substring(0, separator)),
+                    Long.parseLong(entry.substring(separator + 1))));
+        }
+        return events;
+    }
+
+    record RelayedEvent(Long eventId, long deliverySeq) {
+    }
+}
@@ -0,0 +1,165 @@
+package com.example.notification_service.service;
+
+import com.example.notification_service.repository.EventRepository;
+import com.example.notification_service.repository.RelayNode;
+import com.example.notification_service.repository.SequencedEvent;
+import com.example.notification_service.web_socket.service.LiveSessionRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Приём опубликованных событий на выделенном соединении с Postgres.
+ * <p>
+ * События каждого уведомления передаются на доставку пользователям, подключённым к этому экземпляру;
+ * уведомления об изменении событий и пользователей удаляют их из кэша этого экземпляра, а уведомления
+ * об изменении пользователей ещё и обновляют их расписания в памяти (см. {@link UserScheduleSync}).
+ * Соединение, на котором выполнен {@code LISTEN}, определяет экземпляр в таблице подключённых
+ * пользователей. После разрыва соединения слушатель подключается заново, перерегистрирует
+ * подключённых пользователей, очищает кэш, загружает расписания заново и доставляет события,
+ * опубликованные за время разрыва.
+ */
+@Component
+@RequiredArgsConstructor
+public class EventRelayListener {
+    private static final Logger logger = LoggerFactory.getLogger(EventRelayListener.class);
+    private static final int POLL_TIMEOUT_MILLIS = 1_000;
+    private static final long RECONNECT_DELAY_MILLIS = 5_000;
+    private static final String ATTACH = """
+            SELECT a.pid, a.backend_start,
+                   (SELECT coalesce(max(delivery_seq), 0) FROM notification_service.events)
+            FROM pg_stat_activity a
+            WHERE a.pid = pg_backend_pid()
+            """;
+
+    private final DataSource dataSource;
+    private final EventFanOutPipeline eventFanOutPipeline;
+    private final LiveSessionRegistry liveSessionRegistry;
+    private final EventRepository eventRepository;
+    private final NearCache nearCache;
+    private final UserScheduleSync userScheduleSync;
+
+    private volatile boolean running;
+    private Thread thread;
+    private long lastDeliverySeq = -1;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        running = true;
+        thread = new Thread(this::listen, "event-relay");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        if (thread != null) {
+            thread.join(2L * POLL_TIMEOUT_MILLIS);
+        }
+    }
+
+    private void listen() {
+        while (running) {
+            try (Connection connection = dataSource.getConnection()) {
+                attach(connection);
+                PGConnection listener = connection.unwrap(PGConnection.class);
+                while (running) {
+                    PGNotification[] notifications = listener.getNotifications(POLL_TIMEOUT_MILLIS);
+                    if (notifications != null) {
+                        for (PGNotification notification : notifications) {
+                            dispatch(notification);
+                        }
+                    }
+                }
+            } catch (SQLException | RuntimeException e) {
+                if (running) {
+                    logger.error("Ошибка соединения для приёма событий, повторное подключение через {} мс",
+                            RECONNECT_DELAY_MILLIS, e);
+                    pause();
+                }
+            } finally {
+                liveSessionRegistry.detach();
+            }
+        }
+    }
+
+    private void attach(Connection connection) throws SQLException {
+        long latestDeliverySeq;
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("LISTEN " + EventRelay.CHANNEL);
+            statement.execute("LISTEN " + NearCache.CHANNEL);
+            statement.execute("LISTEN " + UserScheduleSync.CHANNEL);
+            try (ResultSet resultSet = statement.executeQuery(ATTACH)) {
+                resultSet.next();
+                liveSessionRegistry.attach(new RelayNode(resultSet.getInt(1), resultSet.getObject(2, OffsetDateTime.class)));
+                latestDeliverySeq = resultSet.getLong(3);
+            }
+        }
+
+        if (lastDeliverySeq < 0) {
+            lastDeliverySeq = latestDeliverySeq;
+            return;
+        }
+        nearCache.clear();
+        userScheduleSync.reloadAll();
+        List<Long> missedEventIds = new ArrayList<>();
+        for (SequencedEvent missed : eventRepository.findSequencedSummariesAfter(lastDeliverySeq)) {
+            missedEventIds.add(missed.id());
+            lastDeliverySeq = missed.deliverySeq();
+        }
+        if (!missedEventIds.isEmpty()) {
+            eventFanOutPipeline.deliverRelayed(missedEventIds);
+        }
+    }
+
+    private void dispatch(PGNotification notification) {
+        if (NearCache.CHANNEL.equals(notification.getName())) {
+            nearCache.onNotification(notification.getParameter());
+        } else if (UserScheduleSync.CHANNEL.equals(notification.getName())) {
+            userScheduleSync.onNotification(notification.getParameter());
+        } else {
+            relay(notification.getParameter());
+        }
+    }
+
+    void relay(String payload) {
+        try {
+            List<Long> eventIds = new ArrayList<>();
+            for (EventRelay.RelayedEvent event : EventRelay.parse(payload)) {
+                if (event.deliverySeq() > lastDeliverySeq) {
+                    lastDeliverySeq = event.deliverySeq();
+                    eventIds.add(event.eventId());
+                }
+            }
+            if (!eventIds.isEmpty()) {
+                eventFanOutPipeline.deliverRelayed(eventIds);
+            }
+        } catch (IllegalArgumentException e) {
+            logger.warn("Пропущено уведомление о событии: {}", payload, e);
+        }
+    }
+
+    private static void pause() {
+        try {
+            Thread.sleep(RECONNECT_DELAY_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -2,24 +2,99 @@ package com.example.notification_service.service;
 
 import com.example.notification_service.entity.Event;
 import com.example.notification_service.repository.EventRepository;
-import com.example.notification_service.web_socket.service.PrivateNotificationService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
 public class EventService {
     private final EventRepository eventRepository;
-    private final PrivateNotificationService privateNotificationService;
+    private final EventOutbox eventOutbox;
+    private final NotificationMetrics notificationMetrics;
+    private final NearCache nearCache;
+
+    /**
+     * Все события по возрастанию идентификатора.
+     */
+    public List<Event> findAll() {
+        return eventRepository.findAll(Sort.by("id"));
+    }
+
+    /**
+     * Страница событий с идентификатором больше {@code afterId} по возрастанию идентификатора.
+     */
+    public List<Event> findPage(long afterId, int limit) {
+        return eventRepository.findByIdGreaterThanOrderById(afterId, Limit.of(limit));
+    }
+
+    /**
+     * Обходит все события по возрастанию идентификатора, не накапливая их в памяти.
+     */
+    @Transactional(readOnly = true)
+    public void forEachEvent(Consumer<Event> action) {
+        try (Stream<Event> events = eventRepository.streamAll()) {
+            events.forEach(action);
+        }
+    }
 
     @Transactional
     public Event createEvent(Event event) {
+        return notificationMetrics.createEventTimer().record(() -> saveAndSubmit(event));
+    }
+
+    private Event saveAndSubmit(Event event) {
+        eventOutbox.checkCapacity();
         event.setOccurredAt(ZonedDateTime.now());
-        Event saved = eventRepository.save(event);
-        privateNotificationService.sendEvent(saved);
+        Event saved = eventRepository.saveAndFlush(event);
+        eventOutbox.add(saved);
         return event;
     }
+
+    /**
+     * Сохраняет события одним запросом в одной транзакции и ставит их на рассылку.
+     * Все события получают один момент создания и публикуются вместе.
+     */
+    @Transactional
+    public List<Event> createEvents(List<Event> events) {
+        return notificationMetrics.createEventTimer().record(() -> saveAndSubmitAll(events));
+    }
+
+    private List<Event> saveAndSubmitAll(List<Event> events) {
+        if (events.isEmpty()) {
+            return events;
+        }
+        eventOutbox.checkCapacity(events.size());
+        ZonedDateTime occurredAt = ZonedDateTime.now();
+        List<Long> ids = eventRepository.allocateIds(events.size());
+        for (int i = 0; i < events.size(); i++) {
+            events.get(i).setId(ids.get(i));
+            events.get(i).setOccurredAt(occurredAt);
+        }
+        eventRepository.insertAll(events);
+        eventOutbox.addAll(events);
+        return events;
+    }
+
+    public Event updateEvent(Event event) {
+        Event saved = eventRepository.save(event);
+        nearCache.evictEvent(saved.getId());
+        return saved;
+    }
+
+    /**
+     * Удаляет событие вместе с его очередью доставки.
+     */
+    public void deleteEvent(Long id) {
+        eventRepository.deleteById(id);
+        nearCache.evictEvent(id);
+        notificationMetrics.pendingEventRemoved(id);
+    }
 }
@@ -0,0 +1,160 @@
+package com.example.notification_service.service;
+
+import com.example.notification_service.configuration.NotificationProperties;
+import com.example.notification_service.entity.Event;
+import com.example.notification_service.entity.User;
+import com.example.notification_service.repository.EventRepository;
+import com.example.notification_service.repository.UserRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Кэш событий и пользователей для рассылки и доставки очередей.
+ * <p>
+ * После рассылки события ленту читают все пользователи, поэтому содержимое событий и пользователи
+ * берутся из кэша, а из базы данных читаются только отсутствующие записи. При изменении или удалении
+ * запись удаляется из кэша этого экземпляра, остальным экземплярам отправляется уведомление
+ * {@code NOTIFY notification_cache} (см. {@link EventRelayListener}).
+ */
+@Component
+public class NearCache {
+    public static final String CHANNEL = "notification_cache";
+    private static final Logger logger = LoggerFactory.getLogger(NearCache.class);
+    private static final String EVENT = "event:";
+    private static final String USER = "user:";
+    private static final int ID_BATCH_SIZE = 1_000;
+
+    private final EventRepository eventRepository;
+    private final UserRepository userRepository;
+    private final Cache<Long, Event> events;
+    private final Cache<Long, User> users;
+
+    public NearCache(EventRepository eventRepository,
+                     UserRepository userRepository,
+                     NotificationProperties properties,
+                     NotificationMetrics notificationMetrics) {
+        this.eventRepository = eventRepository;
+        this.userRepository = userRepository;
+        this.events = notificationMetrics.monitor(build(properties.getCache().getEvents()), "events");
+        this.users = notificationMetrics.monitor(build(properties.getCache().getUsers()), "users");
+    }
+
+    public Optional<Event> findEvent(Long id) {
+        return Optional.ofNullable(events.get(id, key -> eventRepository.findById(key).orElse(null)));
+    }
+
+    /**
+     * Возвращает найденные события в порядке идентификаторов.
+     */
+    public List<Event> findEvents(Collection<Long> ids) {
+        return findAll(events, eventRepository, Event::getId, ids);
+    }
+
+    /**
+     * Кладёт в кэш событие, которое уже опубликовано и получило номер в ленте.
+     */
+    public void putEvent(Event event) {
+        events.put(event.getId(), event);
+    }
+
+    public Optional<User> findUser(Long id) {
+        return Optional.ofNullable(users.get(id, key -> userRepository.findById(key).orElse(null)));
+    }
+
+    /**
+     * Возвращает найденных пользователей в порядке идентификаторов.
+     */
+    public List<User> findUsers(Collection<Long> ids) {
+        return findAll(users, userRepository, User::getId, ids);
+    }
+
+    public void evictEvent(Long id) {
+        events.invalidate(id);
+        publish(EVENT + id);
+    }
+
+    public void evictUser(Long id) {
+        users.invalidate(id);
+        publish(USER + id);
+    }
+
+    /**
+     * Очищает кэш. Вызывается, когда уведомления об изменениях могли быть пропущены.
+     */
+    public void clear() {
+        events.invalidateAll();
+        users.invalidateAll();
+    }
+
+    /**
+     * Применяет уведомление об изменении, полученное от любого экземпляра.
+     */
+    void onNotification(String payload) {
+        try {
+            if (payload.startsWith(EVENT)) {
+                events.invalidate(Long.valueOf(payload.substring(EVENT.length())));
+            } else if (payload.startsWith(USER)) {
+                users.invalidate(Long.valueOf(payload.substring(USER.length())));
+            } else {
+                logger.warn("Пропущено уведомление об изменении: {}", payload);
+            }
+        } catch (NumberFormatException e) {
+            logger.warn("Пропущено уведомление об изменении: {}", payload, e);
+        }
+    }
+
+    private void publish(String payload) {
+        try {
+            eventRepository.publishNotification(CHANNEL, payload);
+        } catch (DataAccessException e) {
+            logger.error("Не удалось уведомить экземпляры об изменении {}", payload, e);
+        }
+    }
+
+    private static <V> List<V> findAll(Cache<Long, V> cache, JpaRepository<V, Long> repository,
+                                       Function<V, Long> id, Collection<Long> ids) {
+        Map<Long, V> found = cache.getAll(ids, missing -> load(repository, id, missing));
+        List<V> result = new ArrayList<>(found.size());
+        for (Long key : ids) {
+            V value = found.get(key);
+            if (value != null) {
+                result.add(value);
+            }
+        }
+        return result;
+    }
+
+    private static <V> Map<Long, V> load(JpaRepository<V, Long> repository, Function<V, Long> id,
+                                         Set<? extends Long> missing) {
+        List<Long> ids = List.copyOf(missing);
+        Map<Long, V> loaded = new HashMap<>(ids.size());
+        for (int from = 0; from < ids.size(); from += ID_BATCH_SIZE) {
+            for (V value : repository.findAllById(ids.subList(from, Math.min(from + ID_BATCH_SIZE, ids.size())))) {
+                loaded.put(id.apply(value), value);
+            }
+        }
+        return loaded;
+    }
+
+    private static <K, V> Cache<K, V> build(NotificationProperties.Cache.Entry entry) {
+        return Caffeine.newBuilder()
+                .maximumSize(entry.getMaximumSize())
+                .expireAfterWrite(entry.getTtl())
+                .recordStats()
+                .build();
+    }
+}
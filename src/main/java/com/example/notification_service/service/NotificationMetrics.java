@@ -0,0 +1,247 @@
+package com.example.notification_service.service;
+
+import com.example.notification_service.repository.PendingEventCount;
+import com.github.benmanes.caffeine.cache.Cache;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntSupplier;
+import java.util.function.LongSupplier;
+
+/**
+ * Метрики рассылки событий.
+ * <p>
+ * Число недоставленных сообщений и возраст самого старого недоставленного события
+ * поддерживаются инкрементально по результатам рассылки и доставки:
+ * для каждого события хранится число получателей, которым оно ещё не доставлено, события упорядочены по времени.
+ */
+@Component
+public class NotificationMetrics {
+    private final MeterRegistry registry;
+
+    private final Timer createEventTimer;
+    private final Timer resolveRecipientsTimer;
+    private final Timer deliverEventTimer;
+    private final Timer drainTimer;
+    private final Timer schedulerTickTimer;
+    private final Counter liveDeliveries;
+    private final Counter queuedDeliveries;
+    private final Counter enqueued;
+    private final Counter auditDropped;
+    private final Counter rateLimitedByUser;
+    private final Counter rateLimitedGlobally;
+
+    private final AtomicLong pendingDepth = new AtomicLong();
+    private final Map<Long, PendingEvent> pendingByEventId = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListSet<PendingEvent> pendingByAge = new ConcurrentSkipListSet<>(
+            Comparator.comparing(PendingEvent::occurredAt).thenComparingLong(PendingEvent::eventId));
+
+    public NotificationMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        this.createEventTimer = Timer.builder("notification.event.create")
+                .description("Сохранение события и постановка на рассылку")
+                .register(registry);
+        this.resolveRecipientsTimer = Timer.builder("notification.event.fanout")
+                .tag("stage", "resolve")
+                .description("Публикация события: поиск активных получателей и постановка в очередь неподключённых")
+                .register(registry);
+        this.deliverEventTimer = Timer.builder("notification.event.fanout")
+                .tag("stage", "deliver")
+                .description("Доставка события получателям, подключённым к экземпляру")
+                .register(registry);
+        this.drainTimer = Timer.builder("notification.queue.drain")
+                .description("Доставка накопленных событий одному пользователю")
+                .register(registry);
+        this.schedulerTickTimer = Timer.builder("notification.scheduler.tick")
+                .description("Обработка пользователей, у которых начался период информирования")
+                .register(registry);
+        this.liveDeliveries = Counter.builder("notification.deliveries")
+                .tag("mode", "live")
+                .description("Сообщения, доставленные в момент создания события")
+                .register(registry);
+        this.queuedDeliveries = Counter.builder("notification.deliveries")
+                .tag("mode", "queued")
+                .description("Сообщения, доставленные из очереди")
+                .register(registry);
+        this.enqueued = Counter.builder("notification.queue.enqueued")
+                .description("Сообщения, отложенные до периода информирования получателя")
+                .register(registry);
+        this.auditDropped = Counter.builder("notification.audit.dropped")
+                .description("Записи журнала доставки, отброшенные из-за переполнения буфера")
+                .register(registry);
+        this.rateLimitedByUser = Counter.builder("notification.ratelimit.rejected")
+                .tag("scope", "user")
+                .description("Отправки, отложенные из-за ограничения скорости сообщений пользователю")
+                .register(registry);
+        this.rateLimitedGlobally = Counter.builder("notification.ratelimit.rejected")
+                .tag("scope", "global")
+                .description("Отправки, отложенные из-за ограничения скорости сообщений экземпляра")
+                .register(registry);
+
+        Gauge.builder("notification.queue.pending", pendingDepth, AtomicLong::get)
+                .description("Недоставленные сообщения в очереди user_events и в ленте после курсоров")
+                .register(registry);
+        TimeGauge.builder("notification.queue.oldest.age", this, TimeUnit.SECONDS,
+                        NotificationMetrics::oldestPendingAgeSeconds)
+                .description("Возраст самого старого недоставленного события")
+                .register(registry);
+    }
+
+    public Timer createEventTimer() {
+        return createEventTimer;
+    }
+
+    public Timer resolveRecipientsTimer() {
+        return resolveRecipientsTimer;
+    }
+
+    public Timer deliverEventTimer() {
+        return deliverEventTimer;
+    }
+
+    public Timer drainTimer() {
+        return drainTimer;
+    }
+
+    public Timer schedulerTickTimer() {
+        return schedulerTickTimer;
+    }
+
+    public void deliveredLive(int messages) {
+        liveDeliveries.increment(messages);
+    }
+
+    public void deliveredQueued(int messages) {
+        queuedDeliveries.increment(messages);
+    }
+
+    public void auditDropped() {
+        auditDropped.increment();
+    }
+
+    public void rateLimitedByUser() {
+        rateLimitedByUser.increment();
+    }
+
+    public void rateLimitedGlobally() {
+        rateLimitedGlobally.increment();
+    }
+
+    public ExecutorService monitor(ExecutorService executor, String name) {
+        return ExecutorServiceMetrics.monitor(registry, executor, name);
+    }
+
+    public <K, V> Cache<K, V> monitor(Cache<K, V> cache, String name) {
+        return CaffeineCacheMetrics.monitor(registry, cache, name);
+    }
+
+    public void gaugeOutboxPending(IntSupplier pending) {
+        Gauge.builder("notification.outbox.pending", pending, IntSupplier::getAsInt)
+                .description("Сохранённые и ещё не опубликованные события, не более ёмкости outbox")
+                .strongReference(true)
+                .register(registry);
+    }
+
+    public void gaugeAuditBuffered(IntSupplier buffered) {
+        Gauge.builder("notification.audit.buffered", buffered, IntSupplier::getAsInt)
+                .description("Записи журнала доставки, ожидающие записи в приёмник")
+                .strongReference(true)
+                .register(registry);
+    }
+
+    public void gaugeRateLimitAvailable(LongSupplier available) {
+        Gauge.builder("notification.ratelimit.available", available, LongSupplier::getAsLong)
+                .description("Маркеры в общей корзине ограничения скорости экземпляра")
+                .strongReference(true)
+                .register(registry);
+    }
+
+    /**
+     * Заменяет учтённое содержимое очереди снимком из базы данных.
+     * Несколько записей об одном событии суммируются.
+     */
+    public void loadPending(Collection<PendingEventCount> snapshot) {
+        pendingByEventId.clear();
+        pendingByAge.clear();
+        long depth = 0;
+        for (PendingEventCount count : snapshot) {
+            PendingEvent pending = pendingByEventId.computeIfAbsent(count.eventId(),
+                    id -> new PendingEvent(id, count.occurredAt(), new AtomicLong()));
+            pending.remaining().addAndGet(count.users());
+            pendingByAge.add(pending);
+            depth += count.users();
+        }
+        pendingDepth.set(depth);
+    }
+
+    public void pendingAdded(Long eventId, Instant occurredAt, int rows) {
+        if (rows <= 0) {
+            return;
+        }
+        enqueued.increment(rows);
+        pendingByEventId.compute(eventId, (id, pending) -> {
+            if (pending == null) {
+                pending = new PendingEvent(id, occurredAt, new AtomicLong());
+                pendingByAge.add(pending);
+            }
+            pending.remaining().addAndGet(rows);
+            pendingDepth.addAndGet(rows);
+            return pending;
+        });
+    }
+
+    /**
+     * Учитывает удаление из очереди по одной строке на каждый идентификатор события.
+     */
+    public void pendingRemoved(Collection<Long> eventIds) {
+        for (Long eventId : eventIds) {
+            pendingByEventId.computeIfPresent(eventId, (id, pending) -> {
+                pendingDepth.decrementAndGet();
+                if (pending.remaining().decrementAndGet() > 0) {
+                    return pending;
+                }
+                pendingByAge.remove(pending);
+                return null;
+            });
+        }
+    }
+
+    /**
+     * Учитывает удаление события вместе со всеми его строками в очереди.
+     */
+    public void pendingEventRemoved(Long eventId) {
+        pendingByEventId.computeIfPresent(eventId, (id, pending) -> {
+            pendingDepth.addAndGet(-pending.remaining().get());
+            pendingByAge.remove(pending);
+            return null;
+        });
+    }
+
+    private double oldestPendingAgeSeconds() {
+        Iterator<PendingEvent> byAge = pendingByAge.iterator();
+        if (!byAge.hasNext()) {
+            return 0;
+        }
+        return Math.max(0, Duration.between(byAge.next().occurredAt(), Instant.now()).toMillis() / 1000.0);
+    }
+
+    private record PendingEvent(long eventId, Instant occurredAt, AtomicLong remaining) {
+    }
+}
@@ -1,70 +1,121 @@
 package com.example.notification_service.service;
 
 import com.example.notification_service.entity.User;
+import com.example.notification_service.entity.UserScheduleWindow;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JavaType;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Component;
 
 import java.time.DayOfWeek;
 import java.time.LocalDateTime;
-import java.time.LocalTime;
-import java.util.HashMap;
+import java.util.EnumMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Component
 @RequiredArgsConstructor
 public class ScheduleHelper {
     private final ObjectMapper objectMapper = new ObjectMapper();
+    private final JavaType rawScheduleType = objectMapper.getTypeFactory()
+            .constructMapLikeType(Map.class, String.class, List.class);
+    private final JavaType scheduleType = objectMapper.getTypeFactory()
+            .constructMapLikeType(Map.class, DayOfWeek.class, List.class);
 
-    public void normalizeUserSchedule(User user) {
+    private final Map<Long, CompiledSchedule> compiledSchedules = new ConcurrentHashMap<>();
+    /**
+     * Скомпилированные расписания по исходному тексту. Битовые карты занимают несколько килобайт,
+     * поэтому пользователи с одинаковым расписанием разделяют один экземпляр, пока он кому-то нужен.
+     */
+    private final Cache<String, CompiledSchedule> compiledBySource = Caffeine.newBuilder().weakValues().build();
+
+    public CompiledSchedule normalizeUserSchedule(User user) {
         try {
-            Map<String, List<String>> schedule = objectMapper.readValue(
-                    user.getNotificationSchedule(),
-                    new ObjectMapper().getTypeFactory()
-                            .constructMapLikeType(Map.class, String.class, List.class)
-            );
+            Map<String, List<String>> schedule = objectMapper.readValue(user.getNotificationSchedule(), rawScheduleType);
 
-            Map<DayOfWeek, List<String>> normalizedSchedule = new HashMap<>(schedule.size());
+            Map<DayOfWeek, List<String>> normalizedSchedule = new EnumMap<>(DayOfWeek.class);
             for (var entry : schedule.entrySet()) {
                 DayOfWeek upperCaseDay = DayOfWeek.valueOf(entry.getKey().toUpperCase());
                 normalizedSchedule.put(upperCaseDay, entry.getValue());
             }
 
-            user.setNotificationSchedule(objectMapper.writeValueAsString(normalizedSchedule));
+            String normalized = objectMapper.writeValueAsString(normalizedSchedule);
+            CompiledSchedule compiled = compiledBySource.get(normalized,
+                    source -> CompiledSchedule.compile(source, normalizedSchedule));
+            user.setNotificationSchedule(normalized);
+            return compiled;
         } catch (Exception e) {
             throw new IllegalStateException("Ошибка при нормализации расписания", e);
         }
     }
 
-
     public boolean isUserActive(User user, LocalDateTime currentDateTime) {
-        DayOfWeek currentDay = currentDateTime.getDayOfWeek();
-        LocalTime currentTime = currentDateTime.toLocalTime();
+        return compiledSchedule(user).isActiveAt(currentDateTime);
+    }
 
-        try {
-            Map<DayOfWeek, List<String>> schedule = objectMapper.readValue(
-                    user.getNotificationSchedule(),
-                    new ObjectMapper().getTypeFactory()
-                            .constructMapLikeType(Map.class, DayOfWeek.class, List.class)
-            );
-
-            if (schedule == null || schedule.isEmpty()) {
-                return false;
+    public CompiledSchedule compiledSchedule(User user) {
+        return compiledSchedule(user.getId(), user.getNotificationSchedule());
+    }
+
+    public CompiledSchedule compiledSchedule(Long userId, String notificationSchedule) {
+        if (userId != null) {
+            CompiledSchedule cached = compiledSchedules.get(userId);
+            if (cached != null && cached.isCompiledFrom(notificationSchedule)) {
+                return cached;
             }
+        }
+
+        CompiledSchedule compiled = compile(notificationSchedule);
+        if (userId != null) {
+            compiledSchedules.put(userId, compiled);
+        }
+        return compiled;
+    }
+
+    public Optional<CompiledSchedule> cachedSchedule(Long userId) {
+        return userId == null ? Optional.empty() : Optional.ofNullable(compiledSchedules.get(userId));
+    }
 
-            List<String> intervals = schedule.getOrDefault(currentDay, List.of());
-            return intervals.stream()
-                    .anyMatch(interval -> isWithinInterval(interval, currentTime));
+    public void cacheSchedule(Long userId, CompiledSchedule schedule) {
+        if (userId != null && schedule != null) {
+            compiledSchedules.put(userId, schedule);
+        }
+    }
+
+    public void evictSchedule(Long userId) {
+        if (userId != null) {
+            compiledSchedules.remove(userId);
+        }
+    }
+
+    /**
+     * Строки таблицы периодов информирования пользователя по его скомпилированному расписанию.
+     */
+    public static List<UserScheduleWindow> windows(Long userId, CompiledSchedule schedule) {
+        return schedule.windows().stream()
+                .map(window -> new UserScheduleWindow(userId, window.fromMinute(), window.toMinute()))
+                .toList();
+    }
+
+    private CompiledSchedule compile(String notificationSchedule) {
+        try {
+            return compiledBySource.get(notificationSchedule, this::parseAndCompile);
         } catch (Exception e) {
             throw new IllegalStateException("Ошибка при проверке активности пользователя", e);
         }
     }
 
-    private boolean isWithinInterval(String intervalStr, LocalTime currentTime) {
-        String[] parts = intervalStr.split("-");
-        LocalTime startTime = LocalTime.parse(parts[0].trim());
-        LocalTime endTime = LocalTime.parse(parts[1].trim());
-        return !currentTime.isBefore(startTime) && !currentTime.isAfter(endTime);
+    private CompiledSchedule parseAndCompile(String notificationSchedule) {
+        try {
+            Map<DayOfWeek, List<String>> schedule = objectMapper.readValue(notificationSchedule, scheduleType);
+            return CompiledSchedule.compile(notificationSchedule, schedule);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException(e.getMessage(), e);
+        }
     }
 }
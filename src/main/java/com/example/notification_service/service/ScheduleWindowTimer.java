@@ -0,0 +1,87 @@
+package com.example.notification_service.service;
+
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Таймер начала периодов информирования: очередь с приоритетом по ближайшему
+ * моменту открытия окна каждого пользователя.
+ * Отменённые и перевзведённые записи удаляются из очереди лениво при извлечении.
+ */
+@Component
+public class ScheduleWindowTimer {
+    private final PriorityQueue<WindowOpening> queue =
+            new PriorityQueue<>((left, right) -> Long.compare(left.dueMinute(), right.dueMinute()));
+    private final Map<Long, WindowOpening> armed = new HashMap<>();
+
+    /**
+     * Взводит таймер пользователя. Если период информирования уже идёт,
+     * пользователь будет возвращён ближайшим вызовом {@link #pollDue(LocalDateTime)}.
+     */
+    public synchronized void arm(Long userId, CompiledSchedule schedule, LocalDateTime now) {
+        if (userId == null) {
+            return;
+        }
+        if (schedule.isActiveAt(now)) {
+            schedule(new WindowOpening(userId, epochMinute(now), schedule));
+        } else {
+            armNextOpening(userId, schedule, now);
+        }
+    }
+
+    public synchronized void cancel(Long userId) {
+        armed.remove(userId);
+    }
+
+    /**
+     * Извлекает пользователей, у которых к моменту {@code now} открылось окно,
+     * и взводит для них таймер на следующее открытие.
+     */
+    public synchronized List<Long> pollDue(LocalDateTime now) {
+        long currentMinute = epochMinute(now);
+        List<Long> due = new ArrayList<>();
+        List<WindowOpening> rearm = new ArrayList<>();
+
+        while (!queue.isEmpty() && queue.peek().dueMinute() <= currentMinute) {
+            WindowOpening opening = queue.poll();
+            if (armed.get(opening.userId()) != opening) {
+                continue;
+            }
+            due.add(opening.userId());
+            rearm.add(opening);
+        }
+
+        for (WindowOpening opening : rearm) {
+            armNextOpening(opening.userId(), opening.schedule(), now);
+        }
+        return due;
+    }
+
+    private void armNextOpening(Long userId, CompiledSchedule schedule, LocalDateTime now) {
+        int delay = schedule.minutesUntilNextOpening(CompiledSchedule.minuteOfWeek(now));
+        if (delay < 0) {
+            armed.remove(userId);
+            return;
+        }
+        schedule(new WindowOpening(userId, epochMinute(now) + delay, schedule));
+    }
+
+    private void schedule(WindowOpening opening) {
+        armed.put(opening.userId(), opening);
+        queue.add(opening);
+    }
+
+    private static long epochMinute(LocalDateTime dateTime) {
+        return dateTime.toEpochSecond(ZoneOffset.UTC) / 60;
+    }
+
+    private record WindowOpening(Long userId, long dueMinute, CompiledSchedule schedule) {
+    }
+}
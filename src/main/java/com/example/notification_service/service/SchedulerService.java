@@ -1,22 +1,43 @@
 package com.example.notification_service.service;
 
-import com.example.notification_service.entity.User;
-import com.example.notification_service.web_socket.service.PrivateNotificationService;
+import com.example.notification_service.web_socket.service.LiveSessionRegistry;
 import lombok.RequiredArgsConstructor;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Service
 @RequiredArgsConstructor
 public class SchedulerService {
     private final UserService userService;
-    private final PrivateNotificationService privateNotificationService;
+    private final UserScheduleSync userScheduleSync;
+    private final ScheduleWindowTimer scheduleWindowTimer;
+    private final UserQueueDrainer userQueueDrainer;
+    private final NotificationMetrics notificationMetrics;
+    private final LiveSessionRegistry liveSessionRegistry;
 
-    @Scheduled(initialDelay = 1, fixedRate = 1_000 * 60 * 10)
+    @EventListener(ApplicationReadyEvent.class)
+    public void armScheduleWindows() {
+        userScheduleSync.reloadAll();
+    }
+
+    @Scheduled(cron = "0 * * * * *")
     public void sendWaitEvents() {
-        List<User> activeUsers = userService.findActiveUsers();
-        activeUsers.parallelStream().forEach(privateNotificationService::processUserEvents);
+        notificationMetrics.schedulerTickTimer().record(this::drainOpenedWindows);
+    }
+
+    private void drainOpenedWindows() {
+        List<Long> openedUserIds = scheduleWindowTimer.pollDue(LocalDateTime.now()).stream()
+                .filter(liveSessionRegistry::isConnected)
+                .toList();
+        if (openedUserIds.isEmpty()) {
+            return;
+        }
+
+        userQueueDrainer.drain(userService.findAllById(openedUserIds));
     }
 }
@@ -0,0 +1,69 @@
+package com.example.notification_service.service;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Корзина маркеров без блокировок.
+ * <p>
+ * Вместо числа маркеров хранится момент, к которому корзина снова наполнится. Взятие маркера сдвигает
+ * этот момент на интервал между маркерами; маркер есть, пока момент отстоит от текущего времени не больше,
+ * чем время наполнения пустой корзины. Момент меняется сравнением с обменом, поэтому потоки
+ * не блокируют друг друга, а корзина занимает одно число.
+ */
+public final class TokenBucket {
+    private final long intervalNanos;
+    private final long capacityNanos;
+    private final LongSupplier nanoClock;
+    private final AtomicLong fullAt;
+
+    public TokenBucket(int permitsPerSecond, int burst) {
+        this(permitsPerSecond, burst, System::nanoTime);
+    }
+
+    TokenBucket(int permitsPerSecond, int burst, LongSupplier nanoClock) {
+        if (permitsPerSecond <= 0 || burst <= 0) {
+            throw new IllegalArgumentException("Скорость и ёмкость корзины должны быть положительными: "
+                    + permitsPerSecond + ", " + burst);
+        }
+        this.intervalNanos = Math.max(1, TimeUnit.SECONDS.toNanos(1) / permitsPerSecond);
+        this.capacityNanos = intervalNanos * burst;
+        this.nanoClock = nanoClock;
+        this.fullAt = new AtomicLong(nanoClock.getAsLong());
+    }
+
+    public boolean tryAcquire() {
+        while (true) {
+            long now = nanoClock.getAsLong();
+            long current = fullAt.get();
+            long next = (current - now > 0 ? current : now) + intervalNanos;
+            if (next - now > capacityNanos) {
+                return false;
+            }
+            if (fullAt.compareAndSet(current, next)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Возвращает маркер, взятый для сообщения, которое не было отправлено.
+     */
+    public void refund() {
+        fullAt.addAndGet(-intervalNanos);
+    }
+
+    public long available() {
+        long untilFull = fullAt.get() - nanoClock.getAsLong();
+        return (capacityNanos - Math.max(0, untilFull)) / intervalNanos;
+    }
+
+    /**
+     * Время наполнения пустой корзины. Корзина, к которой не обращались дольше, полна.
+     */
+    public Duration refillTime() {
+        return Duration.ofNanos(capacityNanos);
+    }
+}
@@ -0,0 +1,225 @@
+package com.example.notification_service.service;
+
+import com.example.notification_service.configuration.NotificationProperties;
+import com.example.notification_service.dto.UserImportResult;
+import com.example.notification_service.entity.User;
+import com.example.notification_service.entity.UserScheduleWindow;
+import com.example.notification_service.repository.UserRepository;
+import com.example.notification_service.repository.UserScheduleWindowRepository;
+import com.fasterxml.jackson.databind.RuntimeJsonMappingException;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Массовое создание пользователей.
+ * <p>
+ * Записи читаются пачками по {@code batchSize}. Расписания пачки нормализуются и проверяются параллельно
+ * на выделенных потоках ({@code normalizeThreads}, общие для всех импортов),
+ * идентификаторы выделяются блоками последовательности, пользователи, их периоды информирования
+ * и курсоры вставляются одним запросом на пачку. Вставки пачки выполняются в одной транзакции, поэтому
+ * пользователь не остаётся без периодов информирования или курсора. Затем, как и при создании одного
+ * пользователя, взводятся таймеры и пополняется индекс активных пользователей на всех экземплярах.
+ * Импорт в целом не атомарен: записи с ошибками отклоняются, остальные создаются.
+ */
+@Component
+public class UserImporter {
+    private static final Logger logger = LoggerFactory.getLogger(UserImporter.class);
+    private static final int MAX_REPORTED_ERRORS = 100;
+
+    private final UserRepository userRepository;
+    private final UserScheduleWindowRepository userScheduleWindowRepository;
+    private final ScheduleHelper scheduleHelper;
+    private final UserScheduleSync userScheduleSync;
+    private final DeliveryCursorService deliveryCursorService;
+    private final TransactionTemplate transactionTemplate;
+    private final ExecutorService normalizeExecutor;
+    private final int batchSize;
+    private final int normalizeThreads;
+
+    public UserImporter(UserRepository userRepository,
+                        UserScheduleWindowRepository userScheduleWindowRepository,
+                        ScheduleHelper scheduleHelper,
+                        UserScheduleSync userScheduleSync,
+                        DeliveryCursorService deliveryCursorService,
+                        PlatformTransactionManager transactionManager,
+                        NotificationProperties properties,
+                        NotificationMetrics notificationMetrics) {
+        this.userRepository = userRepository;
+        this.userScheduleWindowRepository = userScheduleWindowRepository;
+        this.scheduleHelper = scheduleHelper;
+        this.userScheduleSync = userScheduleSync;
+        this.deliveryCursorService = deliveryCursorService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = properties.getUserImport().getBatchSize();
+        this.normalizeThreads = properties.getUserImport().getNormalizeThreads();
+        AtomicInteger counter = new AtomicInteger();
+        this.normalizeExecutor = notificationMetrics.monitor(Executors.newFixedThreadPool(normalizeThreads, runnable -> {
+            Thread thread = new Thread(runnable, "user-import-normalize-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }), "user-import-normalize");
+    }
+
+    @PreDestroy
+    public void stop() {
+        normalizeExecutor.shutdownNow();
+    }
+
+    /**
+     * Создаёт пользователей из последовательности записей. Идентификаторы записей не используются.
+     * Запись, которую не удалось преобразовать в пользователя, отклоняется; ошибка чтения самой
+     * последовательности прерывает импорт.
+     */
+    public UserImportResult importUsers(Iterator<User> users) {
+        Progress progress = new Progress();
+        List<Candidate> batch = new ArrayList<>(batchSize);
+        while (true) {
+            long position = progress.read + 1;
+            User user;
+            try {
+                if (!users.hasNext()) {
+                    break;
+                }
+                user = users.next();
+            } catch (RuntimeJsonMappingException e) {
+                progress.read = position;
+                progress.reject(position, e.getMessage());
+                continue;
+            } catch (RuntimeException e) {
+                progress.abort(e.getMessage());
+                break;
+            }
+            progress.read = position;
+            batch.add(new Candidate(position, user));
+            if (batch.size() == batchSize) {
+                importBatch(batch, progress);
+                batch.clear();
+            }
+        }
+        importBatch(batch, progress);
+
+        logger.info("Импортировано пользователей: {}, отклонено записей: {}", progress.imported, progress.rejected);
+        return new UserImportResult(progress.imported, progress.rejected, progress.complete, progress.errors);
+    }
+
+    private void importBatch(List<Candidate> batch, Progress progress) {
+        List<Normalized> normalized = normalizeAll(batch);
+
+        List<Normalized> valid = new ArrayList<>(normalized.size());
+        for (Normalized candidate : normalized) {
+            if (candidate.error() == null) {
+                valid.add(candidate);
+            } else {
+                progress.reject(candidate.position(), candidate.error());
+            }
+        }
+        if (valid.isEmpty()) {
+            return;
+        }
+
+        List<Long> ids = userRepository.allocateIds(valid.size());
+        List<User> created = new ArrayList<>(valid.size());
+        Map<Long, CompiledSchedule> schedules = new HashMap<>(valid.size() * 2);
+        List<UserScheduleWindow> windows = new ArrayList<>(valid.size());
+        for (int i = 0; i < valid.size(); i++) {
+            User user = valid.get(i).user();
+            user.setId(ids.get(i));
+            created.add(user);
+            schedules.put(user.getId(), valid.get(i).schedule());
+            windows.addAll(ScheduleHelper.windows(user.getId(), valid.get(i).schedule()));
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            userRepository.insertAll(created);
+            userScheduleWindowRepository.insertAll(windows);
+            deliveryCursorService.registerAll(ids);
+        });
+        userScheduleSync.saved(schedules);
+        progress.imported += created.size();
+    }
+
+    /**
+     * Нормализует пачку частями по числу потоков нормализации и возвращает результаты в порядке записей.
+     */
+    private List<Normalized> normalizeAll(List<Candidate> batch) {
+        int sliceSize = (batch.size() + normalizeThreads - 1) / normalizeThreads;
+        if (sliceSize == 0 || sliceSize == batch.size()) {
+            return batch.stream().map(this::normalize).toList();
+        }
+        List<Future<List<Normalized>>> slices = new ArrayList<>(normalizeThreads);
+        for (int from = 0; from < batch.size(); from += sliceSize) {
+            List<Candidate> slice = batch.subList(from, Math.min(batch.size(), from + sliceSize));
+            slices.add(normalizeExecutor.submit(() -> slice.stream().map(this::normalize).toList()));
+        }
+        List<Normalized> normalized = new ArrayList<>(batch.size());
+        try {
+            for (Future<List<Normalized>> slice : slices) {
+                normalized.addAll(slice.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            slices.forEach(slice -> slice.cancel(true));
+            throw new IllegalStateException("Импорт пользователей прерван", e);
+        } catch (ExecutionException e) {
+            slices.forEach(slice -> slice.cancel(true));
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException("Ошибка при нормализации расписаний", e.getCause());
+        }
+        return normalized;
+    }
+
+    private Normalized normalize(Candidate candidate) {
+        User user = candidate.user();
+        if (user == null || user.getFullName() == null || user.getFullName().isBlank()) {
+            return new Normalized(candidate.position(), user, null, "не указано имя пользователя");
+        }
+        try {
+            return new Normalized(candidate.position(), user, scheduleHelper.normalizeUserSchedule(user), null);
+        } catch (IllegalStateException e) {
+            String cause = e.getCause() == null ? e.getMessage() : e.getMessage() + ": " + e.getCause().getMessage();
+            return new Normalized(candidate.position(), user, null, cause);
+        }
+    }
+
+    private record Candidate(long position, User user) {
+    }
+
+    private record Normalized(long position, User user, CompiledSchedule schedule, String error) {
+    }
+
+    private static class Progress {
+        private final List<String> errors = new ArrayList<>();
+        private long read;
+        private long imported;
+        private long rejected;
+        private boolean complete = true;
+
+        private void reject(long position, String error) {
+            rejected++;
+            if (errors.size() < MAX_REPORTED_ERRORS) {
+                errors.add("запись " + position + ": " + error);
+            }
+        }
+
+        private void abort(String error) {
+            complete = false;
+            errors.add("импорт прерван после записи " + read + ": " + error);
+        }
+    }
+}
@@ -0,0 +1,240 @@
+package com.example.notification_service.service;
+
+import com.example.notification_service.configuration.NotificationProperties;
+import com.example.notification_service.entity.User;
+import com.example.notification_service.web_socket.service.DeliveryThrottledEvent;
+import com.example.notification_service.web_socket.service.LiveSessionRegistry;
+import com.example.notification_service.web_socket.service.PrivateNotificationService;
+import com.example.notification_service.web_socket.service.UserConnectedEvent;
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Доставка накопленных событий пользователям на выделенном пуле потоков.
+ * <p>
+ * Каждый поток держит соединение с базой данных только на время запроса, но все потоки
+ * сразу могут занять весь пул соединений, поэтому их число ограничено {@code maxConcurrency},
+ * по умолчанию — половиной пула соединений Hikari.
+ * <p>
+ * Перед доставкой пользователи захватываются в базе данных на время {@code lease}: одному пользователю
+ * очередь доставляет только один исполнитель, даже если его окно открылось одновременно на нескольких
+ * экземплярах или он подключился во время тика планировщика.
+ * <p>
+ * Доставка, остановленная ограничением скорости, повторяется через {@code retryDelay}: пользователи копятся
+ * в общем множестве, и один таймер повторяет доставку всем сразу.
+ */
+@Component
+public class UserQueueDrainer {
+    private static final Logger logger = LoggerFactory.getLogger(UserQueueDrainer.class);
+    private static final int DEFAULT_CONCURRENCY = 5;
+
+    private final PrivateNotificationService privateNotificationService;
+    private final UserService userService;
+    private final DeliveryCursorService deliveryCursorService;
+    private final LiveSessionRegistry liveSessionRegistry;
+    private final DeliveryRateLimiter deliveryRateLimiter;
+    private final Duration lease;
+    private final Duration retryDelay;
+    private final UUID owner = UUID.randomUUID();
+    private final ExecutorService drainExecutor;
+    private final ScheduledExecutorService retryScheduler;
+    private final Set<Long> throttledUsers = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean retryScheduled = new AtomicBoolean();
+
+    @Autowired
+    public UserQueueDrainer(PrivateNotificationService privateNotificationService,
+                            UserService userService,
+                            DeliveryCursorService deliveryCursorService,
+                            LiveSessionRegistry liveSessionRegistry,
+                            DeliveryRateLimiter deliveryRateLimiter,
+                            NotificationProperties properties,
+                            NotificationMetrics notificationMetrics,
+                            DataSource dataSource) {
+        this(privateNotificationService, userService, deliveryCursorService, liveSessionRegistry, deliveryRateLimiter,
+                properties, notificationMetrics, dataSource,
+                Executors.newSingleThreadScheduledExecutor(threadFactory("queue-drain-retry-")));
+    }
+
+    UserQueueDrainer(PrivateNotificationService privateNotificationService,
+                     UserService userService,
+                     DeliveryCursorService deliveryCursorService,
+                     LiveSessionRegistry liveSessionRegistry,
+                     DeliveryRateLimiter deliveryRateLimiter,
+                     NotificationProperties properties,
+                     NotificationMetrics notificationMetrics,
+                     DataSource dataSource,
+                     ScheduledExecutorService retryScheduler) {
+        this.privateNotificationService = privateNotificationService;
+        this.userService = userService;
+        this.deliveryCursorService = deliveryCursorService;
+        this.liveSessionRegistry = liveSessionRegistry;
+        this.deliveryRateLimiter = deliveryRateLimiter;
+        this.lease = properties.getDrain().getLease();
+        this.retryDelay = properties.getRateLimit().getRetryDelay();
+        this.drainExecutor = notificationMetrics.monitor(
+                Executors.newFixedThreadPool(concurrency(properties.getDrain(), dataSource), threadFactory("queue-drain-")),
+                "queue-drain");
+        this.retryScheduler = retryScheduler;
+    }
+
+    /**
+     * Доставляет очереди всех пользователей, которых удалось захватить, и ожидает завершения.
+     * Ошибка у одного пользователя не прерывает доставку остальным.
+     */
+    public void drain(List<User> users) {
+        claimAndDrain(users);
+    }
+
+    /**
+     * Доставляет очередь подключившемуся пользователю, не дожидаясь тика планировщика,
+     * если у него идёт период информирования. Вне периода очередь будет доставлена при его начале.
+     */
+    @EventListener
+    public void onUserConnected(UserConnectedEvent event) {
+        drainExecutor.execute(() -> userService.findById(event.userId())
+                .filter(user -> userService.isUserActive(user, LocalDateTime.now()))
+                .filter(user -> !deliveryCursorService.claim(List.of(user.getId()), owner, lease).isEmpty())
+                .ifPresent(this::drain));
+    }
+
+    /**
+     * Запоминает пользователей, доставка которым остановлена ограничением скорости, и планирует повтор,
+     * если он ещё не запланирован. Повторы одного пользователя не накапливаются.
+     */
+    @EventListener
+    public void onDeliveryThrottled(DeliveryThrottledEvent event) {
+        throttledUsers.addAll(event.userIds());
+        scheduleRetry();
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        retryScheduler.shutdownNow();
+        drainExecutor.shutdown();
+        drainExecutor.awaitTermination(30, TimeUnit.SECONDS);
+    }
+
+    private void scheduleRetry() {
+        if (retryScheduled.compareAndSet(false, true)) {
+            retryScheduler.schedule(this::retryThrottled, retryDelay.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Повторяет доставку очередей всем пользователям, остановленным ограничением скорости, которые
+     * по-прежнему подключены и у которых идёт период информирования.
+     * <p>
+     * Пользователь остаётся в множестве, пока повтор не завершится: повторные остановки во время ожидания
+     * и доставки не планируют лишнего повтора. После доставки убираются пользователи, у которых
+     * не осталось отложенного; захваченные другим исполнителем и снова остановленные ограничением
+     * ждут следующего повтора.
+     */
+    void retryThrottled() {
+        try {
+            Set<Long> userIds = Set.copyOf(throttledUsers);
+            Set<Long> retained = new HashSet<>();
+            List<Long> connected = userIds.stream().filter(liveSessionRegistry::isConnected).toList();
+            if (!connected.isEmpty()) {
+                LocalDateTime now = LocalDateTime.now();
+                List<User> active = userService.findAllById(connected).stream()
+                        .filter(user -> userService.isUserActive(user, now))
+                        .toList();
+                Set<Long> claimed = claimAndDrain(active);
+                active.stream()
+                        .map(User::getId)
+                        .filter(userId -> !claimed.contains(userId) || deliveryRateLimiter.isBacklogged(userId))
+                        .forEach(retained::add);
+            }
+            throttledUsers.removeIf(userId -> userIds.contains(userId) && !retained.contains(userId));
+        } catch (RuntimeException e) {
+            logger.error("Ошибка при повторе доставки очередей", e);
+        } finally {
+            retryScheduled.set(false);
+            if (!throttledUsers.isEmpty()) {
+                scheduleRetry();
+            }
+        }
+    }
+
+    /**
+     * Захватывает пользователей, доставляет их очереди и возвращает идентификаторы захваченных.
+     */
+    private Set<Long> claimAndDrain(List<User> users) {
+        if (users.isEmpty()) {
+            return Set.of();
+        }
+        Set<Long> claimed = Set.copyOf(deliveryCursorService.claim(users.stream().map(User::getId).toList(), owner, lease));
+        List<Callable<Void>> tasks = users.stream()
+                .filter(user -> claimed.contains(user.getId()))
+                .<Callable<Void>>map(user -> () -> {
+                    drain(user);
+                    return null;
+                })
+                .toList();
+        try {
+            drainExecutor.invokeAll(tasks);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return claimed;
+    }
+
+    private void drain(User user) {
+        try {
+            privateNotificationService.processUserEvents(user);
+        } catch (RuntimeException e) {
+            logger.error("Ошибка при доставке очереди событий пользователю {}", user.getId(), e);
+        } finally {
+            release(user);
+        }
+    }
+
+    private void release(User user) {
+        try {
+            deliveryCursorService.release(user.getId(), owner);
+        } catch (RuntimeException e) {
+            logger.error("Ошибка при освобождении пользователя {}, он будет освобождён через {}", user.getId(), lease, e);
+        }
+    }
+
+    static int concurrency(NotificationProperties.Drain drain, DataSource dataSource) {
+        if (drain.getMaxConcurrency() > 0) {
+            return drain.getMaxConcurrency();
+        }
+        if (dataSource instanceof HikariDataSource hikari) {
+            return Math.max(1, hikari.getMaximumPoolSize() / 2);
+        }
+        return DEFAULT_CONCURRENCY;
+    }
+
+    private static ThreadFactory threadFactory(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
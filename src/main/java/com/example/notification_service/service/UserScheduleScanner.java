@@ -0,0 +1,29 @@
+package com.example.notification_service.service;
+
+import com.example.notification_service.repository.UserRepository;
+import com.example.notification_service.repository.UserSchedule;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.function.BiConsumer;
+import java.util.stream.Stream;
+
+/**
+ * Обход расписаний всех пользователей без загрузки сущностей: память не растёт
+ * с числом пользователей, кроме того, что сохраняет сам обработчик.
+ */
+@Component
+@RequiredArgsConstructor
+public class UserScheduleScanner {
+    private final UserRepository userRepository;
+    private final ScheduleHelper scheduleHelper;
+
+    @Transactional(readOnly = true)
+    public void forEachSchedule(BiConsumer<Long, CompiledSchedule> action) {
+        try (Stream<UserSchedule> schedules = userRepository.streamSchedules()) {
+            schedules.forEach(schedule -> action.accept(schedule.id(),
+                    scheduleHelper.compiledSchedule(schedule.id(), schedule.notificationSchedule())));
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package com.example.notification_service.service;
+
+import com.example.notification_service.repository.EventRepository;
+import com.example.notification_service.repository.UserRepository;
+import com.example.notification_service.repository.UserSchedule;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Расписания пользователей в памяти экземпляров.
+ * <p>
+ * Скомпилированные расписания, таймер периодов информирования и индекс активных пользователей есть
+ * у каждого экземпляра. Изменение пользователя применяется на экземпляре, который его выполнил, а остальным
+ * отправляется {@code NOTIFY notification_users} с идентификаторами пользователей; получив уведомление,
+ * экземпляр перечитывает их расписания из базы данных (см. {@link EventRelayListener}). Если уведомления
+ * могли быть пропущены, расписания всех пользователей загружаются заново.
+ */
+@Component
+@RequiredArgsConstructor
+public class UserScheduleSync {
+    public static final String CHANNEL = "notification_users";
+    private static final Logger logger = LoggerFactory.getLogger(UserScheduleSync.class);
+    /**
+     * Идентификаторов в одном уведомлении: полезная нагрузка {@code NOTIFY} меньше 8000 байт.
+     */
+    private static final int IDS_PER_NOTIFICATION = 300;
+
+    private final UserRepository userRepository;
+    private final UserScheduleScanner userScheduleScanner;
+    private final ScheduleHelper scheduleHelper;
+    private final ScheduleWindowTimer scheduleWindowTimer;
+    private final ActiveUserIndex activeUserIndex;
+    private final EventRepository eventRepository;
+
+    /**
+     * Применяет сохранённые расписания пользователей и уведомляет остальные экземпляры.
+     */
+    public void saved(Map<Long, CompiledSchedule> schedules) {
+        apply(schedules);
+        publish(schedules.keySet());
+    }
+
+    /**
+     * Забывает удалённого пользователя и уведомляет остальные экземпляры.
+     */
+    public void deleted(Long userId) {
+        forget(userId);
+        publish(List.of(userId));
+    }
+
+    /**
+     * Загружает расписания всех пользователей: при старте и после разрыва соединения слушателя.
+     */
+    public void reloadAll() {
+        LocalDateTime now = LocalDateTime.now();
+        Map<Long, CompiledSchedule> schedules = new HashMap<>();
+
+        userScheduleScanner.forEachSchedule((userId, schedule) -> {
+            scheduleWindowTimer.arm(userId, schedule, now);
+            schedules.put(userId, schedule);
+        });
+        activeUserIndex.load(schedules, now);
+    }
+
+    /**
+     * Применяет уведомление об изменении пользователей, полученное от любого экземпляра,
+     * в том числе от этого: расписания читаются из базы данных, поэтому повторное применение
+     * и уведомления не по порядку не оставляют устаревшего расписания.
+     */
+    void onNotification(String payload) {
+        List<Long> userIds;
+        try {
+            userIds = parse(payload);
+        } catch (NumberFormatException e) {
+            logger.warn("Пропущено уведомление об изменении пользователей: {}", payload, e);
+            return;
+        }
+
+        Map<Long, CompiledSchedule> schedules = new HashMap<>(userIds.size() * 2);
+        for (UserSchedule schedule : userRepository.findSchedules(userIds)) {
+            schedules.put(schedule.id(),
+                    scheduleHelper.compiledSchedule(schedule.id(), schedule.notificationSchedule()));
+        }
+        apply(schedules);
+        for (Long userId : userIds) {
+            if (!schedules.containsKey(userId)) {
+                forget(userId);
+            }
+        }
+    }
+
+    private void apply(Map<Long, CompiledSchedule> schedules) {
+        LocalDateTime now = LocalDateTime.now();
+        schedules.forEach((userId, schedule) -> {
+            scheduleHelper.cacheSchedule(userId, schedule);
+            scheduleWindowTimer.arm(userId, schedule, now);
+        });
+        if (schedules.size() == 1) {
+            schedules.forEach(activeUserIndex::put);
+        } else {
+            activeUserIndex.putAll(schedules);
+        }
+    }
+
+    private void forget(Long userId) {
+        scheduleHelper.evictSchedule(userId);
+        scheduleWindowTimer.cancel(userId);
+        activeUserIndex.remove(userId);
+    }
+
+    private void publish(Collection<Long> userIds) {
+        List<Long> ids = List.copyOf(userIds);
+        for (int from = 0; from < ids.size(); from += IDS_PER_NOTIFICATION) {
+            String payload = ids.subList(from, Math.min(from + IDS_PER_NOTIFICATION, ids.size())).stream()
+                    .map(String::valueOf)
+                    .collect(Collectors.joining(","));
+            try {
+                eventRepository.publishNotification(CHANNEL, payload);
+            } catch (DataAccessException e) {
+                logger.error("Не удалось уведомить экземпляры об изменении пользователей {}", payload, e);
+            }
+        }
+    }
+
+    private static List<Long> parse(String payload) {
+        Set<Long> userIds = new HashSet<>();
+        for (String id : payload.split(",")) {
+            userIds.add(Long.valueOf(id.trim()));
+        }
+        return new ArrayList<>(userIds);
+    }
+}
@@ -2,45 +2,157 @@ package com.example.notification_service.service;
 
 
 import com.example.notification_service.entity.User;
+import com.example.notification_service.repository.UserEventRepository;
 import com.example.notification_service.repository.UserRepository;
+import com.example.notification_service.repository.UserScheduleWindowRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
 public class UserService {
     private final UserRepository userRepository;
     private final ScheduleHelper scheduleHelper;
+    private final ActiveUserIndex activeUserIndex;
+    private final UserEventRepository userEventRepository;
+    private final UserScheduleWindowRepository userScheduleWindowRepository;
+    private final DeliveryCursorService deliveryCursorService;
+    private final NotificationMetrics notificationMetrics;
+    private final NearCache nearCache;
+    private final UserScheduleSync userScheduleSync;
 
+    /**
+     * Все пользователи по возрастанию идентификатора.
+     */
     public List<User> findAll() {
-        return userRepository.findAll();
+        return userRepository.findAll(Sort.by("id"));
     }
 
+    /**
+     * Страница пользователей с идентификатором больше {@code afterId} по возрастанию идентификатора.
+     */
+    public List<User> findPage(long afterId, int limit) {
+        return userRepository.findByIdGreaterThanOrderById(afterId, Limit.of(limit));
+    }
+
+    /**
+     * Обходит всех пользователей по возрастанию идентификатора, не накапливая их в памяти.
+     */
+    @Transactional(readOnly = true)
+    public void forEachUser(Consumer<User> action) {
+        try (Stream<User> users = userRepository.streamAll()) {
+            users.forEach(action);
+        }
+    }
+
+    /**
+     * Возвращает пользователя из кэша. Экземпляр общий для всех читателей и не должен изменяться.
+     */
     public Optional<User> findById(Long id) {
-        return userRepository.findById(id);
+        return nearCache.findUser(id);
     }
 
+    /**
+     * Возвращает пользователей из кэша в порядке идентификаторов. Экземпляры общие и не должны изменяться.
+     */
+    public List<User> findAllById(Collection<Long> ids) {
+        return nearCache.findUsers(ids);
+    }
+
+    /**
+     * Удаляет очередь пользователя и самого пользователя в одной транзакции. Кэш, расписания в памяти
+     * и счётчик очереди обновляются после её фиксации, как и при сохранении.
+     */
+    @Transactional
     public void deleteById(Long id) {
+        List<Long> removed = userEventRepository.deleteAllForUser(id);
         userRepository.deleteById(id);
+        afterCommit(() -> {
+            notificationMetrics.pendingRemoved(removed);
+            nearCache.evictUser(id);
+            userScheduleSync.deleted(id);
+        });
     }
 
+    /**
+     * Сохраняет пользователя, его периоды информирования и курсор в одной транзакции. Кэш и расписания
+     * в памяти обновляются после её фиксации, чтобы не отражать изменения, которые могут откатиться.
+     */
+    @Transactional
     public User normalizeUserNotificationScheduleAndSave(User user) {
-        scheduleHelper.normalizeUserSchedule(user);
-        return userRepository.save(user);
+        Optional<CompiledSchedule> previousSchedule = scheduleHelper.cachedSchedule(user.getId());
+        CompiledSchedule compiledSchedule = scheduleHelper.normalizeUserSchedule(user);
+        previousSchedule
+                .filter(previous -> !previous.isCompiledFrom(user.getNotificationSchedule()))
+                .ifPresent(previous -> deliveryCursorService.settle(user.getId(), previous));
+        User saved = userRepository.saveAndFlush(user);
+        userScheduleWindowRepository.replaceAll(saved.getId(), ScheduleHelper.windows(saved.getId(), compiledSchedule));
+        deliveryCursorService.register(saved.getId());
+        afterCommit(() -> {
+            nearCache.evictUser(saved.getId());
+            userScheduleSync.saved(Map.of(saved.getId(), compiledSchedule));
+        });
+        return saved;
     }
 
     public List<User> findActiveUsers() {
-        List<User> allUsers = userRepository.findAll();
-        return allUsers.stream()
-                .filter(user -> isUserActive(user, LocalDateTime.now()))
-                .toList();
+        return findAllById(findActiveUserIds(LocalDateTime.now()));
+    }
+
+    /**
+     * Активные пользователи берутся из индекса в памяти, а до его загрузки — запросом по индексу
+     * периодов информирования в базе данных.
+     */
+    public List<Long> findActiveUserIds(LocalDateTime currentDateTime) {
+        if (!activeUserIndex.isReady()) {
+            return userScheduleWindowRepository.findActiveUserIds(CompiledSchedule.minuteOfWeek(currentDateTime));
+        }
+        return boxed(activeUserIndex.activeUserIds(currentDateTime));
+    }
+
+    /**
+     * Число пользователей — из индекса активных пользователей, если он загружен.
+     */
+    public long countUsers() {
+        return activeUserIndex.isReady() ? activeUserIndex.size() : userRepository.count();
     }
 
     public boolean isUserActive(User user, LocalDateTime currentDateTime) {
         return scheduleHelper.isUserActive(user, currentDateTime);
     }
+
+    public CompiledSchedule compiledSchedule(User user) {
+        return scheduleHelper.compiledSchedule(user);
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    private static List<Long> boxed(long[] ids) {
+        return Arrays.stream(ids).boxed().toList();
+    }
 }
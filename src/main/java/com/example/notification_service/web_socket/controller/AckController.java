@@ -0,0 +1,32 @@
+package com.example.notification_service.web_socket.controller;
+
+import com.example.notification_service.service.DeliveryAcknowledgements;
+import com.example.notification_service.web_socket.message.AckMessage;
+import com.example.notification_service.web_socket.service.LiveSessionRegistry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.messaging.handler.annotation.Header;
+import org.springframework.messaging.handler.annotation.MessageMapping;
+import org.springframework.messaging.handler.annotation.Payload;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.stereotype.Controller;
+
+@Controller
+@RequiredArgsConstructor
+public class AckController {
+    private final LiveSessionRegistry liveSessionRegistry;
+    private final DeliveryAcknowledgements deliveryAcknowledgements;
+
+    /**
+     * Принимает подтверждение, отправленное в {@code /app/ack}. Подтверждение учитывается,
+     * только если сессия подписана на очередь этого пользователя.
+     */
+    @MessageMapping("/ack")
+    public void acknowledge(@Payload AckMessage ack,
+                            @Header(SimpMessageHeaderAccessor.SESSION_ID_HEADER) String sessionId) {
+        if (ack.getUserId() == null || ack.getEventId() == null
+                || !liveSessionRegistry.isSubscribed(sessionId, ack.getUserId())) {
+            return;
+        }
+        deliveryAcknowledgements.acknowledge(ack.getUserId(), ack.getEventId());
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.notification_service.web_socket.message;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Подтверждение получения сообщений очереди пользователя {@code userId} до события {@code eventId} включительно.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AckMessage {
+    private Long userId;
+    private Long eventId;
+}
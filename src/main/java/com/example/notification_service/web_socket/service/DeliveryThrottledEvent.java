@@ -0,0 +1,9 @@
+package com.example.notification_service.web_socket.service;
+
+import java.util.List;
+
+/**
+ * Сообщения пользователям не отправлены из-за ограничения скорости и ожидают в их очередях.
+ */
+public record DeliveryThrottledEvent(List<Long> userIds) {
+}
@@ -0,0 +1,195 @@
+package com.example.notification_service.web_socket.service;
+
+import com.example.notification_service.repository.LiveSessionRepository;
+import com.example.notification_service.repository.RelayNode;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.broker.AbstractBrokerMessageHandler;
+import org.springframework.messaging.support.ExecutorChannelInterceptor;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Реестр подписок пользователей на личные очереди {@code /queue/user/{id}} этого экземпляра сервиса.
+ * <p>
+ * Пользователь считается подключённым, пока у него есть хотя бы одна подписка в любой сессии.
+ * Реестр перехватывает входящий канал клиентов и учитывает подписку, отписку и отключение после того,
+ * как их обработал брокер: подключённому пользователю сообщения отправляются, когда брокер уже знает
+ * его подписку, и не теряются.
+ * При появлении первой подписки публикуется {@link UserConnectedEvent}, при удалении последней —
+ * {@link UserDisconnectedEvent}. Подключённые пользователи отражаются в общей для всех экземпляров таблице,
+ * пока экземпляр слушает рассылку событий.
+ * <p>
+ * Подписка с заголовком {@code ack: client} или {@code ack: client-individual} означает, что клиент
+ * подтверждает получение сообщений очереди, см. {@link com.example.notification_service.service.DeliveryAcknowledgements}.
+ */
+@Component
+@RequiredArgsConstructor
+public class LiveSessionRegistry implements ExecutorChannelInterceptor {
+    static final String USER_QUEUE_PREFIX = "/queue/user/";
+    private static final String ACK_HEADER = "ack";
+    private static final Set<String> CLIENT_ACK_MODES = Set.of("client", "client-individual");
+
+    private static final Logger logger = LoggerFactory.getLogger(LiveSessionRegistry.class);
+
+    private final ApplicationEventPublisher eventPublisher;
+    private final LiveSessionRepository liveSessionRepository;
+
+    private final Map<String, Map<String, Subscription>> subscriptionsBySession = new ConcurrentHashMap<>();
+    private final Map<Long, Integer> subscriptionsByUser = new ConcurrentHashMap<>();
+    private final Map<Long, Integer> acknowledgingSubscriptionsByUser = new ConcurrentHashMap<>();
+    private RelayNode node;
+
+    public boolean isConnected(Long userId) {
+        return subscriptionsByUser.containsKey(userId);
+    }
+
+    public int connectedUsers() {
+        return subscriptionsByUser.size();
+    }
+
+    /**
+     * Подтверждает ли получение сообщений хотя бы одна подписка пользователя.
+     */
+    public boolean acknowledges(Long userId) {
+        return acknowledgingSubscriptionsByUser.containsKey(userId);
+    }
+
+    /**
+     * Подписана ли сессия на очередь пользователя.
+     */
+    public boolean isSubscribed(String sessionId, Long userId) {
+        Map<String, Subscription> subscriptions = sessionId == null ? null : subscriptionsBySession.get(sessionId);
+        return subscriptions != null && subscriptions.values().stream()
+                .anyMatch(subscription -> subscription.userId().equals(userId));
+    }
+
+    @Override
+    public void afterMessageHandled(Message<?> message, MessageChannel channel, MessageHandler handler, Exception ex) {
+        if (ex != null || !(handler instanceof AbstractBrokerMessageHandler)) {
+            return;
+        }
+        SimpMessageType type = SimpMessageHeaderAccessor.getMessageType(message.getHeaders());
+        if (type == SimpMessageType.SUBSCRIBE) {
+            onSubscribe(message);
+        } else if (type == SimpMessageType.UNSUBSCRIBE) {
+            onUnsubscribe(message);
+        } else if (type == SimpMessageType.DISCONNECT) {
+            onDisconnect(SimpMessageHeaderAccessor.getSessionId(message.getHeaders()));
+        }
+    }
+
+    void onSubscribe(Message<?> message) {
+        SimpMessageHeaderAccessor headers = SimpMessageHeaderAccessor.wrap(message);
+        Long userId = userId(headers.getDestination());
+        if (userId == null || headers.getSessionId() == null || headers.getSubscriptionId() == null) {
+            return;
+        }
+        String ack = headers.getFirstNativeHeader(ACK_HEADER);
+        Subscription subscription = new Subscription(userId, ack != null && CLIENT_ACK_MODES.contains(ack));
+        Subscription previous = subscriptionsBySession
+                .computeIfAbsent(headers.getSessionId(), sessionId -> new ConcurrentHashMap<>())
+                .put(headers.getSubscriptionId(), subscription);
+        if (previous != null) {
+            release(previous);
+        }
+        if (subscription.acknowledges()) {
+            acknowledgingSubscriptionsByUser.merge(userId, 1, Integer::sum);
+        }
+        if (subscriptionsByUser.merge(userId, 1, Integer::sum) == 1) {
+            syncPresence(userId);
+            eventPublisher.publishEvent(new UserConnectedEvent(userId));
+        }
+    }
+
+    void onUnsubscribe(Message<?> message) {
+        SimpMessageHeaderAccessor headers = SimpMessageHeaderAccessor.wrap(message);
+        Map<String, Subscription> subscriptions = subscriptionsBySession.get(headers.getSessionId());
+        if (subscriptions == null || headers.getSubscriptionId() == null) {
+            return;
+        }
+        Subscription subscription = subscriptions.remove(headers.getSubscriptionId());
+        if (subscription != null) {
+            release(subscription);
+        }
+    }
+
+    void onDisconnect(String sessionId) {
+        Map<String, Subscription> subscriptions = sessionId == null ? null : subscriptionsBySession.remove(sessionId);
+        if (subscriptions != null) {
+            subscriptions.values().forEach(this::release);
+        }
+    }
+
+    /**
+     * Регистрирует подключённых пользователей от имени экземпляра, начавшего слушать рассылку,
+     * и удаляет записи экземпляров, которые её больше не слушают.
+     */
+    public synchronized void attach(RelayNode node) {
+        this.node = node;
+        liveSessionRepository.removeDeadNodes();
+        if (!subscriptionsByUser.isEmpty()) {
+            liveSessionRepository.addAll(List.copyOf(subscriptionsByUser.keySet()), node);
+        }
+    }
+
+    public synchronized void detach() {
+        node = null;
+    }
+
+    private void release(Subscription subscription) {
+        Long userId = subscription.userId();
+        if (subscription.acknowledges()) {
+            acknowledgingSubscriptionsByUser.computeIfPresent(userId, (id, count) -> count > 1 ? count - 1 : null);
+        }
+        if (subscriptionsByUser.computeIfPresent(userId, (id, count) -> count > 1 ? count - 1 : null) == null) {
+            syncPresence(userId);
+            eventPublisher.publishEvent(new UserDisconnectedEvent(userId));
+        }
+    }
+
+    /**
+     * Приводит запись пользователя в общей таблице к текущему состоянию реестра. Ошибка базы данных
+     * не прерывает обработку подписки: запись будет восстановлена при следующем подключении слушателя.
+     */
+    private synchronized void syncPresence(Long userId) {
+        if (node == null) {
+            return;
+        }
+        try {
+            if (isConnected(userId)) {
+                liveSessionRepository.addAll(List.of(userId), node);
+            } else {
+                liveSessionRepository.remove(userId, node);
+            }
+        } catch (DataAccessException e) {
+            logger.error("Ошибка при обновлении подключения пользователя {}", userId, e);
+        }
+    }
+
+    private record Subscription(Long userId, boolean acknowledges) {
+    }
+
+    static Long userId(String destination) {
+        if (destination == null || !destination.startsWith(USER_QUEUE_PREFIX)) {
+            return null;
+        }
+        try {
+            return Long.valueOf(destination.substring(USER_QUEUE_PREFIX.length()));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
@@ -3,70 +3,324 @@ package com.example.notification_service.web_socket.service;
 
 import com.example.notification_service.entity.Event;
 import com.example.notification_service.entity.User;
-import com.example.notification_service.entity.UserEvent;
-import com.example.notification_service.repository.EventRepository;
+import com.example.notification_service.enums.DeliveryChannel;
+import com.example.notification_service.repository.PendingEventCount;
 import com.example.notification_service.repository.UserEventRepository;
+import com.example.notification_service.service.CompiledSchedule;
+import com.example.notification_service.service.DeliveryAcknowledgements;
+import com.example.notification_service.service.DeliveryAuditLog;
+import com.example.notification_service.service.DeliveryCursorService;
+import com.example.notification_service.service.DeliveryRateLimiter;
+import com.example.notification_service.service.EventRelay;
+import com.example.notification_service.service.NearCache;
+import com.example.notification_service.service.NotificationMetrics;
 import com.example.notification_service.service.UserService;
 import com.example.notification_service.web_socket.message.EventMessage;
 import com.example.notification_service.web_socket.message.WSMessage;
 import lombok.RequiredArgsConstructor;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.converter.MessageConversionException;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Instant;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 @Service
 @RequiredArgsConstructor
 public class PrivateNotificationService {
-    private static final Logger logger = LoggerFactory.getLogger(PrivateNotificationService.class);
+    /**
+     * Заголовок сообщения с идентификатором события. Клиент, подтверждающий получение,
+     * присылает его значение в {@code /app/ack}.
+     */
+    public static final String EVENT_ID_HEADER = "event-id";
+    private static final int DRAIN_PAGE_SIZE = 500;
 
     private final SimpMessagingTemplate template;
     private final UserService userService;
     private final UserEventRepository userEventRepository;
-    private final EventRepository eventRepository;
+    private final NotificationMetrics notificationMetrics;
+    private final DeliveryCursorService deliveryCursorService;
+    private final LiveSessionRegistry liveSessionRegistry;
+    private final EventRelay eventRelay;
+    private final DeliveryAuditLog deliveryAuditLog;
+    private final DeliveryAcknowledgements deliveryAcknowledgements;
+    private final DeliveryRateLimiter deliveryRateLimiter;
+    private final ApplicationEventPublisher eventPublisher;
+    private final NearCache nearCache;
 
-    public void sendEvent(Event event) {
-        List<User> users = userService.findAll();
-        LocalDateTime now = LocalDateTime.now();
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadPendingMetrics() {
+        List<PendingEventCount> pending = new ArrayList<>(userEventRepository.countPendingByEvent());
+        pending.addAll(deliveryCursorService.countBacklog());
+        notificationMetrics.loadPending(pending);
+    }
 
-        for (User user : users) {
-            if (userService.isUserActive(user, now))
-                sendAndLogEventMessage(user, event);
-            else
-                addEventToQueue(user, event);
+    /**
+     * Публикует события одной минуты для всех экземпляров сервиса: активные пользователи определяются
+     * один раз для всех событий. Активным пользователям, не подключённым ни к одному экземпляру, события
+     * ставятся в очередь и будут доставлены при подключении. Неактивные получат события из ленты,
+     * когда начнётся их период информирования.
+     *
+     * @see #groupByMinute(List)
+     */
+    public void publishEvents(List<Event> events) {
+        notificationMetrics.resolveRecipientsTimer().record(() -> {
+            List<Long> activeUserIds = userService.findActiveUserIds(DeliveryCursorService.localOccurredAt(events.get(0)));
+            int enqueued = eventRelay.publish(events, activeUserIds);
+            int pending = (int) Math.max(0, userService.countUsers() - activeUserIds.size() + enqueued / events.size());
+            for (Event event : events) {
+                notificationMetrics.pendingAdded(event.getId(), occurredAt(event), pending);
+            }
+        });
+    }
+
+    /**
+     * Доставляет опубликованные события пользователям, подключённым к этому экземпляру.
+     * Получатели определяются один раз для событий одной минуты.
+     */
+    public void deliverRelayedEvents(List<Long> eventIds) {
+        for (List<Event> sameMinute : groupByMinute(nearCache.findEvents(eventIds))) {
+            deliverEvents(sameMinute, localRecipients(sameMinute.get(0)));
         }
     }
 
-    private void addEventToQueue(User user, Event event) {
-        UserEvent userEvent = new UserEvent(user, event);
-        userEventRepository.save(userEvent);
+    /**
+     * Находит пользователей, активных в момент события и подключённых к этому экземпляру.
+     */
+    public List<User> localRecipients(Event event) {
+        List<Long> connectedUserIds = userService.findActiveUserIds(DeliveryCursorService.localOccurredAt(event)).stream()
+                .filter(liveSessionRegistry::isConnected)
+                .toList();
+        return connectedUserIds.isEmpty() ? List.of() : userService.findAllById(connectedUserIds);
     }
 
-    public void processUserEvents(User user) {
-        List<UserEvent> userEvents = userEventRepository.findByUserId(user.getId());
-        userEvents.forEach(userEvent -> {
-            Event event = eventRepository.findById(userEvent.getEvent().getId()).orElseThrow();
-            sendAndLogEventMessage(user, event);
-            userEventRepository.delete(userEvent);
+    /**
+     * Доставляет события активным пользователям: каждому пользователю все события подряд в порядке списка.
+     * Каждое сообщение сериализуется один раз, всем получателям отправляется одно и то же тело.
+     * События, не отправленные пользователю из-за ограничения скорости, ставятся в его очередь
+     * вместе со всеми следующими, чтобы он получил их в том же порядке. Пока отложенное не доставлено,
+     * в очередь ставятся и все новые события. Отложенное всем пользователям ставится в очереди одним
+     * запросом после рассылки.
+     */
+    public void deliverEvents(List<Event> events, List<User> activeUsers) {
+        notificationMetrics.deliverEventTimer().record(() -> {
+            List<Message<?>> messages = events.stream()
+                    .<Message<?>>map(event -> serialize(event.getId(), new EventMessage(event.getMessage())))
+                    .toList();
+
+            int delivered = 0;
+            List<Long> deferredUserIds = new ArrayList<>();
+            List<Integer> firstDeferredEvents = new ArrayList<>();
+            for (User user : activeUsers) {
+                String destination = destination(user.getId());
+                for (int i = 0; i < events.size(); i++) {
+                    if (deliveryRateLimiter.isBacklogged(user.getId()) || !deliveryRateLimiter.tryAcquire(user.getId())) {
+                        deferredUserIds.add(user.getId());
+                        firstDeferredEvents.add(i);
+                        break;
+                    }
+                    template.send(destination, messages.get(i));
+                    deliveryAcknowledgements.sentLive(user.getId(), events.get(i).getId());
+                    deliveryAuditLog.record(user.getId(), events.get(i).getId(), DeliveryChannel.LIVE);
+                    delivered++;
+                }
+            }
+            notificationMetrics.deliveredLive(delivered);
+            if (!deferredUserIds.isEmpty()) {
+                deferEvents(events, deferredUserIds, firstDeferredEvents);
+            }
         });
     }
 
+    /**
+     * Ставит в очередь пользователя {@code userIds[i]} события, начиная с индекса {@code firstEvents[i]}.
+     */
+    private void deferEvents(List<Event> events, List<Long> userIds, List<Integer> firstEvents) {
+        userEventRepository.enqueueFrom(events.stream().map(Event::getId).toList(), userIds, firstEvents);
+        int[] deferredUsers = new int[events.size()];
+        for (int first : firstEvents) {
+            deferredUsers[first]++;
+        }
+        int pending = 0;
+        for (int i = 0; i < events.size(); i++) {
+            pending += deferredUsers[i];
+            notificationMetrics.pendingAdded(events.get(i).getId(), occurredAt(events.get(i)), pending);
+        }
+        userIds.forEach(deliveryRateLimiter::markBacklogged);
+        eventPublisher.publishEvent(new DeliveryThrottledEvent(userIds));
+    }
+
+    /**
+     * Разбивает события на группы с одной минутой события в порядке первого появления.
+     * Активные пользователи определяются с точностью до минуты, поэтому у событий группы они общие.
+     */
+    public static List<List<Event>> groupByMinute(List<Event> events) {
+        Map<LocalDateTime, List<Event>> byMinute = new LinkedHashMap<>();
+        for (Event event : events) {
+            byMinute.computeIfAbsent(DeliveryCursorService.localOccurredAt(event).truncatedTo(ChronoUnit.MINUTES),
+                    minute -> new ArrayList<>()).add(event);
+        }
+        return List.copyOf(byMinute.values());
+    }
+
+    public void processUserEvents(User user) {
+        notificationMetrics.drainTimer().record(() -> drainUserEvents(user));
+    }
+
+    /**
+     * Если пользователь подтверждает получение, строки очереди не удаляются и курсор не сдвигается
+     * до подтверждения: страницы отправляются подряд без записи в базу данных. Доставка продолжает
+     * предыдущую доставку этого подключения: отправленные строки очереди пропускаются, лента читается
+     * с места, где та остановилась. Неподтверждённое будет отправлено повторно после переподключения.
+     * <p>
+     * Доставка, остановленная ограничением скорости, сохраняет отправленное и публикует
+     * {@link DeliveryThrottledEvent}: остаток будет доставлен повторной обработкой.
+     */
+    private void drainUserEvents(User user) {
+        long cursor = deliveryCursorService.cursor(user.getId());
+        DeliveryAcknowledgements.Unacknowledged unacknowledged = liveSessionRegistry.acknowledges(user.getId())
+                ? deliveryAcknowledgements.start(user.getId(), cursor)
+                : null;
+        if (drainQueuedEvents(user, unacknowledged)
+                && drainEventFeed(user, unacknowledged == null ? cursor : unacknowledged.feedEnd(), unacknowledged)) {
+            deliveryRateLimiter.clearBacklog(user.getId());
+        } else {
+            deliveryRateLimiter.markBacklogged(user.getId());
+            eventPublisher.publishEvent(new DeliveryThrottledEvent(List.of(user.getId())));
+        }
+    }
+
+    /**
+     * Возвращает {@code false}, если доставка остановлена ограничением скорости.
+     */
+    private boolean drainQueuedEvents(User user, DeliveryAcknowledgements.Unacknowledged unacknowledged) {
+        List<Long> pendingEventIds = userEventRepository.findPendingEventIds(user.getId(), Limit.of(DRAIN_PAGE_SIZE));
+        while (!pendingEventIds.isEmpty()) {
+            List<Event> pending = nearCache.findEvents(pendingEventIds);
+            List<Long> deliveredEventIds = new ArrayList<>(pending.size());
+            boolean throttled = false;
+            for (Event event : pending) {
+                if (unacknowledged != null && unacknowledged.isSentFromQueue(event.getId())) {
+                    continue;
+                }
+                if (!deliveryRateLimiter.tryAcquire(user.getId())) {
+                    throttled = true;
+                    break;
+                }
+                sendAndLogEventMessage(user, event);
+                deliveredEventIds.add(event.getId());
+                if (unacknowledged != null) {
+                    unacknowledged.sentFromQueue(event.getId());
+                }
+            }
+            notificationMetrics.deliveredQueued(deliveredEventIds.size());
+            if (unacknowledged == null && !deliveredEventIds.isEmpty()) {
+                notificationMetrics.pendingRemoved(userEventRepository.deleteDelivered(user.getId(), deliveredEventIds));
+            }
+
+            if (throttled) {
+                return false;
+            }
+            if (pendingEventIds.size() < DRAIN_PAGE_SIZE || pending.isEmpty()) {
+                break;
+            }
+            Event last = pending.get(pending.size() - 1);
+            pendingEventIds = userEventRepository.findPendingEventIdsAfter(
+                    user.getId(), last.getOccurredAt(), last.getId(), Limit.of(DRAIN_PAGE_SIZE));
+        }
+        return true;
+    }
+
+    /**
+     * Доставляет события ленты после курсора пользователя, пропуская доставленные сразу.
+     * Курсор сдвигается после каждой страницы; если его сдвинула параллельная обработка, доставка прекращается.
+     * При остановке ограничением скорости курсор сдвигается на последнее обработанное событие
+     * и возвращается {@code false}.
+     */
+    private boolean drainEventFeed(User user, long cursor, DeliveryAcknowledgements.Unacknowledged unacknowledged) {
+        CompiledSchedule schedule = userService.compiledSchedule(user);
+        while (true) {
+            List<Event> page = deliveryCursorService.eventsAfter(cursor, DRAIN_PAGE_SIZE);
+            if (page.isEmpty()) {
+                return true;
+            }
+            List<Long> deliveredEventIds = new ArrayList<>(page.size());
+            long last = cursor;
+            boolean throttled = false;
+            for (Event event : page) {
+                if (!DeliveryCursorService.deliveredLive(event, schedule)) {
+                    if (!deliveryRateLimiter.tryAcquire(user.getId())) {
+                        throttled = true;
+                        break;
+                    }
+                    sendAndLogEventMessage(user, event);
+                    deliveredEventIds.add(event.getId());
+                    if (unacknowledged != null) {
+                        unacknowledged.sentFromFeed(event.getId(), event.getDeliverySeq());
+                    }
+                }
+                last = event.getDeliverySeq();
+            }
+            notificationMetrics.deliveredQueued(deliveredEventIds.size());
+
+            if (last > cursor) {
+                if (unacknowledged != null) {
+                    unacknowledged.readFeedUpTo(last);
+                } else {
+                    notificationMetrics.pendingRemoved(deliveredEventIds);
+                    if (!deliveryCursorService.advance(user.getId(), cursor, last)) {
+                        return true;
+                    }
+                }
+            }
+            if (throttled) {
+                return false;
+            }
+            if (page.size() < DRAIN_PAGE_SIZE) {
+                return true;
+            }
+            cursor = last;
+        }
+    }
+
     @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public void sendAndLogEventMessage(User user, Event event) {
-        sendEventMessage(user.getId(), new EventMessage(event.getMessage()));
-        logger.info("{} Пользователю {} отправлено оповещение с текстом: {}",
-                LocalDateTime.now().format(DateTimeFormatter.ofPattern("dd.MM.yyyy HH:mm:ss")),
-                user.getFullName(),
-                event.getMessage());
+        sendEventMessage(user.getId(), event.getId(), new EventMessage(event.getMessage()));
+        deliveryAuditLog.record(user.getId(), event.getId(), DeliveryChannel.QUEUED);
+    }
+
+    private static Instant occurredAt(Event event) {
+        return event.getOccurredAt() == null ? Instant.now() : event.getOccurredAt().toInstant();
+    }
+
+    private Message<?> serialize(Long eventId, WSMessage message) {
+        SimpMessageHeaderAccessor headers = SimpMessageHeaderAccessor.create();
+        headers.setNativeHeader(EVENT_ID_HEADER, String.valueOf(eventId));
+        Message<?> serialized = template.getMessageConverter().toMessage(message, headers.getMessageHeaders());
+        if (serialized == null) {
+            throw new MessageConversionException("Не удалось сериализовать сообщение " + message);
+        }
+        return serialized;
+    }
+
+    private void sendEventMessage(Long userId, Long eventId, WSMessage message) {
+        template.convertAndSend(destination(userId), message, Map.of(EVENT_ID_HEADER, String.valueOf(eventId)));
     }
 
-    private void sendEventMessage(Long id, WSMessage message) {
-        template.convertAndSend("/queue/user/" + id, message);
+    private static String destination(Long userId) {
+        return LiveSessionRegistry.USER_QUEUE_PREFIX + userId;
     }
 }
@@ -0,0 +1,7 @@
+package com.example.notification_service.web_socket.service;
+
+/**
+ * Пользователь подписался на свою очередь сообщений, не имея до этого ни одной подписки.
+ */
+public record UserConnectedEvent(Long userId) {
+}
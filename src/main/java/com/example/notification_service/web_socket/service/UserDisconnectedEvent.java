@@ -0,0 +1,7 @@
+package com.example.notification_service.web_socket.service;
+
+/**
+ * У пользователя не осталось ни одной подписки на свою очередь сообщений на этом экземпляре.
+ */
+public record UserDisconnectedEvent(Long userId) {
+}
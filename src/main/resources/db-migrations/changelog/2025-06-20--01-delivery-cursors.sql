@@ -0,0 +1,20 @@
+--liquibase formatted sql
+
+--changeset Kuznetsov.Mikhail:2
+
+CREATE SEQUENCE IF NOT EXISTS notification_service.events_delivery_seq;
+
+ALTER TABLE notification_service.events ADD COLUMN IF NOT EXISTS delivery_seq int8 NULL;
+
+CREATE UNIQUE INDEX IF NOT EXISTS events_delivery_seq_idx ON notification_service.events (delivery_seq);
+
+CREATE TABLE IF NOT EXISTS notification_service.user_delivery_cursors (
+	user_id int8 NOT NULL,
+	last_delivery_seq int8 NOT NULL,
+	CONSTRAINT user_delivery_cursors_pk PRIMARY KEY (user_id),
+	CONSTRAINT user_delivery_cursors_users_fk FOREIGN KEY (user_id) REFERENCES notification_service.users(id) ON DELETE CASCADE
+);
+
+INSERT INTO notification_service.user_delivery_cursors (user_id, last_delivery_seq)
+SELECT id, 0 FROM notification_service.users
+ON CONFLICT DO NOTHING;
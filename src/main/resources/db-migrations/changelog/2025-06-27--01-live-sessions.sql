@@ -0,0 +1,10 @@
+--liquibase formatted sql
+
+--changeset Kuznetsov.Mikhail:3
+
+CREATE TABLE IF NOT EXISTS notification_service.live_sessions (
+	user_id int8 NOT NULL,
+	node_pid int4 NOT NULL,
+	node_started_at timestamptz NOT NULL,
+	CONSTRAINT live_sessions_pk PRIMARY KEY (user_id, node_pid, node_started_at)
+);
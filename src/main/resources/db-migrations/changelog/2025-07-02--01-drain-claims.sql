@@ -0,0 +1,7 @@
+--liquibase formatted sql
+
+--changeset Kuznetsov.Mikhail:4
+
+ALTER TABLE notification_service.user_delivery_cursors ADD COLUMN IF NOT EXISTS drain_owner uuid NULL;
+
+ALTER TABLE notification_service.user_delivery_cursors ADD COLUMN IF NOT EXISTS drain_lease_until timestamptz NULL;
@@ -0,0 +1,11 @@
+--liquibase formatted sql
+
+--changeset Kuznetsov.Mikhail:5
+
+CREATE TABLE IF NOT EXISTS notification_service.event_outbox (
+	event_id int8 NOT NULL,
+	claimed_by uuid NULL,
+	claimed_until timestamptz NULL,
+	CONSTRAINT event_outbox_pk PRIMARY KEY (event_id),
+	CONSTRAINT event_outbox_events_fk FOREIGN KEY (event_id) REFERENCES notification_service.events(id) ON DELETE CASCADE
+);
@@ -0,0 +1,10 @@
+--liquibase formatted sql
+
+--changeset Kuznetsov.Mikhail:6
+
+CREATE TABLE IF NOT EXISTS notification_service.delivery_log (
+	user_id int8 NOT NULL,
+	event_id int8 NOT NULL,
+	delivered_at timestamptz NOT NULL,
+	channel varchar(16) NOT NULL
+);
@@ -0,0 +1,5 @@
+--liquibase formatted sql
+
+--changeset Kuznetsov.Mikhail:7
+
+CREATE SEQUENCE IF NOT EXISTS users_seq START WITH 1 INCREMENT BY 50;
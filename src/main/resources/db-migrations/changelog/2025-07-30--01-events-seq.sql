@@ -0,0 +1,5 @@
+--liquibase formatted sql
+
+--changeset Kuznetsov.Mikhail:8
+
+CREATE SEQUENCE IF NOT EXISTS events_seq START WITH 1 INCREMENT BY 50;
@@ -0,0 +1,36 @@
+--liquibase formatted sql
+
+--changeset Kuznetsov.Mikhail:9
+
+CREATE TABLE IF NOT EXISTS notification_service.user_schedule_windows (
+	user_id int8 NOT NULL,
+	from_minute int4 NOT NULL,
+	to_minute int4 NOT NULL,
+	minutes int4range GENERATED ALWAYS AS (int4range(from_minute, to_minute)) STORED,
+	CONSTRAINT user_schedule_windows_pk PRIMARY KEY (user_id, from_minute),
+	CONSTRAINT user_schedule_windows_users_fk FOREIGN KEY (user_id) REFERENCES notification_service.users(id) ON DELETE CASCADE
+);
+
+CREATE INDEX IF NOT EXISTS user_schedule_windows_minutes_idx ON notification_service.user_schedule_windows USING gist (minutes);
+
+-- Интервалы расписаний включают последнюю минуту; смежные и пересекающиеся сливаются так же,
+-- как в битовой карте расписания. Период через конец недели остаётся двумя строками.
+INSERT INTO notification_service.user_schedule_windows (user_id, from_minute, to_minute)
+SELECT w.user_id, lower(w.minutes), upper(w.minutes)
+FROM (
+	SELECT i.user_id, unnest(range_agg(int4range(i.day_offset + i.start_minute, i.day_offset + i.end_minute + 1))) AS minutes
+	FROM (
+		SELECT u.id AS user_id,
+			(array_position(ARRAY['MONDAY', 'TUESDAY', 'WEDNESDAY', 'THURSDAY', 'FRIDAY', 'SATURDAY', 'SUNDAY'], d.day) - 1) * 1440 AS day_offset,
+			split_part(t.bounds[1], ':', 1)::int * 60 + split_part(t.bounds[1], ':', 2)::int AS start_minute,
+			split_part(t.bounds[2], ':', 1)::int * 60 + split_part(t.bounds[2], ':', 2)::int AS end_minute
+		FROM notification_service.users u
+		CROSS JOIN LATERAL jsonb_each(u.notification_schedule::jsonb) AS d(day, intervals)
+		CROSS JOIN LATERAL jsonb_array_elements_text(CASE WHEN jsonb_typeof(d.intervals) = 'array' THEN d.intervals ELSE '[]'::jsonb END) AS s(value)
+		CROSS JOIN LATERAL regexp_match(s.value, '^\s*(\d{1,2}:\d{2})\s*-\s*(\d{1,2}:\d{2})\s*$') AS t(bounds)
+		WHERE jsonb_typeof(u.notification_schedule::jsonb) = 'object'
+	) i
+	WHERE i.day_offset IS NOT NULL AND i.end_minute >= i.start_minute
+	GROUP BY i.user_id
+) w
+ON CONFLICT DO NOTHING;
@@ -0,0 +1,6 @@
+--liquibase formatted sql
+
+--changeset Kuznetsov.Mikhail:10
+
+-- Записи журнала добавляются по времени доставки, поэтому для удаления устаревших достаточно индекса BRIN.
+CREATE INDEX IF NOT EXISTS delivery_log_delivered_at_idx ON notification_service.delivery_log USING brin (delivered_at);
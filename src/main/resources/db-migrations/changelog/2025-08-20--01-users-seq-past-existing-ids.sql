@@ -0,0 +1,8 @@
+--liquibase formatted sql
+
+--changeset Kuznetsov.Mikhail:11
+
+-- Раньше идентификаторы пользователей выдавала неявная последовательность Hibernate user_seq, поэтому в базе данных,
+-- созданной до users_seq, они уже заняты. Значение users_seq — верхняя граница выданного блока, следующий блок
+-- начнётся после наибольшего существующего идентификатора. Уже сдвинутая последовательность не изменяется.
+SELECT setval('users_seq', max(id)) FROM notification_service.users HAVING max(id) >= (SELECT last_value FROM users_seq);
@@ -0,0 +1,8 @@
+--liquibase formatted sql
+
+--changeset Kuznetsov.Mikhail:12
+
+-- Раньше идентификаторы событий выдавала неявная последовательность Hibernate event_seq, поэтому в базе данных,
+-- созданной до events_seq, они уже заняты. Значение events_seq — верхняя граница выданного блока, следующий блок
+-- начнётся после наибольшего существующего идентификатора. Уже сдвинутая последовательность не изменяется.
+SELECT setval('events_seq', max(id)) FROM notification_service.events HAVING max(id) >= (SELECT last_value FROM events_seq);
@@ -0,0 +1,33 @@
+--liquibase formatted sql
+
+--changeset Kuznetsov.Mikhail:13 splitStatements:false
+
+-- Число строк event_outbox одной строкой: транзакция, добавившая события, увеличивает его непосредственно перед
+-- фиксацией, если не превышена ёмкость, а удаление строк outbox уменьшает его триггером.
+CREATE TABLE IF NOT EXISTS notification_service.event_outbox_capacity (
+	id bool DEFAULT true NOT NULL,
+	pending int4 NOT NULL,
+	CONSTRAINT event_outbox_capacity_pk PRIMARY KEY (id),
+	CONSTRAINT event_outbox_capacity_single_row CHECK (id)
+);
+
+INSERT INTO notification_service.event_outbox_capacity (pending)
+SELECT count(*) FROM notification_service.event_outbox
+ON CONFLICT DO NOTHING;
+
+CREATE OR REPLACE FUNCTION notification_service.event_outbox_released() RETURNS trigger AS $$
+DECLARE
+	released_count int4;
+BEGIN
+	SELECT count(*) INTO released_count FROM released;
+	IF released_count > 0 THEN
+		UPDATE notification_service.event_outbox_capacity SET pending = greatest(0, pending - released_count);
+	END IF;
+	RETURN NULL;
+END
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE TRIGGER event_outbox_released
+	AFTER DELETE ON notification_service.event_outbox
+	REFERENCING OLD TABLE AS released
+	FOR EACH STATEMENT EXECUTE FUNCTION notification_service.event_outbox_released();
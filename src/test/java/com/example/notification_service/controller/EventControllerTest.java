@@ -1,6 +1,7 @@
 package com.example.notification_service.controller;
 
 import com.example.notification_service.entity.Event;
+import com.example.notification_service.exception.NotificationPipelineSaturatedException;
 import com.example.notification_service.repository.EventRepository;
 import com.example.notification_service.service.EventService;
 import org.junit.jupiter.api.Test;
@@ -16,10 +17,13 @@ import java.net.URI;
 import java.time.ZonedDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.LongStream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
@@ -39,14 +43,14 @@ class EventControllerTest {
     /**
      * Scenario: Получение всех событий
      * <p>
-     * Given: Существует два события в базе данных
-     * When: Выполняется запрос на получение всех событий
-     * Then: Возвращается список из двух событий с кодом OK
+     * Given: В базе данных 150 событий — больше размера страницы по умолчанию
+     * When: Выполняется запрос на получение событий без параметров after и limit
+     * Then: Возвращается весь список из 150 событий с кодом OK без ссылки на следующую страницу
      */
     @Test
     void shouldReturnAllEvents() {
-        List<Event> events = List.of(createDummyEvent(1L), createDummyEvent(2L));
-        given(eventRepository.findAll()).willReturn(events);
+        List<Event> events = LongStream.rangeClosed(1, 150).mapToObj(this::createDummyEvent).toList();
+        given(eventService.findAll()).willReturn(events);
 
         ResponseEntity<List<Event>> response = restTemplate.exchange(
                 "/api/events/",
@@ -57,7 +61,59 @@ class EventControllerTest {
         );
 
         assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
-        assertThat(response.getBody()).hasSize(2);
+        assertThat(response.getBody()).hasSize(150);
+        assertThat(response.getHeaders().get(HttpHeaders.LINK)).isNull();
+    }
+
+    /**
+     * Scenario: Постраничное получение событий
+     * <p>
+     * Given: После события 10 есть не меньше двух событий
+     * When: Запрашивается страница из двух событий после события 10
+     * Then: Возвращается страница и ссылка на следующую после последнего события страницы
+     */
+    @Test
+    void shouldReturnEventPageWithNextLink() {
+        given(eventService.findPage(10L, 2)).willReturn(List.of(createDummyEvent(11L), createDummyEvent(12L)));
+
+        ResponseEntity<List<Event>> response = restTemplate.exchange(
+                "/api/events/?after=10&limit=2",
+                HttpMethod.GET,
+                null,
+                new ParameterizedTypeReference<List<Event>>() {
+                }
+        );
+
+        assertThat(response.getBody()).extracting(Event::getId).containsExactly(11L, 12L);
+        assertThat(response.getHeaders().getFirst(HttpHeaders.LINK))
+                .isEqualTo("</api/events/?after=12&limit=2>; rel=\"next\"");
+    }
+
+    /**
+     * Scenario: Потоковая выгрузка событий
+     * <p>
+     * Given: Существует два события
+     * When: Запрашиваются события в формате NDJSON
+     * Then: Каждое событие возвращается отдельной строкой JSON
+     */
+    @Test
+    void shouldStreamEventsAsNdjson() {
+        doAnswer(invocation -> {
+            Consumer<Event> action = invocation.getArgument(0);
+            action.accept(createDummyEvent(1L));
+            action.accept(createDummyEvent(2L));
+            return null;
+        }).when(eventService).forEachEvent(any());
+
+        RequestEntity<Void> request = RequestEntity.get(URI.create("/api/events/"))
+                .accept(MediaType.parseMediaType("application/x-ndjson"))
+                .build();
+        ResponseEntity<String> response = restTemplate.exchange(request, String.class);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody().lines())
+                .hasSize(2)
+                .allSatisfy(line -> assertThat(line).startsWith("{\"id\":").endsWith("}"));
     }
 
     /**
@@ -104,6 +160,50 @@ class EventControllerTest {
         assertThat(createdEvent.getId()).isNotNull();
     }
 
+    /**
+     * Scenario: Создание пачки событий
+     * <p>
+     * Given: Массив из двух событий
+     * When: Выполняется запрос на создание пачки событий
+     * Then: Возвращается ответ с кодом CREATED и идентификаторы событий в порядке массива
+     */
+    @Test
+    void shouldCreateEventsBatch() {
+        given(eventService.createEvents(any())).willReturn(List.of(createDummyEvent(7L), createDummyEvent(8L)));
+
+        RequestEntity<List<Event>> request = RequestEntity.post(URI.create("/api/events/batch"))
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON)
+                .body(List.of(createDummyEvent(null), createDummyEvent(null)));
+
+        ResponseEntity<List<Long>> response = restTemplate.exchange(request, new ParameterizedTypeReference<List<Long>>() {
+        });
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.CREATED);
+        assertThat(response.getBody()).containsExactly(7L, 8L);
+    }
+
+    /**
+     * Scenario: Создание события при переполненной очереди рассылки
+     * <p>
+     * Given: Очередь рассылки событий заполнена
+     * When: Выполняется запрос на создание события
+     * Then: Возвращается ответ с кодом SERVICE_UNAVAILABLE
+     */
+    @Test
+    void shouldRejectEventWhenPipelineIsSaturated() {
+        given(eventService.createEvent(any())).willThrow(new NotificationPipelineSaturatedException());
+
+        RequestEntity<Event> request = RequestEntity.post(URI.create("/api/events/"))
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON)
+                .body(createDummyEvent(null));
+
+        ResponseEntity<Void> response = restTemplate.exchange(request, Void.class);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
     /**
      * Scenario: Обновление существующего события
      * <p>
@@ -147,7 +247,7 @@ class EventControllerTest {
         );
 
         assertThat(response.getStatusCode()).isEqualTo(HttpStatus.NO_CONTENT);
-        verify(eventRepository, times(1)).deleteById(validId);
+        verify(eventService, times(1)).deleteEvent(validId);
     }
 
     private Event createDummyEvent(Long id) {
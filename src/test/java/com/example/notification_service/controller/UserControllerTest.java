@@ -17,10 +17,16 @@ import java.net.URI;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.LongStream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
 @AutoConfigureMockMvc
@@ -38,19 +44,17 @@ class UserControllerTest {
     /**
      * Scenario: Получение всех пользователей
      * <p>
-     * Given: Есть три зарегистрированных пользователя
-     * When: Клиент запрашивает всех пользователей
-     * Then: Должен вернуться список из трёх пользователей с кодом OK
+     * Given: Есть 150 зарегистрированных пользователей — больше размера страницы по умолчанию
+     * When: Клиент запрашивает пользователей без параметров after и limit
+     * Then: Должен вернуться весь список из 150 пользователей с кодом OK без ссылки на следующую страницу
      */
     @Test
     void shouldReturnAllUsers() {
-        List<User> users = List.of(createDummyUser(1L), createDummyUser(2L), createDummyUser(3L));
+        List<User> users = LongStream.rangeClosed(1, 150).mapToObj(this::createDummyUser).toList();
         given(userService.findAll()).willReturn(users);
-        given(userMapper.toDto(users)).willReturn(List.of(
-                new UserDto(1L, "Иван Иванов", "{}"),
-                new UserDto(2L, "Анна Петрова", "{}"),
-                new UserDto(3L, "Алексей Сидоров", "{}")
-        ));
+        given(userMapper.toDto(users)).willReturn(users.stream()
+                .map(user -> new UserDto(user.getId(), user.getFullName(), "{}"))
+                .toList());
 
         ResponseEntity<List<UserDto>> response = restTemplate.exchange(
                 "/api/users/",
@@ -61,7 +65,9 @@ class UserControllerTest {
         );
 
         assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
-        assertThat(response.getBody()).hasSize(3);
+        assertThat(response.getBody()).hasSize(150);
+        assertThat(response.getHeaders().get(HttpHeaders.LINK)).isNull();
+        verify(userService, never()).findPage(anyLong(), anyInt());
     }
 
     /**
@@ -119,7 +125,8 @@ class UserControllerTest {
         long validId = 1L;
         User updatedUser = createDummyUser(validId);
         given(userService.findById(validId)).willReturn(Optional.of(updatedUser));
-        given(userService.normalizeUserNotificationScheduleAndSave(updatedUser)).willReturn(updatedUser);
+        given(userService.normalizeUserNotificationScheduleAndSave(argThat(user -> user.getId() == validId
+                && "Иван Иванов".equals(user.getFullName())))).willReturn(updatedUser);
         given(userMapper.toDto(updatedUser)).willReturn(new UserDto(validId, "Новое имя", "{}"));
 
         RequestEntity<User> request = RequestEntity.put(URI.create("/api/users/" + validId))
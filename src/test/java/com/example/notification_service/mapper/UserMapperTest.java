@@ -4,7 +4,6 @@ import com.example.notification_service.dto.UserDto;
 import com.example.notification_service.entity.User;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
-import org.mapstruct.factory.Mappers;
 
 import java.util.List;
 
@@ -16,7 +15,7 @@ class UserMapperTest {
 
     @BeforeEach
     void setup() {
-        userMapper = Mappers.getMapper(UserMapper.class);
+        userMapper = new UserMapperImpl(new ScheduleDescriber());
     }
 
     /**
@@ -100,4 +99,23 @@ class UserMapperTest {
         assertThat(dtos.get(0).id()).isEqualTo(user1.getId());
         assertThat(dtos.get(1).fullName()).isEqualTo(user2.getFullName());
     }
-}
\ No newline at end of file
+
+    /**
+     * Scenario: Описание одинаковых расписаний
+     * <p>
+     * Given: Два пользователя с равными, но разными экземплярами строк расписания
+     * When: Вызван метод toDto(List<User>)
+     * Then: Оба получают одно и то же описание, построенное один раз
+     */
+    @Test
+    void shouldDescribeSameScheduleOnce() {
+        String schedule = "{\"MONDAY\":[\"09:00-18:00\"],\"FRIDAY\":[\"10:00-12:00\"]}";
+        User first = new User(1L, "Иван Петров", schedule);
+        User second = new User(2L, "Анна Иванова", new String(schedule));
+
+        List<UserDto> dtos = userMapper.toDto(List.of(first, second));
+
+        assertThat(dtos.get(0).notificationSchedule()).isEqualTo("понедельник с 09:00 до 18:00, пятница с 10:00 до 12:00");
+        assertThat(dtos.get(1).notificationSchedule()).isSameAs(dtos.get(0).notificationSchedule());
+    }
+}
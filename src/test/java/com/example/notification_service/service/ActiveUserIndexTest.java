@@ -0,0 +1,124 @@
+package com.example.notification_service.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.DayOfWeek;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ActiveUserIndexTest {
+
+    private final ActiveUserIndex index = new ActiveUserIndex();
+
+    private final CompiledSchedule mondayMorning = CompiledSchedule.compile(
+            "morning", Map.of(DayOfWeek.MONDAY, List.of("09:00-12:00")));
+    private final CompiledSchedule mondayEvening = CompiledSchedule.compile(
+            "evening", Map.of(DayOfWeek.MONDAY, List.of("18:00-20:00")));
+
+    /**
+     * Scenario: Сдвиг множества активных пользователей по времени
+     * <p>
+     * Given: Индекс загружен в понедельник в 08:00 с утренним и вечерним расписаниями
+     * When: Запрашиваются активные пользователи в разное время понедельника
+     * Then: Возвращаются пользователи, чей период информирования включает это время
+     */
+    @Test
+    void shouldAdvanceActiveUsersThroughTransitions() {
+        index.load(Map.of(1L, mondayMorning, 2L, mondayEvening, 3L, mondayMorning), LocalDateTime.of(2025, 6, 2, 8, 0));
+
+        assertThat(index.activeUserIds(LocalDateTime.of(2025, 6, 2, 8, 59))).isEmpty();
+        assertThat(index.activeUserIds(LocalDateTime.of(2025, 6, 2, 9, 0))).containsExactly(1L, 3L);
+        assertThat(index.activeUserIds(LocalDateTime.of(2025, 6, 2, 12, 0))).containsExactly(1L, 3L);
+        assertThat(index.activeUserIds(LocalDateTime.of(2025, 6, 2, 12, 1))).isEmpty();
+        assertThat(index.activeUserIds(LocalDateTime.of(2025, 6, 2, 19, 30))).containsExactly(2L);
+    }
+
+    /**
+     * Scenario: Инкрементальное обновление индекса
+     * <p>
+     * Given: Индекс загружен в понедельник в 10:00 с одним активным пользователем
+     * When: Расписание пользователя изменено, добавлен новый пользователь, а затем удалён
+     * Then: Множество активных пользователей обновляется сразу и при последующих переходах
+     */
+    @Test
+    void shouldUpdateIncrementally() {
+        LocalDateTime mondayTen = LocalDateTime.of(2025, 6, 2, 10, 0);
+        index.load(Map.of(1L, mondayMorning), mondayTen);
+
+        index.put(1L, mondayEvening);
+        index.put(2L, mondayMorning);
+
+        assertThat(index.activeUserIds(mondayTen)).containsExactly(2L);
+        assertThat(index.activeUserIds(LocalDateTime.of(2025, 6, 2, 18, 0))).containsExactly(1L);
+
+        index.remove(1L);
+
+        assertThat(index.activeUserIds(LocalDateTime.of(2025, 6, 2, 18, 5))).isEmpty();
+        assertThat(index.activeUserIds(LocalDateTime.of(2025, 6, 9, 9, 30))).containsExactly(2L);
+    }
+
+    /**
+     * Scenario: Запрос активных пользователей за предыдущую минуту
+     * <p>
+     * Given: Индекс сдвинут с 08:59 на 09:00, когда начинается утренний период
+     * When: Запрашиваются активные пользователи в 08:59, а затем снова в 09:00
+     * Then: Возвращаются множества соответствующих минут
+     */
+    @Test
+    void shouldAnswerForPreviousMinute() {
+        index.load(Map.of(1L, mondayMorning), LocalDateTime.of(2025, 6, 2, 8, 59));
+        index.activeUserIds(LocalDateTime.of(2025, 6, 2, 9, 0));
+
+        assertThat(index.activeUserIds(LocalDateTime.of(2025, 6, 2, 8, 59, 59))).isEmpty();
+        assertThat(index.activeUserIds(LocalDateTime.of(2025, 6, 2, 9, 0, 1))).containsExactly(1L);
+    }
+
+    /**
+     * Scenario: Запросы за прошедшие минуты вперемешку с текущей
+     * <p>
+     * Given: Индекс сдвинут на понедельник 19:00, вечерний период идёт, утренний закончился
+     * When: Запрашиваются активные пользователи за 10:00 и 08:00 того же понедельника и за 10:00 предыдущей недели,
+     * вперемешку с запросами за 19:00, и после этого изменяется расписание
+     * Then: За прошедшие минуты возвращаются их множества, текущая минута индекса не сдвигается назад
+     */
+    @Test
+    void shouldAnswerForPastMinutesWithoutMovingBack() {
+        LocalDateTime mondaySeven = LocalDateTime.of(2025, 6, 2, 19, 0);
+        index.load(Map.of(1L, mondayMorning, 2L, mondayEvening), LocalDateTime.of(2025, 6, 2, 8, 0));
+        index.activeUserIds(mondaySeven);
+
+        assertThat(index.activeUserIds(LocalDateTime.of(2025, 6, 2, 10, 0))).containsExactly(1L);
+        assertThat(index.activeUserIds(mondaySeven)).containsExactly(2L);
+        assertThat(index.activeUserIds(LocalDateTime.of(2025, 6, 2, 8, 0))).isEmpty();
+        assertThat(index.activeUserIds(LocalDateTime.of(2025, 5, 26, 10, 0))).containsExactly(1L);
+
+        index.put(3L, mondayMorning);
+
+        assertThat(index.activeUserIds(LocalDateTime.of(2025, 5, 26, 10, 0, 30))).containsExactly(1L, 3L);
+        assertThat(index.activeUserIds(mondaySeven)).containsExactly(2L);
+        assertThat(index.activeUserIds(LocalDateTime.of(2025, 6, 2, 19, 1))).containsExactly(2L);
+    }
+
+    /**
+     * Scenario: Добавление многих пользователей одним вызовом
+     * <p>
+     * Given: Индекс загружен в понедельник в 10:00 с одним пользователем с вечерним расписанием
+     * When: Одним вызовом добавлены два новых пользователя и изменено расписание существующего
+     * Then: Множество активных пользователей обновляется сразу и при последующих переходах
+     */
+    @Test
+    void shouldPutManyUsersAtOnce() {
+        LocalDateTime mondayTen = LocalDateTime.of(2025, 6, 2, 10, 0);
+        index.load(Map.of(1L, mondayEvening), mondayTen);
+
+        index.putAll(Map.of(1L, mondayMorning, 3L, mondayMorning, 2L, mondayEvening));
+
+        assertThat(index.size()).isEqualTo(3);
+        assertThat(index.activeUserIds(mondayTen)).containsExactly(1L, 3L);
+        assertThat(index.activeUserIds(LocalDateTime.of(2025, 6, 2, 18, 0))).containsExactly(2L);
+        assertThat(index.activeUserIds(LocalDateTime.of(2025, 6, 9, 9, 0))).containsExactly(1L, 3L);
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.notification_service.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.DayOfWeek;
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CompiledScheduleTest {
+
+    /**
+     * Scenario: Период информирования через полночь с воскресенья на понедельник
+     * <p>
+     * Given: Расписание на воскресенье с 23:00 до 23:59 и на понедельник с 00:00 до 01:00
+     * When: Расписание скомпилировано
+     * Then: Период считается одним: начинается в воскресенье в 23:00 и заканчивается в понедельник в 01:01
+     */
+    @Test
+    void shouldMergeWindowAcrossEndOfWeek() {
+        CompiledSchedule schedule = CompiledSchedule.compile("overnight", Map.of(
+                DayOfWeek.SUNDAY, List.of("23:00-23:59"),
+                DayOfWeek.MONDAY, List.of("00:00-01:00")));
+
+        int sundayEleven = CompiledSchedule.minuteOfWeek(LocalDateTime.of(2025, 6, 8, 23, 0));
+        int mondayOneOhOne = CompiledSchedule.minuteOfWeek(LocalDateTime.of(2025, 6, 9, 1, 1));
+
+        assertThat(schedule.openingMinutes()).containsExactly(sundayEleven);
+        assertThat(schedule.closingMinutes()).containsExactly(mondayOneOhOne);
+        assertThat(schedule.minutesUntilNextOpening(mondayOneOhOne)).isEqualTo(sundayEleven - mondayOneOhOne);
+        assertThat(schedule.minutesUntilNextOpening(sundayEleven)).isEqualTo(CompiledSchedule.MINUTES_PER_WEEK);
+    }
+
+    /**
+     * Scenario: Круглосуточное и пустое расписания
+     * <p>
+     * Given: Расписание, покрывающее всю неделю, и пустое расписание
+     * When: Расписания скомпилированы
+     * Then: Ни у одного нет моментов начала и окончания периода
+     */
+    @Test
+    void shouldHaveNoTransitionsForConstantSchedules() {
+        Map<DayOfWeek, List<String>> allWeek = new EnumMap<>(DayOfWeek.class);
+        for (DayOfWeek day : DayOfWeek.values()) {
+            allWeek.put(day, List.of("00:00-23:59"));
+        }
+        CompiledSchedule always = CompiledSchedule.compile("always", allWeek);
+        CompiledSchedule never = CompiledSchedule.compile("never", Map.of());
+
+        assertThat(always.isEmpty()).isFalse();
+        assertThat(always.openingMinutes()).isEmpty();
+        assertThat(always.closingMinutes()).isEmpty();
+        assertThat(always.minutesUntilNextOpening(0)).isEqualTo(-1);
+        assertThat(never.isEmpty()).isTrue();
+        assertThat(never.openingMinutes()).isEmpty();
+        assertThat(never.minutesUntilNextOpening(0)).isEqualTo(-1);
+    }
+
+    /**
+     * Scenario: Периоды информирования как интервалы минут недели
+     * <p>
+     * Given: Расписание на вторник с 09:00 до 18:00 и период через полночь с воскресенья на понедельник
+     * When: Запрошены периоды информирования
+     * Then: Вторник — один полуинтервал до 18:01, период через конец недели делится на два
+     * And: Круглосуточное расписание — вся неделя, у пустого периодов нет
+     */
+    @Test
+    void shouldSplitWindowsAtEndOfWeek() {
+        CompiledSchedule schedule = CompiledSchedule.compile("tuesday and overnight", Map.of(
+                DayOfWeek.TUESDAY, List.of("09:00-18:00"),
+                DayOfWeek.SUNDAY, List.of("23:00-23:59"),
+                DayOfWeek.MONDAY, List.of("00:00-01:00")));
+        Map<DayOfWeek, List<String>> allWeek = new EnumMap<>(DayOfWeek.class);
+        for (DayOfWeek day : DayOfWeek.values()) {
+            allWeek.put(day, List.of("00:00-23:59"));
+        }
+
+        int tuesday = CompiledSchedule.MINUTES_PER_DAY;
+        int sunday = 6 * CompiledSchedule.MINUTES_PER_DAY;
+        assertThat(schedule.windows()).containsExactly(
+                new CompiledSchedule.Window(0, 61),
+                new CompiledSchedule.Window(tuesday + 9 * 60, tuesday + 18 * 60 + 1),
+                new CompiledSchedule.Window(sunday + 23 * 60, CompiledSchedule.MINUTES_PER_WEEK));
+        assertThat(CompiledSchedule.compile("always", allWeek).windows())
+                .containsExactly(new CompiledSchedule.Window(0, CompiledSchedule.MINUTES_PER_WEEK));
+        assertThat(CompiledSchedule.compile("never", Map.of()).windows()).isEmpty();
+    }
+}
@@ -0,0 +1,161 @@
+package com.example.notification_service.service;
+
+import com.example.notification_service.repository.UserEventRepository;
+import com.example.notification_service.web_socket.service.UserDisconnectedEvent;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+@ExtendWith(MockitoExtension.class)
+class DeliveryAcknowledgementsTest {
+
+    @InjectMocks
+    private DeliveryAcknowledgements deliveryAcknowledgements;
+
+    @Mock
+    private UserEventRepository userEventRepository;
+
+    @Mock
+    private DeliveryCursorService deliveryCursorService;
+
+    @Mock
+    private NotificationMetrics notificationMetrics;
+
+    /**
+     * Scenario: Подтверждение части отправленного
+     * <p>
+     * Given: Пользователю отправлены события очереди 1 и 2, затем события ленты 3 (номер 11) и 4 (номер 12)
+     * And: Лента прочитана до номера 12, курсор стоит на 10
+     * When: Пользователь подтверждает событие 3
+     * Then: Строки очереди 1 и 2 удаляются одним запросом, курсор сдвигается на 11
+     */
+    @Test
+    void shouldAcknowledgeMessagesSentBeforeEvent() {
+        given(userEventRepository.deleteDelivered(1L, List.of(1L, 2L))).willReturn(List.of(1L, 2L));
+        given(deliveryCursorService.advance(1L, 10, 11)).willReturn(true);
+        DeliveryAcknowledgements.Unacknowledged unacknowledged = deliveryAcknowledgements.start(1L, 10);
+        unacknowledged.sentFromQueue(1L);
+        unacknowledged.sentFromQueue(2L);
+        unacknowledged.sentFromFeed(3L, 11);
+        unacknowledged.sentFromFeed(4L, 12);
+        unacknowledged.readFeedUpTo(12);
+
+        deliveryAcknowledgements.acknowledge(1L, 3L);
+
+        verify(notificationMetrics).pendingRemoved(List.of(1L, 2L));
+        verify(notificationMetrics).pendingRemoved(List.of(3L));
+        verify(deliveryCursorService).advance(1L, 10, 11);
+        verify(deliveryCursorService, never()).advance(1L, 10, 12);
+    }
+
+    /**
+     * Scenario: Подтверждение всего отправленного
+     * <p>
+     * Given: Пользователю отправлено событие ленты 3 (номер 11), лента прочитана до номера 15
+     * When: Пользователь подтверждает событие 3
+     * Then: Курсор сдвигается в конец прочитанной ленты, очередь не изменяется
+     */
+    @Test
+    void shouldMoveCursorToFeedEndWhenEverythingAcknowledged() {
+        given(deliveryCursorService.advance(1L, 10, 15)).willReturn(true);
+        DeliveryAcknowledgements.Unacknowledged unacknowledged = deliveryAcknowledgements.start(1L, 10);
+        unacknowledged.sentFromFeed(3L, 11);
+        unacknowledged.readFeedUpTo(15);
+
+        deliveryAcknowledgements.acknowledge(1L, 3L);
+
+        verify(deliveryCursorService).advance(1L, 10, 15);
+        verify(userEventRepository, never()).deleteDelivered(any(), any());
+    }
+
+    /**
+     * Scenario: Подтверждение события, отправленного сразу после доставки очереди
+     * <p>
+     * Given: Пользователю отправлена строка очереди 1, затем при рассылке сразу отправлено событие 5
+     * When: Пользователь подтверждает событие 5
+     * Then: Строка очереди 1 удаляется, повторно она не отправляется
+     */
+    @Test
+    void shouldAcknowledgeLiveMessageSentAfterDrain() {
+        given(userEventRepository.deleteDelivered(1L, List.of(1L))).willReturn(List.of(1L));
+        DeliveryAcknowledgements.Unacknowledged unacknowledged = deliveryAcknowledgements.start(1L, 10);
+        unacknowledged.sentFromQueue(1L);
+        deliveryAcknowledgements.sentLive(1L, 5L);
+
+        deliveryAcknowledgements.acknowledge(1L, 5L);
+
+        verify(userEventRepository).deleteDelivered(1L, List.of(1L));
+        verify(notificationMetrics).pendingRemoved(List.of(1L));
+        verify(deliveryCursorService, never()).advance(any(), anyLong(), anyLong());
+        assertThat(unacknowledged.isSentFromQueue(1L)).isFalse();
+    }
+
+    /**
+     * Scenario: Повторная доставка до подтверждения
+     * <p>
+     * Given: Пользователю отправлена строка очереди 1 и событие ленты 3 (номер 11), лента прочитана до номера 15
+     * When: Доставка пользователю начинается снова с курсора 10
+     * Then: Продолжается та же доставка: строка 1 отмечена отправленной, лента читается после номера 15
+     */
+    @Test
+    void shouldResumeUnacknowledgedDelivery() {
+        DeliveryAcknowledgements.Unacknowledged unacknowledged = deliveryAcknowledgements.start(1L, 10);
+        unacknowledged.sentFromQueue(1L);
+        unacknowledged.sentFromFeed(3L, 11);
+        unacknowledged.readFeedUpTo(15);
+
+        DeliveryAcknowledgements.Unacknowledged resumed = deliveryAcknowledgements.start(1L, 10);
+
+        assertThat(resumed).isSameAs(unacknowledged);
+        assertThat(resumed.isSentFromQueue(1L)).isTrue();
+        assertThat(resumed.feedEnd()).isEqualTo(15);
+        verify(deliveryCursorService, never()).advance(any(), anyLong(), anyLong());
+    }
+
+    /**
+     * Scenario: Лента без сообщений пользователю
+     * <p>
+     * Given: Пользователю ничего не отправлено
+     * When: Лента прочитана до номера 15
+     * Then: Курсор сдвигается сразу, не дожидаясь подтверждения
+     */
+    @Test
+    void shouldMoveCursorWhenNothingSent() {
+        DeliveryAcknowledgements.Unacknowledged unacknowledged = deliveryAcknowledgements.start(1L, 10);
+
+        unacknowledged.readFeedUpTo(15);
+
+        verify(deliveryCursorService).advance(1L, 10, 15);
+    }
+
+    /**
+     * Scenario: Подтверждение неизвестного события
+     * <p>
+     * Given: Пользователю отправлено событие очереди 1, затем пользователь отключился
+     * When: Пользователь подтверждает событие 2, а после отключения — событие 1
+     * Then: Подтверждения игнорируются
+     */
+    @Test
+    void shouldIgnoreUnknownAcknowledgements() {
+        deliveryAcknowledgements.start(1L, 10).sentFromQueue(1L);
+
+        deliveryAcknowledgements.acknowledge(1L, 2L);
+        deliveryAcknowledgements.onUserDisconnected(new UserDisconnectedEvent(1L));
+        deliveryAcknowledgements.acknowledge(1L, 1L);
+
+        verifyNoInteractions(userEventRepository, notificationMetrics);
+        verify(deliveryCursorService, never()).advance(any(), anyLong(), anyLong());
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.notification_service.service;
+
+import com.example.notification_service.enums.DeliveryChannel;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DeliveryAuditBufferTest {
+
+    /**
+     * Scenario: Чтение записей в порядке добавления
+     * <p>
+     * Given: В буфер добавлены три записи
+     * When: Читатель забирает не более двух записей, затем остальные
+     * Then: Записи возвращаются по порядку и без потерь
+     */
+    @Test
+    void shouldDrainRecordsInOrder() {
+        DeliveryAuditBuffer buffer = new DeliveryAuditBuffer(4);
+        buffer.offer(1L, 10L, 100L, DeliveryChannel.LIVE);
+        buffer.offer(2L, 10L, 101L, DeliveryChannel.LIVE);
+        buffer.offer(1L, 11L, 102L, DeliveryChannel.QUEUED);
+
+        List<DeliveryRecord> first = new ArrayList<>();
+        List<DeliveryRecord> second = new ArrayList<>();
+
+        assertThat(buffer.drainTo(first, 2)).isEqualTo(2);
+        assertThat(buffer.drainTo(second, 2)).isEqualTo(1);
+        assertThat(first).containsExactly(
+                new DeliveryRecord(1L, 10L, 100L, DeliveryChannel.LIVE),
+                new DeliveryRecord(2L, 10L, 101L, DeliveryChannel.LIVE));
+        assertThat(second).containsExactly(new DeliveryRecord(1L, 11L, 102L, DeliveryChannel.QUEUED));
+        assertThat(buffer.size()).isZero();
+    }
+
+    /**
+     * Scenario: Переполнение буфера
+     * <p>
+     * Given: Буфер на две записи заполнен
+     * When: Добавляется третья запись, затем читатель освобождает место
+     * Then: Третья запись отбрасывается, после чтения буфер снова принимает записи
+     */
+    @Test
+    void shouldRejectWhenFull() {
+        DeliveryAuditBuffer buffer = new DeliveryAuditBuffer(2);
+
+        assertThat(buffer.offer(1L, 10L, 100L, DeliveryChannel.LIVE)).isTrue();
+        assertThat(buffer.offer(2L, 10L, 100L, DeliveryChannel.LIVE)).isTrue();
+        assertThat(buffer.offer(3L, 10L, 100L, DeliveryChannel.LIVE)).isFalse();
+
+        buffer.drainTo(new ArrayList<>(), 1);
+
+        assertThat(buffer.offer(3L, 10L, 100L, DeliveryChannel.LIVE)).isTrue();
+        assertThat(buffer.size()).isEqualTo(2);
+    }
+
+    /**
+     * Scenario: Одновременная запись из нескольких потоков
+     * <p>
+     * Given: Четыре потока добавляют по 10 000 записей, читатель забирает их параллельно
+     * When: Все потоки завершили запись
+     * Then: Прочитаны все записи, записи каждого потока идут в порядке добавления
+     */
+    @Test
+    void shouldKeepAllRecordsFromConcurrentWriters() throws InterruptedException {
+        DeliveryAuditBuffer buffer = new DeliveryAuditBuffer(1_024);
+        int writers = 4;
+        int perWriter = 10_000;
+        ExecutorService executor = Executors.newFixedThreadPool(writers);
+        for (int writer = 0; writer < writers; writer++) {
+            long userId = writer;
+            executor.execute(() -> {
+                for (int i = 0; i < perWriter; i++) {
+                    while (!buffer.offer(userId, i, i, DeliveryChannel.LIVE)) {
+                        Thread.onSpinWait();
+                    }
+                }
+            });
+        }
+
+        List<DeliveryRecord> drained = new ArrayList<>();
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (drained.size() < writers * perWriter && System.currentTimeMillis() < deadline) {
+            buffer.drainTo(drained, 256);
+        }
+        executor.shutdown();
+        assertThat(executor.awaitTermination(1, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(drained).hasSize(writers * perWriter);
+        long[] next = new long[writers];
+        for (DeliveryRecord record : drained) {
+            assertThat(record.eventId()).isEqualTo(next[(int) record.userId()]++);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.notification_service.service;
+
+import com.example.notification_service.configuration.NotificationProperties;
+import com.example.notification_service.enums.DeliveryChannel;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DeliveryAuditFileSinkTest {
+
+    @TempDir
+    private Path directory;
+
+    /**
+     * Scenario: Дозапись журнала в текстовом формате
+     * <p>
+     * Given: Файл журнала уже содержит запись
+     * When: Приёмник открывается заново и записывает пачку
+     * Then: Новая строка дописывается в конец файла через табуляцию
+     */
+    @Test
+    void shouldAppendTextLines() throws IOException {
+        Path file = directory.resolve("audit/delivery.log");
+        write(file, NotificationProperties.Audit.Format.TEXT, new DeliveryRecord(1L, 10L, 0L, DeliveryChannel.LIVE));
+        write(file, NotificationProperties.Audit.Format.TEXT, new DeliveryRecord(2L, 11L, 1_000L, DeliveryChannel.QUEUED));
+
+        assertThat(Files.readAllLines(file)).containsExactly(
+                "1970-01-01T00:00:00Z\t1\t10\tlive",
+                "1970-01-01T00:00:01Z\t2\t11\tqueued");
+    }
+
+    /**
+     * Scenario: Журнал в формате JSON
+     * <p>
+     * Given: Приёмник настроен на формат JSON
+     * When: Записывается пачка из одной записи
+     * Then: Запись сохраняется объектом JSON в одной строке
+     */
+    @Test
+    void shouldWriteJsonLines() throws IOException {
+        Path file = directory.resolve("delivery.jsonl");
+        write(file, NotificationProperties.Audit.Format.JSON, new DeliveryRecord(1L, 10L, 0L, DeliveryChannel.LIVE));
+
+        assertThat(Files.readAllLines(file)).containsExactly(
+                "{\"deliveredAt\":\"1970-01-01T00:00:00Z\",\"userId\":1,\"eventId\":10,\"channel\":\"live\"}");
+    }
+
+    /**
+     * Scenario: Ротация журнала
+     * <p>
+     * Given: Размер файла ограничен двумя строками, хранится один старый файл
+     * When: Записываются пять строк
+     * Then: В текущем файле последняя строка, в старом — две предыдущие, более ранние строки удалены
+     */
+    @Test
+    void shouldRotateFileOverMaxSize() throws IOException {
+        Path file = directory.resolve("delivery.log");
+        int lineLength = "1970-01-01T00:00:00Z\t1\t10\tlive\n".length();
+        DeliveryAuditFileSink sink = new DeliveryAuditFileSink(file, NotificationProperties.Audit.Format.TEXT,
+                2L * lineLength, 1);
+        for (long eventId = 10; eventId < 15; eventId++) {
+            sink.write(List.of(new DeliveryRecord(1L, eventId, 0L, DeliveryChannel.LIVE)));
+        }
+        sink.close();
+
+        assertThat(Files.readAllLines(file)).containsExactly("1970-01-01T00:00:00Z\t1\t14\tlive");
+        assertThat(Files.readAllLines(directory.resolve("delivery.log.1"))).containsExactly(
+                "1970-01-01T00:00:00Z\t1\t12\tlive",
+                "1970-01-01T00:00:00Z\t1\t13\tlive");
+        assertThat(directory.resolve("delivery.log.2")).doesNotExist();
+    }
+
+    private static void write(Path file, NotificationProperties.Audit.Format format, DeliveryRecord record)
+            throws IOException {
+        DeliveryAuditFileSink sink = new DeliveryAuditFileSink(file, format, Long.MAX_VALUE, 1);
+        sink.write(List.of(record));
+        sink.close();
+    }
+}
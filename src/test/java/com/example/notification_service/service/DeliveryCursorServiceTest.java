@@ -0,0 +1,129 @@
+package com.example.notification_service.service;
+
+import com.example.notification_service.entity.Event;
+import com.example.notification_service.repository.DeliveryCursorRepository;
+import com.example.notification_service.repository.EventRepository;
+import com.example.notification_service.repository.PendingEventCount;
+import com.example.notification_service.repository.SequencedEvent;
+import com.example.notification_service.repository.UserCursor;
+import com.example.notification_service.repository.UserEventRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+
+import java.time.DayOfWeek;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class DeliveryCursorServiceTest {
+
+    @InjectMocks
+    private DeliveryCursorService deliveryCursorService;
+
+    @Mock
+    private EventRepository eventRepository;
+
+    @Mock
+    private DeliveryCursorRepository deliveryCursorRepository;
+
+    @Mock
+    private UserEventRepository userEventRepository;
+
+    @Mock
+    private ScheduleHelper scheduleHelper;
+
+    @Mock
+    private NearCache nearCache;
+
+    private final CompiledSchedule mondayMorning = CompiledSchedule.compile(
+            "monday", Map.of(DayOfWeek.MONDAY, List.of("09:00-12:00")));
+
+    /**
+     * Scenario: Перенос ленты в очередь при смене расписания
+     * <p>
+     * Given: Курсор пользователя стоит на 5, в ленте события в 10:00 и в 13:00 понедельника
+     * And: Прежнее расписание пользователя — понедельник с 09:00 до 12:00
+     * When: Лента переносится по прежнему расписанию
+     * Then: В очередь ставится только событие в 13:00, курсор сдвигается на последнее событие
+     */
+    @Test
+    void shouldSettleEventsNotDeliveredLive() {
+        Event delivered = sequencedEvent(10L, 6L, mondayAt(10));
+        Event missed = sequencedEvent(11L, 7L, mondayAt(13));
+        given(deliveryCursorRepository.findCursor(1L)).willReturn(5L);
+        given(eventRepository.findSequencedIdsAfter(5L, Limit.of(500))).willReturn(List.of(10L, 11L));
+        given(nearCache.findEvents(List.of(10L, 11L))).willReturn(List.of(delivered, missed));
+        given(deliveryCursorRepository.advance(1L, 5L, 7L)).willReturn(true);
+
+        deliveryCursorService.settle(1L, mondayMorning);
+
+        verify(userEventRepository).enqueue(1L, List.of(11L));
+        verify(deliveryCursorRepository).advance(1L, 5L, 7L);
+    }
+
+    /**
+     * Scenario: Подсчёт недоставленных событий ленты при старте
+     * <p>
+     * Given: В ленте события 1 (10:00) и 2 (13:00) понедельника
+     * And: Пользователь 1 с утренним расписанием не получил ни одного события, пользователь 2 получил первое
+     * When: Подсчитывается недоставленное
+     * Then: Событие 2 не доставлено двум пользователям, событие 1 доставлено сразу и не учитывается
+     */
+    @Test
+    void shouldCountBacklogPerEvent() {
+        ZonedDateTime ten = mondayAt(10);
+        ZonedDateTime one = mondayAt(13);
+        given(deliveryCursorRepository.findOldestCursor()).willReturn(0L);
+        given(eventRepository.findSequencedSummariesAfter(0L)).willReturn(List.of(
+                new SequencedEvent(100L, 1L, ten),
+                new SequencedEvent(200L, 2L, one)));
+        given(scheduleHelper.compiledSchedule(any(), any())).willReturn(mondayMorning);
+        doAnswer(invocation -> {
+            Consumer<UserCursor> consumer = invocation.getArgument(1);
+            consumer.accept(new UserCursor(1L, 0L, "monday"));
+            consumer.accept(new UserCursor(2L, 1L, "monday"));
+            return null;
+        }).when(deliveryCursorRepository).forEachLagging(eq(2L), any());
+
+        List<PendingEventCount> backlog = deliveryCursorService.countBacklog();
+
+        assertThat(backlog).containsExactly(new PendingEventCount(200L, one.toInstant(), 2));
+    }
+
+    /**
+     * Scenario: Событие без времени
+     * <p>
+     * Given: Событие без указанного времени
+     * When: Проверяется, доставлено ли оно сразу
+     * Then: Событие считается недоставленным
+     */
+    @Test
+    void shouldTreatEventWithoutTimeAsNotDeliveredLive() {
+        assertThat(DeliveryCursorService.deliveredLive(new Event(1L, "message", null), mondayMorning)).isFalse();
+    }
+
+    private static Event sequencedEvent(Long id, Long deliverySeq, ZonedDateTime occurredAt) {
+        Event event = new Event(id, "message", occurredAt);
+        event.setDeliverySeq(deliverySeq);
+        return event;
+    }
+
+    private static ZonedDateTime mondayAt(int hour) {
+        return LocalDateTime.of(2025, 6, 2, hour, 0).atZone(ZoneId.systemDefault());
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.notification_service.service;
+
+import com.example.notification_service.configuration.NotificationProperties;
+import com.example.notification_service.web_socket.service.UserDisconnectedEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DeliveryRateLimiterTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    /**
+     * Scenario: Ограничения пользователя и экземпляра
+     * <p>
+     * Given: Пользователю можно отправить 2 сообщения подряд, всем пользователям экземпляра — 3
+     * When: Первому пользователю отправляются 3 сообщения, второму — 2
+     * Then: Первый получает 2 сообщения, второй — 1, отказы учитываются по причинам
+     * And: Отказ по общей корзине не расходует маркер пользователя
+     */
+    @Test
+    void shouldLimitPerUserAndGlobally() {
+        NotificationProperties properties = new NotificationProperties();
+        properties.getRateLimit().setUser(new NotificationProperties.RateLimit.Bucket(1, 2));
+        properties.getRateLimit().setGlobal(new NotificationProperties.RateLimit.Bucket(1, 3));
+        DeliveryRateLimiter limiter = new DeliveryRateLimiter(properties, new NotificationMetrics(meterRegistry));
+
+        assertThat(limiter.tryAcquire(1L)).isTrue();
+        assertThat(limiter.tryAcquire(1L)).isTrue();
+        assertThat(limiter.tryAcquire(1L)).isFalse();
+        assertThat(limiter.tryAcquire(2L)).isTrue();
+        assertThat(limiter.tryAcquire(2L)).isFalse();
+
+        assertThat(meterRegistry.get("notification.ratelimit.rejected").tag("scope", "user").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("notification.ratelimit.rejected").tag("scope", "global").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("notification.ratelimit.available").gauge().value()).isZero();
+    }
+
+    /**
+     * Scenario: Отложенные сообщения пользователя
+     * <p>
+     * Given: У пользователя есть сообщения, отложенные ограничением
+     * When: Пользователь отключается
+     * Then: Отложенное больше не учитывается, ограничение без включения не применяется
+     */
+    @Test
+    void shouldForgetBacklogOnDisconnect() {
+        NotificationProperties properties = new NotificationProperties();
+        properties.getRateLimit().setEnabled(false);
+        DeliveryRateLimiter limiter = new DeliveryRateLimiter(properties, new NotificationMetrics(meterRegistry));
+        limiter.markBacklogged(1L);
+
+        assertThat(limiter.isBacklogged(1L)).isTrue();
+        assertThat(limiter.isBacklogged(2L)).isFalse();
+
+        limiter.onUserDisconnected(new UserDisconnectedEvent(1L));
+
+        assertThat(limiter.isBacklogged(1L)).isFalse();
+        assertThat(limiter.tryAcquire(1L)).isTrue();
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.notification_service.service;
+
+import com.example.notification_service.configuration.NotificationProperties;
+import com.example.notification_service.web_socket.service.PrivateNotificationService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+class EventFanOutPipelineTest {
+
+    private final PrivateNotificationService privateNotificationService = mock(PrivateNotificationService.class);
+
+    private EventFanOutPipeline pipeline;
+
+    @BeforeEach
+    void init() {
+        pipeline = new EventFanOutPipeline(privateNotificationService, new NotificationProperties(),
+                new NotificationMetrics(new SimpleMeterRegistry()));
+    }
+
+    @AfterEach
+    void shutdown() throws InterruptedException {
+        pipeline.shutdown();
+    }
+
+    /**
+     * Scenario: Доставка опубликованных событий
+     * <p>
+     * Given: Получено уведомление о публикации двух событий
+     * When: События переданы на доставку
+     * Then: События доставляются подключённым пользователям одним вызовом в фоновом потоке
+     */
+    @Test
+    void shouldDeliverRelayedEvent() {
+        pipeline.deliverRelayed(List.of(10L, 11L));
+
+        verify(privateNotificationService, timeout(1_000)).deliverRelayedEvents(List.of(10L, 11L));
+    }
+
+    /**
+     * Scenario: Ошибка при доставке не останавливает конвейер
+     * <p>
+     * Given: Доставка первого события завершается ошибкой
+     * When: На доставку передаётся второе событие
+     * Then: Второе событие доставляется
+     */
+    @Test
+    void shouldKeepDeliveringAfterFailure() {
+        doThrow(new IllegalStateException("boom")).when(privateNotificationService).deliverRelayedEvents(List.of(10L));
+
+        pipeline.deliverRelayed(List.of(10L));
+        pipeline.deliverRelayed(List.of(11L));
+
+        verify(privateNotificationService, timeout(1_000)).deliverRelayedEvents(List.of(11L));
+    }
+
+    /**
+     * Scenario: Доставка не успевает за публикацией
+     * <p>
+     * Given: Один поток доставки занят, очередь доставки на одно уведомление заполнена
+     * When: На доставку передаётся ещё одно уведомление
+     * Then: Оно доставляется в вызывающем потоке до возврата из метода, очередь не растёт
+     */
+    @Test
+    void shouldDeliverInCallerWhenQueueIsFull() throws InterruptedException {
+        NotificationProperties properties = new NotificationProperties();
+        properties.getPipeline().setDeliveryThreads(1);
+        properties.getPipeline().setDeliveryQueueCapacity(1);
+        EventFanOutPipeline saturated = new EventFanOutPipeline(privateNotificationService, properties,
+                new NotificationMetrics(new SimpleMeterRegistry()));
+        CountDownLatch busy = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            busy.countDown();
+            release.await();
+            return null;
+        }).when(privateNotificationService).deliverRelayedEvents(List.of(10L));
+        AtomicReference<Thread> deliveredBy = new AtomicReference<>();
+        doAnswer(invocation -> {
+            deliveredBy.set(Thread.currentThread());
+            return null;
+        }).when(privateNotificationService).deliverRelayedEvents(List.of(12L));
+
+        try {
+            saturated.deliverRelayed(List.of(10L));
+            busy.await();
+            saturated.deliverRelayed(List.of(11L));
+            saturated.deliverRelayed(List.of(12L));
+
+            assertThat(deliveredBy.get()).isSameAs(Thread.currentThread());
+            verify(privateNotificationService, never()).deliverRelayedEvents(List.of(11L));
+        } finally {
+            release.countDown();
+            saturated.shutdown();
+        }
+        verify(privateNotificationService).deliverRelayedEvents(List.of(11L));
+    }
+}
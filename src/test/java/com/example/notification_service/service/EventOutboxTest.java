@@ -0,0 +1,162 @@
+package com.example.notification_service.service;
+
+import com.example.notification_service.configuration.NotificationProperties;
+import com.example.notification_service.entity.Event;
+import com.example.notification_service.exception.NotificationPipelineSaturatedException;
+import com.example.notification_service.repository.EventOutboxRepository;
+import com.example.notification_service.repository.EventRepository;
+import com.example.notification_service.web_socket.service.PrivateNotificationService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.OptionalInt;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class EventOutboxTest {
+
+    private final EventOutboxRepository eventOutboxRepository = mock(EventOutboxRepository.class);
+    private final EventRepository eventRepository = mock(EventRepository.class);
+    private final PrivateNotificationService privateNotificationService = mock(PrivateNotificationService.class);
+    private final NearCache nearCache = mock(NearCache.class);
+    private final NotificationProperties properties = new NotificationProperties();
+
+    private EventOutbox outbox;
+
+    @BeforeEach
+    void init() {
+        properties.getOutbox().setCapacity(2);
+        outbox = new EventOutbox(eventOutboxRepository, eventRepository, privateNotificationService, nearCache, properties,
+                new NotificationMetrics(new SimpleMeterRegistry()));
+    }
+
+    @AfterEach
+    void shutdown() throws InterruptedException {
+        outbox.stop();
+    }
+
+    /**
+     * Scenario: Публикация пачки событий из outbox
+     * <p>
+     * Given: Захвачены три события: первое создано в 10:00, второе и третье — в 10:01
+     * And: Публикация событий 10:00 завершается ошибкой
+     * When: Выполняется метод publishBatch
+     * Then: События публикуются по порядку, события одной минуты — вместе
+     * And: Из outbox удаляются только опубликованные
+     */
+    @Test
+    void shouldCompleteOnlyPublishedEvents() {
+        Event first = event(1L, 0);
+        Event second = event(2L, 1);
+        Event third = event(3L, 1);
+        when(eventOutboxRepository.claim(any(), any(), anyInt())).thenReturn(List.of(1L, 2L, 3L));
+        when(eventRepository.findAllById(List.of(1L, 2L, 3L))).thenReturn(List.of(third, first, second));
+        doThrow(new IllegalStateException("boom")).when(privateNotificationService).publishEvents(List.of(first));
+
+        int claimed = outbox.publishBatch();
+
+        assertThat(claimed).isEqualTo(3);
+        var order = inOrder(privateNotificationService);
+        order.verify(privateNotificationService).publishEvents(List.of(first));
+        order.verify(privateNotificationService).publishEvents(List.of(second, third));
+        verify(eventOutboxRepository).complete(eq(List.of(2L, 3L)), any());
+        verify(nearCache, times(2)).putEvent(any());
+    }
+
+    /**
+     * Scenario: Пустой outbox
+     * <p>
+     * Given: Нет событий, доступных для захвата
+     * When: Выполняется метод publishBatch
+     * Then: Ничего не публикуется и не удаляется
+     */
+    @Test
+    void shouldSkipWhenNothingClaimed() {
+        when(eventOutboxRepository.claim(any(), any(), anyInt())).thenReturn(List.of());
+
+        assertThat(outbox.publishBatch()).isZero();
+
+        verifyNoInteractions(eventRepository, privateNotificationService);
+        verify(eventOutboxRepository, never()).complete(any(), any());
+    }
+
+    /**
+     * Scenario: Переполнение outbox при добавлении
+     * <p>
+     * Given: Другие экземпляры заполнили outbox, пока событие сохранялось
+     * When: Событие добавляется в outbox
+     * Then: Выбрасывается исключение, следующие события отклоняются без сохранения
+     */
+    @Test
+    void shouldRejectWhenOutboxIsFull() {
+        Event event = event(1L, 0);
+        when(eventOutboxRepository.reserve(1, 2)).thenReturn(OptionalInt.empty());
+
+        outbox.checkCapacity();
+
+        assertThatThrownBy(() -> outbox.add(event)).isInstanceOf(NotificationPipelineSaturatedException.class);
+        assertThatThrownBy(outbox::checkCapacity).isInstanceOf(NotificationPipelineSaturatedException.class);
+        verify(eventOutboxRepository, never()).add(any());
+    }
+
+    /**
+     * Scenario: Добавление событий в транзакции
+     * <p>
+     * Given: Идёт транзакция создания событий
+     * When: В outbox добавляются два события
+     * Then: Строки outbox вставляются сразу, а место для событий занимается только перед фиксацией
+     */
+    @Test
+    void shouldReserveCapacityBeforeCommit() {
+        when(eventOutboxRepository.reserve(2, 2)).thenReturn(OptionalInt.of(2));
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            outbox.addAll(List.of(event(1L, 0), event(2L, 0)));
+
+            verify(eventOutboxRepository).add(List.of(1L, 2L));
+            verify(eventOutboxRepository, never()).reserve(anyInt(), anyInt());
+
+            TransactionSynchronizationManager.getSynchronizations()
+                    .forEach(synchronization -> synchronization.beforeCommit(false));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        verify(eventOutboxRepository).reserve(2, 2);
+        assertThatThrownBy(outbox::checkCapacity).isInstanceOf(NotificationPipelineSaturatedException.class);
+    }
+
+    /**
+     * Scenario: Пачка событий больше свободного места в outbox
+     * <p>
+     * Given: В outbox ёмкостью два события есть одно неопубликованное
+     * When: Проверяется место для пачки из двух событий
+     * Then: Выбрасывается исключение, для одного события место есть
+     * And: Число неопубликованных событий читается из счётчика в базе данных один раз за период опроса
+     */
+    @Test
+    void shouldRejectBatchLargerThanFreeCapacity() {
+        when(eventOutboxRepository.countPending()).thenReturn(1);
+        outbox.countPending();
+        outbox.countPending();
+
+        assertThatThrownBy(() -> outbox.checkCapacity(2)).isInstanceOf(NotificationPipelineSaturatedException.class);
+        outbox.checkCapacity(1);
+        verify(eventOutboxRepository, times(1)).countPending();
+    }
+
+    private static Event event(Long id, int minute) {
+        return new Event(id, "Событие " + id, ZonedDateTime.of(2025, 6, 2, 10, minute, 0, 0, ZoneId.systemDefault()));
+    }
+}
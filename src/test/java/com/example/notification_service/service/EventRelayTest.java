@@ -0,0 +1,133 @@
+package com.example.notification_service.service;
+
+import com.example.notification_service.entity.Event;
+import com.example.notification_service.repository.EventRepository;
+import com.example.notification_service.repository.UserEventRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+@ExtendWith(MockitoExtension.class)
+class EventRelayTest {
+
+    @InjectMocks
+    private EventRelay eventRelay;
+
+    @Mock
+    private EventRepository eventRepository;
+
+    @Mock
+    private UserEventRepository userEventRepository;
+
+    /**
+     * Scenario: Публикация события
+     * <p>
+     * Given: Событие 10 и двое активных пользователей, один из которых не подключён
+     * When: Событие публикуется
+     * Then: Событию назначается номер в ленте, неподключённому ставится в очередь, отправляется уведомление с номером
+     */
+    @Test
+    void shouldSequenceEnqueueAndNotify() {
+        Event event = new Event(10L, "Test Event", ZonedDateTime.now());
+        given(eventRepository.assignDeliverySeqs(List.of(10L))).willReturn(Map.of(10L, 7L));
+        given(userEventRepository.enqueueForDisconnectedUsers(List.of(10L), List.of(1L, 2L))).willReturn(1);
+
+        int enqueued = eventRelay.publish(List.of(event), List.of(1L, 2L));
+
+        assertThat(enqueued).isEqualTo(1);
+        assertThat(event.getDeliverySeq()).isEqualTo(7L);
+        InOrder inOrder = inOrder(eventRepository, userEventRepository);
+        inOrder.verify(eventRepository).assignDeliverySeqs(List.of(10L));
+        inOrder.verify(userEventRepository).enqueueForDisconnectedUsers(List.of(10L), List.of(1L, 2L));
+        inOrder.verify(eventRepository).publishNotification("notification_events", "10:7");
+    }
+
+    /**
+     * Scenario: Публикация нескольких событий
+     * <p>
+     * Given: События 10 и 11 и один активный пользователь
+     * When: События публикуются вместе
+     * Then: Очередь пополняется одним запросом, отправляется одно уведомление с событиями в порядке номеров
+     */
+    @Test
+    void shouldPublishEventsTogether() {
+        Event first = new Event(10L, "Первое", ZonedDateTime.now());
+        Event second = new Event(11L, "Второе", ZonedDateTime.now());
+        given(eventRepository.assignDeliverySeqs(List.of(10L, 11L))).willReturn(Map.of(10L, 7L, 11L, 8L));
+        given(userEventRepository.enqueueForDisconnectedUsers(List.of(10L, 11L), List.of(1L))).willReturn(2);
+
+        assertThat(eventRelay.publish(List.of(first, second), List.of(1L))).isEqualTo(2);
+
+        verify(eventRepository).publishNotification("notification_events", "10:7,11:8");
+    }
+
+    /**
+     * Scenario: Публикация события без активных пользователей
+     * <p>
+     * Given: Ни один пользователь не активен
+     * When: Событие публикуется
+     * Then: Очередь не изменяется
+     */
+    @Test
+    void shouldNotEnqueueWithoutActiveUsers() {
+        Event event = new Event(10L, "Test Event", ZonedDateTime.now());
+        given(eventRepository.assignDeliverySeqs(List.of(10L))).willReturn(Map.of(10L, 7L));
+
+        assertThat(eventRelay.publish(List.of(event), List.of())).isZero();
+        verifyNoInteractions(userEventRepository);
+    }
+
+    /**
+     * Scenario: Разбор уведомления
+     * <p>
+     * Given: Уведомления корректного и некорректного формата
+     * When: Уведомления разбираются
+     * Then: Из корректного извлекаются идентификатор и номер события, на некорректном выбрасывается исключение
+     */
+    @Test
+    void shouldParsePayload() {
+        assertThat(EventRelay.parse("10:7")).containsExactly(new EventRelay.RelayedEvent(10L, 7L));
+        assertThat(EventRelay.parse("10:7,11:8")).containsExactly(
+                new EventRelay.RelayedEvent(10L, 7L), new EventRelay.RelayedEvent(11L, 8L));
+        assertThatThrownBy(() -> EventRelay.parse("10")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> EventRelay.parse("10:7,11")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> EventRelay.parse("a:b")).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    /**
+     * Scenario: Разбиение длинного уведомления
+     * <p>
+     * Given: Тысяча событий, записи о которых не помещаются в одно уведомление
+     * When: Формируются уведомления
+     * Then: Каждое уведомление не длиннее предела Postgres, вместе они перечисляют все события по порядку
+     */
+    @Test
+    void shouldSplitLongPayload() {
+        List<Event> events = LongStream.rangeClosed(1, 1_000)
+                .mapToObj(id -> new Event(1_000_000_000L + id, "Событие", ZonedDateTime.now(), 1_000_000_000L + id))
+                .toList();
+
+        List<String> payloads = EventRelay.payloads(events);
+
+        assertThat(payloads).hasSizeGreaterThan(1)
+                .allMatch(payload -> payload.length() <= EventRelay.MAX_PAYLOAD_LENGTH);
+        assertThat(payloads.stream().flatMap(payload -> EventRelay.parse(payload).stream()).toList())
+                .extracting(EventRelay.RelayedEvent::eventId)
+                .containsExactlyElementsOf(events.stream().map(Event::getId).toList());
+    }
+}
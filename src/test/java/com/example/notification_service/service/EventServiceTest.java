@@ -3,15 +3,22 @@ package com.example.notification_service.service;
 
 import com.example.notification_service.entity.Event;
 import com.example.notification_service.repository.EventRepository;
-import com.example.notification_service.web_socket.service.PrivateNotificationService;
+import com.example.notification_service.exception.NotificationPipelineSaturatedException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+
+import java.time.Instant;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
@@ -24,7 +31,13 @@ class EventServiceTest {
     private EventRepository eventRepository;
 
     @Mock
-    private PrivateNotificationService privateNotificationService;
+    private EventOutbox eventOutbox;
+
+    @Mock
+    private NearCache nearCache;
+
+    @Spy
+    private NotificationMetrics notificationMetrics = new NotificationMetrics(new SimpleMeterRegistry());
 
     @BeforeEach
     void init() {
@@ -36,7 +49,7 @@ class EventServiceTest {
      * <p>
      * Given: Валидный объект события
      * When: Выполняется метод createEvent
-     * Then: Объект сохраняется в репозиторий, уведомление отправляется приватному сервису
+     * Then: Объект сохраняется в репозиторий, событие добавляется в outbox
      */
     @Test
     void shouldCreateEventSuccessfully() {
@@ -45,8 +58,9 @@ class EventServiceTest {
 
         Event result = serviceUnderTest.createEvent(inputEvent);
 
-        verify(eventRepository, times(1)).save(any());
-        verify(privateNotificationService, times(1)).sendEvent(any());
+        verify(eventOutbox, times(1)).checkCapacity();
+        verify(eventRepository, times(1)).saveAndFlush(any());
+        verify(eventOutbox, times(1)).add(any());
 
         Assertions.assertNotNull(result);
         Assertions.assertNotNull(result.getOccurredAt());
@@ -74,15 +88,54 @@ class EventServiceTest {
      * <p>
      * Given: Новое событие создано
      * When: Метод createEvent вызван
-     * Then: Приватный сервис уведомлений получает событие
+     * Then: Сохранённое событие добавляется в outbox
      */
     @Test
     void shouldNotifyAboutCreatedEvent() {
         Event inputEvent = new Event();
         inputEvent.setMessage("Sample Event");
+        given(eventRepository.saveAndFlush(inputEvent)).willReturn(inputEvent);
 
         serviceUnderTest.createEvent(inputEvent);
 
-        verify(privateNotificationService, times(1)).sendEvent(any());
+        verify(eventOutbox, times(1)).add(inputEvent);
+    }
+
+    /**
+     * Scenario: Отклонение события при переполненном outbox
+     * <p>
+     * Given: Outbox заполнен неопубликованными событиями
+     * When: Выполняется метод createEvent
+     * Then: Выбрасывается исключение, событие не сохраняется
+     */
+    @Test
+    void shouldRejectEventWhenPipelineIsSaturated() {
+        Event inputEvent = new Event();
+        inputEvent.setMessage("Sample Event");
+        doThrow(new NotificationPipelineSaturatedException()).when(eventOutbox).checkCapacity();
+
+        Assertions.assertThrows(NotificationPipelineSaturatedException.class,
+                () -> serviceUnderTest.createEvent(inputEvent));
+
+        verify(eventRepository, never()).saveAndFlush(any());
+        verify(eventOutbox, never()).add(any());
+    }
+
+    /**
+     * Scenario: Удаление события
+     * <p>
+     * Given: Событие ожидает доставки в очереди
+     * When: Выполняется метод deleteEvent
+     * Then: Событие удаляется, его строки перестают учитываться в глубине очереди
+     */
+    @Test
+    void shouldDeleteEventAndForgetItsQueue() {
+        notificationMetrics.pendingAdded(10L, Instant.now(), 3);
+
+        serviceUnderTest.deleteEvent(10L);
+
+        verify(eventRepository, times(1)).deleteById(10L);
+        verify(nearCache, times(1)).evictEvent(10L);
+        verify(notificationMetrics, times(1)).pendingEventRemoved(10L);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,120 @@
+package com.example.notification_service.service;
+
+import com.example.notification_service.configuration.NotificationProperties;
+import com.example.notification_service.entity.Event;
+import com.example.notification_service.entity.User;
+import com.example.notification_service.repository.EventRepository;
+import com.example.notification_service.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class NearCacheTest {
+
+    private final EventRepository eventRepository = mock(EventRepository.class);
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private NearCache nearCache;
+
+    @BeforeEach
+    void init() {
+        nearCache = new NearCache(eventRepository, userRepository, new NotificationProperties(),
+                new NotificationMetrics(meterRegistry));
+    }
+
+    /**
+     * Scenario: Повторное чтение события
+     * <p>
+     * Given: Событие есть в базе данных
+     * When: Событие читается дважды
+     * Then: База данных читается один раз, второе чтение учитывается как попадание в кэш
+     */
+    @Test
+    void shouldReadEventFromDatabaseOnce() {
+        Event event = new Event(10L, "Test Event", ZonedDateTime.now());
+        given(eventRepository.findById(10L)).willReturn(Optional.of(event));
+
+        assertThat(nearCache.findEvent(10L)).contains(event);
+        assertThat(nearCache.findEvent(10L)).contains(event);
+
+        verify(eventRepository, times(1)).findById(10L);
+        assertThat(meterRegistry.get("cache.gets").tags("cache", "events", "result", "hit").functionCounter().count())
+                .isEqualTo(1);
+        assertThat(meterRegistry.get("cache.gets").tags("cache", "events", "result", "miss").functionCounter().count())
+                .isEqualTo(1);
+    }
+
+    /**
+     * Scenario: Чтение пачки пользователей
+     * <p>
+     * Given: Один пользователь уже в кэше, второго нет, третьего не существует
+     * When: Читаются все три
+     * Then: Из базы данных читаются только отсутствующие, результат идёт в порядке идентификаторов
+     */
+    @Test
+    void shouldLoadOnlyMissingUsersInRequestedOrder() {
+        User first = new User(1L, "Пользователь 1", "{}");
+        User second = new User(2L, "Пользователь 2", "{}");
+        given(userRepository.findById(1L)).willReturn(Optional.of(first));
+        given(userRepository.findAllById(any())).willReturn(List.of(second));
+        nearCache.findUser(1L);
+
+        List<User> users = nearCache.findUsers(List.of(2L, 3L, 1L));
+
+        assertThat(users).containsExactly(second, first);
+        ArgumentCaptor<Iterable<Long>> loaded = ArgumentCaptor.captor();
+        verify(userRepository).findAllById(loaded.capture());
+        assertThat(loaded.getValue()).containsExactlyInAnyOrder(2L, 3L);
+    }
+
+    /**
+     * Scenario: Изменение события
+     * <p>
+     * Given: Событие находится в кэше
+     * When: Событие удаляется из кэша после изменения
+     * Then: Остальные экземпляры уведомляются, следующее чтение идёт в базу данных
+     */
+    @Test
+    void shouldEvictAndNotifyOtherInstances() {
+        Event event = new Event(10L, "Test Event", ZonedDateTime.now());
+        given(eventRepository.findById(10L)).willReturn(Optional.of(event));
+        nearCache.findEvent(10L);
+
+        nearCache.evictEvent(10L);
+        nearCache.findEvent(10L);
+
+        verify(eventRepository).publishNotification(NearCache.CHANNEL, "event:10");
+        verify(eventRepository, times(2)).findById(10L);
+    }
+
+    /**
+     * Scenario: Уведомление об изменении с другого экземпляра
+     * <p>
+     * Given: Пользователь находится в кэше
+     * When: Получено уведомление об изменении пользователя
+     * Then: Следующее чтение идёт в базу данных
+     */
+    @Test
+    void shouldEvictOnNotification() {
+        given(userRepository.findById(1L)).willReturn(Optional.of(new User(1L, "Пользователь 1", "{}")));
+        nearCache.findUser(1L);
+
+        nearCache.onNotification("user:1");
+        nearCache.findUser(1L);
+
+        verify(userRepository, times(2)).findById(1L);
+    }
+}
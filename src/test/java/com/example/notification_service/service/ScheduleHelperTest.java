@@ -112,4 +112,68 @@ class ScheduleHelperTest {
 
         assertThat(isActive).isFalse();
     }
-}
\ No newline at end of file
+
+    /**
+     * Scenario: Нормализация расписания возвращает скомпилированное расписание
+     * <p>
+     * Given: Пользователь с расписанием, где день недели указан в нижнем регистре
+     * When: Вызван метод normalizeUserSchedule()
+     * Then: Расписание приведено к DayOfWeek, скомпилированное расписание учитывает границы интервала
+     */
+    @Test
+    void shouldCompileScheduleOnNormalization() {
+        User user = new User();
+        user.setNotificationSchedule("""
+                {
+                    "monday": ["09:00-18:00"]
+                }
+                """);
+
+        CompiledSchedule compiled = helper.normalizeUserSchedule(user);
+
+        assertThat(user.getNotificationSchedule()).isEqualTo("{\"MONDAY\":[\"09:00-18:00\"]}");
+        assertThat(compiled.isActiveAt(LocalDateTime.of(2025, 6, 2, 9, 0))).isTrue();
+        assertThat(compiled.isActiveAt(LocalDateTime.of(2025, 6, 2, 18, 0))).isTrue();
+        assertThat(compiled.isActiveAt(LocalDateTime.of(2025, 6, 2, 8, 59))).isFalse();
+        assertThat(compiled.isActiveAt(LocalDateTime.of(2025, 6, 2, 18, 1))).isFalse();
+    }
+
+    /**
+     * Scenario: Устаревшее скомпилированное расписание не используется
+     * <p>
+     * Given: Для пользователя закэшировано расписание на понедельник
+     * And: Расписание пользователя изменено на вторник
+     * When: Вызван метод isUserActive()
+     * Then: Активность вычисляется по новому расписанию
+     */
+    @Test
+    void shouldRecompileScheduleWhenSourceChanged() {
+        User user = new User();
+        user.setId(1L);
+        user.setNotificationSchedule("{\"MONDAY\":[\"09:00-18:00\"]}");
+        helper.cacheSchedule(user.getId(), helper.normalizeUserSchedule(user));
+
+        user.setNotificationSchedule("{\"TUESDAY\":[\"09:00-18:00\"]}");
+
+        assertThat(helper.isUserActive(user, LocalDateTime.of(2025, 6, 2, 12, 0))).isFalse();
+        assertThat(helper.isUserActive(user, LocalDateTime.of(2025, 6, 3, 12, 0))).isTrue();
+    }
+
+    /**
+     * Scenario: Общее скомпилированное расписание для одинаковых расписаний
+     * <p>
+     * Given: Два пользователя с одинаковым расписанием, записанным в разном регистре
+     * When: Расписания нормализуются и проверяется активность третьего пользователя с тем же расписанием
+     * Then: Всем пользователям возвращается один и тот же экземпляр скомпилированного расписания
+     */
+    @Test
+    void shouldShareCompiledScheduleBetweenUsers() {
+        User first = new User(1L, "Иван Иванов", "{\"monday\":[\"09:00-18:00\"]}");
+        User second = new User(2L, "Анна Петрова", "{\"MONDAY\":[\"09:00-18:00\"]}");
+
+        CompiledSchedule compiled = helper.normalizeUserSchedule(first);
+
+        assertThat(helper.normalizeUserSchedule(second)).isSameAs(compiled);
+        assertThat(helper.compiledSchedule(3L, second.getNotificationSchedule())).isSameAs(compiled);
+    }
+}
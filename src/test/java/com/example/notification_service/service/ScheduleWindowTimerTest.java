@@ -0,0 +1,88 @@
+package com.example.notification_service.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.DayOfWeek;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ScheduleWindowTimerTest {
+
+    private final ScheduleWindowTimer timer = new ScheduleWindowTimer();
+
+    private final CompiledSchedule mondayMorning = CompiledSchedule.compile(
+            "monday", Map.of(DayOfWeek.MONDAY, List.of("09:01-12:00")));
+
+    /**
+     * Scenario: Срабатывание таймера в минуту открытия окна
+     * <p>
+     * Given: Пользователь с периодом информирования в понедельник с 09:01
+     * And: Таймер взведён в понедельник в 08:30
+     * When: Таймер опрашивается в 09:00 и в 09:01
+     * Then: Пользователь возвращается только в 09:01
+     */
+    @Test
+    void shouldFireAtWindowOpeningMinute() {
+        timer.arm(1L, mondayMorning, LocalDateTime.of(2025, 6, 2, 8, 30));
+
+        assertThat(timer.pollDue(LocalDateTime.of(2025, 6, 2, 9, 0))).isEmpty();
+        assertThat(timer.pollDue(LocalDateTime.of(2025, 6, 2, 9, 1, 3))).containsExactly(1L);
+    }
+
+    /**
+     * Scenario: Перевзведение таймера на следующую неделю
+     * <p>
+     * Given: Таймер пользователя сработал в понедельник в 09:01
+     * When: Таймер опрашивается в тот же день и в следующий понедельник в 09:01
+     * Then: Пользователь возвращается только через неделю
+     */
+    @Test
+    void shouldRearmAfterFiring() {
+        timer.arm(1L, mondayMorning, LocalDateTime.of(2025, 6, 2, 8, 30));
+        timer.pollDue(LocalDateTime.of(2025, 6, 2, 9, 1));
+
+        assertThat(timer.pollDue(LocalDateTime.of(2025, 6, 2, 23, 0))).isEmpty();
+        assertThat(timer.pollDue(LocalDateTime.of(2025, 6, 9, 9, 1))).containsExactly(1L);
+    }
+
+    /**
+     * Scenario: Отмена и перевзведение при изменении расписания
+     * <p>
+     * Given: Таймер одного пользователя отменён, другого перевзведён на новое расписание
+     * When: Наступает время открытия старого окна
+     * Then: Срабатывает только тот, у кого расписание совпадает с текущим
+     */
+    @Test
+    void shouldIgnoreCancelledAndReplacedTimers() {
+        LocalDateTime armedAt = LocalDateTime.of(2025, 6, 2, 8, 30);
+        timer.arm(1L, mondayMorning, armedAt);
+        timer.arm(2L, mondayMorning, armedAt);
+        timer.arm(3L, mondayMorning, armedAt);
+
+        timer.cancel(1L);
+        timer.arm(2L, CompiledSchedule.compile("tuesday", Map.of(DayOfWeek.TUESDAY, List.of("09:01-12:00"))), armedAt);
+
+        assertThat(timer.pollDue(LocalDateTime.of(2025, 6, 2, 9, 1))).containsExactly(3L);
+        assertThat(timer.pollDue(LocalDateTime.of(2025, 6, 3, 9, 1))).containsExactly(2L);
+    }
+
+    /**
+     * Scenario: Взведение таймера во время идущего периода
+     * <p>
+     * Given: Расписание пользователя сохранено в понедельник в 10:00, внутри периода информирования
+     * When: Таймер опрашивается в ту же минуту
+     * Then: Пользователь возвращается сразу, следующий раз — через неделю
+     */
+    @Test
+    void shouldFireImmediatelyWhenWindowIsAlreadyOpen() {
+        LocalDateTime mondayTen = LocalDateTime.of(2025, 6, 2, 10, 0);
+        timer.arm(1L, mondayMorning, mondayTen);
+
+        assertThat(timer.pollDue(mondayTen)).containsExactly(1L);
+        assertThat(timer.pollDue(LocalDateTime.of(2025, 6, 2, 10, 1))).isEmpty();
+        assertThat(timer.pollDue(LocalDateTime.of(2025, 6, 9, 9, 1))).containsExactly(1L);
+    }
+}
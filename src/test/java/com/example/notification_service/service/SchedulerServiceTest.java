@@ -2,13 +2,16 @@ package com.example.notification_service.service;
 
 
 import com.example.notification_service.entity.User;
-import com.example.notification_service.web_socket.service.PrivateNotificationService;
+import com.example.notification_service.web_socket.service.LiveSessionRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 import static org.mockito.BDDMockito.given;
@@ -23,7 +26,19 @@ class SchedulerServiceTest {
     private UserService userService;
 
     @Mock
-    private PrivateNotificationService privateNotificationService;
+    private UserScheduleSync userScheduleSync;
+
+    @Mock
+    private UserQueueDrainer userQueueDrainer;
+
+    @Mock
+    private ScheduleWindowTimer scheduleWindowTimer;
+
+    @Mock
+    private LiveSessionRegistry liveSessionRegistry;
+
+    @Spy
+    private NotificationMetrics notificationMetrics = new NotificationMetrics(new SimpleMeterRegistry());
 
     @BeforeEach
     void init() {
@@ -31,36 +46,39 @@ class SchedulerServiceTest {
     }
 
     /**
-     * Scenario: Обработка событий для активных пользователей
+     * Scenario: Обработка событий для пользователей, у которых открылось окно
      * <p>
-     * Given: Существует несколько активных пользователей
+     * Given: У трёх пользователей только что начался период информирования, двое из них подключены
      * When: Выполняется запланированная задача
-     * Then: Происходит обработка событий для каждого активного пользователя
+     * Then: Очереди подключённых пользователей передаются на доставку, очередь третьего ждёт его подключения
      */
     @Test
     void shouldProcessUserEvents() {
-        List<User> activeUsers = List.of(new User(), new User());
-        given(userService.findActiveUsers()).willReturn(activeUsers);
+        List<User> openedUsers = List.of(new User(), new User());
+        given(scheduleWindowTimer.pollDue(any(LocalDateTime.class))).willReturn(List.of(1L, 2L, 3L));
+        given(liveSessionRegistry.isConnected(1L)).willReturn(true);
+        given(liveSessionRegistry.isConnected(2L)).willReturn(true);
+        given(userService.findAllById(List.of(1L, 2L))).willReturn(openedUsers);
 
         schedulerService.sendWaitEvents();
 
-        verify(privateNotificationService, times(2)).processUserEvents(any(User.class));
+        verify(userQueueDrainer, times(1)).drain(openedUsers);
     }
 
     /**
-     * Scenario: Обработка событий при отсутствии активных пользователей
+     * Scenario: Обработка событий при отсутствии открывшихся окон
      * <p>
-     * Given: Нет активных пользователей
+     * Given: Ни у одного пользователя не начался период информирования
      * When: Выполняется запланированная задача
-     * Then: Никакие события не отправляются
+     * Then: Пользователи не загружаются, никакие события не отправляются
      */
     @Test
     void shouldHandleEmptyUserListGracefully() {
-        List<User> emptyUsers = List.of();
-        given(userService.findActiveUsers()).willReturn(emptyUsers);
+        given(scheduleWindowTimer.pollDue(any(LocalDateTime.class))).willReturn(List.of());
 
         schedulerService.sendWaitEvents();
 
-        verify(privateNotificationService, never()).processUserEvents(any(User.class));
+        verify(userService, never()).findAllById(any());
+        verify(userQueueDrainer, never()).drain(any());
     }
 }
@@ -0,0 +1,60 @@
+package com.example.notification_service.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TokenBucketTest {
+
+    private final AtomicLong now = new AtomicLong(1_000);
+
+    /**
+     * Scenario: Всплеск и пополнение корзины
+     * <p>
+     * Given: Корзина на 3 маркера со скоростью 10 маркеров в секунду
+     * When: Маркеры берутся подряд, затем проходит 100 мс
+     * Then: Выдаются 3 маркера, четвёртый — только после пополнения
+     */
+    @Test
+    void shouldLimitBurstAndRefill() {
+        TokenBucket bucket = new TokenBucket(10, 3, now::get);
+
+        assertThat(bucket.tryAcquire()).isTrue();
+        assertThat(bucket.tryAcquire()).isTrue();
+        assertThat(bucket.tryAcquire()).isTrue();
+        assertThat(bucket.tryAcquire()).isFalse();
+        assertThat(bucket.available()).isZero();
+
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(100));
+
+        assertThat(bucket.available()).isEqualTo(1);
+        assertThat(bucket.tryAcquire()).isTrue();
+        assertThat(bucket.tryAcquire()).isFalse();
+    }
+
+    /**
+     * Scenario: Корзина не копит маркеры сверх ёмкости
+     * <p>
+     * Given: Корзина на 2 маркера, простаивавшая минуту
+     * When: Маркеры берутся подряд, один возвращается
+     * Then: Выдаются 2 маркера, затем возвращённый
+     */
+    @Test
+    void shouldNotExceedBurstAndAcceptRefund() {
+        TokenBucket bucket = new TokenBucket(10, 2, now::get);
+        now.addAndGet(TimeUnit.MINUTES.toNanos(1));
+
+        assertThat(bucket.available()).isEqualTo(2);
+        assertThat(bucket.tryAcquire()).isTrue();
+        assertThat(bucket.tryAcquire()).isTrue();
+        assertThat(bucket.tryAcquire()).isFalse();
+
+        bucket.refund();
+
+        assertThat(bucket.tryAcquire()).isTrue();
+        assertThat(bucket.tryAcquire()).isFalse();
+    }
+}
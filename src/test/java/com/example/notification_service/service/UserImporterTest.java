@@ -0,0 +1,185 @@
+package com.example.notification_service.service;
+
+import com.example.notification_service.configuration.NotificationProperties;
+import com.example.notification_service.dto.UserImportResult;
+import com.example.notification_service.entity.User;
+import com.example.notification_service.entity.UserScheduleWindow;
+import com.example.notification_service.repository.UserRepository;
+import com.example.notification_service.repository.UserScheduleWindowRepository;
+import com.fasterxml.jackson.databind.RuntimeJsonMappingException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class UserImporterTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private UserScheduleWindowRepository userScheduleWindowRepository;
+
+    @Mock
+    private UserScheduleSync userScheduleSync;
+
+    @Mock
+    private DeliveryCursorService deliveryCursorService;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private final ScheduleHelper scheduleHelper = new ScheduleHelper();
+
+    private UserImporter userImporter;
+
+    @BeforeEach
+    void setUp() {
+        NotificationProperties properties = new NotificationProperties();
+        properties.getUserImport().setBatchSize(2);
+        userImporter = new UserImporter(userRepository, userScheduleWindowRepository, scheduleHelper,
+                userScheduleSync, deliveryCursorService, transactionManager, properties,
+                new NotificationMetrics(new SimpleMeterRegistry()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        userImporter.stop();
+    }
+
+    /**
+     * Scenario: Импорт пользователей пачками
+     * <p>
+     * Given: Три пользователя с расписаниями, размер пачки — два
+     * When: Вызван метод importUsers()
+     * Then: Идентификаторы выделяются и пользователи вставляются двумя пачками
+     * And: Расписания нормализованы, периоды информирования и курсоры созданы, таймеры взведены, индекс пополнен
+     * And: Каждая пачка вставляется в своей транзакции
+     */
+    @Test
+    void shouldImportUsersInBatches() {
+        given(userRepository.allocateIds(2)).willReturn(List.of(51L, 52L));
+        given(userRepository.allocateIds(1)).willReturn(List.of(53L));
+
+        UserImportResult result = userImporter.importUsers(List.of(
+                new User(7L, "Иван Иванов", "{\"monday\": [\"09:00-12:00\"]}"),
+                new User(null, "Анна Петрова", "{\"Friday\": [\"18:00-20:00\"]}"),
+                new User(null, "Алексей Сидоров", "{}")).iterator());
+
+        assertThat(result).isEqualTo(new UserImportResult(3, 0, true, List.of()));
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<User>> inserted = ArgumentCaptor.forClass(List.class);
+        verify(userRepository, times(2)).insertAll(inserted.capture());
+        assertThat(inserted.getAllValues().get(0)).extracting(User::getId, User::getNotificationSchedule)
+                .containsExactly(
+                        tuple(51L, "{\"MONDAY\":[\"09:00-12:00\"]}"),
+                        tuple(52L, "{\"FRIDAY\":[\"18:00-20:00\"]}"));
+        assertThat(inserted.getAllValues().get(1)).extracting(User::getId).containsExactly(53L);
+        verify(userScheduleWindowRepository).insertAll(List.of(
+                new UserScheduleWindow(51L, 9 * 60, 12 * 60 + 1),
+                new UserScheduleWindow(52L, 4 * CompiledSchedule.MINUTES_PER_DAY + 18 * 60, 4 * CompiledSchedule.MINUTES_PER_DAY + 20 * 60 + 1)));
+        verify(userScheduleWindowRepository).insertAll(List.of());
+        verify(deliveryCursorService).registerAll(List.of(51L, 52L));
+        verify(deliveryCursorService).registerAll(List.of(53L));
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Map<Long, CompiledSchedule>> saved = ArgumentCaptor.forClass(Map.class);
+        verify(userScheduleSync, times(2)).saved(saved.capture());
+        assertThat(saved.getAllValues().get(0)).containsOnlyKeys(51L, 52L);
+        assertThat(saved.getAllValues().get(1)).containsOnlyKeys(53L);
+        verify(transactionManager, times(2)).commit(any());
+    }
+
+    /**
+     * Scenario: Отклонение ошибочных записей
+     * <p>
+     * Given: Запись без имени, запись с неизвестным днём недели, неразобранная запись и одна корректная
+     * When: Вызван метод importUsers()
+     * Then: Создаётся только корректный пользователь, ошибки возвращаются с номерами записей
+     */
+    @Test
+    void shouldRejectInvalidRecords() {
+        given(userRepository.allocateIds(1)).willReturn(List.of(51L));
+        Iterator<User> users = iterator(
+                new User(null, " ", "{}"),
+                new RuntimeJsonMappingException("неверный тип поля"),
+                new User(null, "Анна Петрова", "{\"funday\": []}"),
+                new User(null, "Иван Иванов", "{}"));
+
+        UserImportResult result = userImporter.importUsers(users);
+
+        assertThat(result.imported()).isEqualTo(1);
+        assertThat(result.rejected()).isEqualTo(3);
+        assertThat(result.complete()).isTrue();
+        assertThat(result.errors()).hasSize(3)
+                .contains("запись 2: неверный тип поля")
+                .anyMatch(error -> error.startsWith("запись 1: "))
+                .anyMatch(error -> error.startsWith("запись 3: Ошибка при нормализации расписания"));
+        verify(deliveryCursorService).registerAll(List.of(51L));
+        verify(userScheduleSync).saved(Map.of(51L, scheduleHelper.compiledSchedule(null, "{}")));
+    }
+
+    /**
+     * Scenario: Прерывание импорта при ошибке чтения
+     * <p>
+     * Given: После одного корректного пользователя тело запроса обрывается
+     * When: Вызван метод importUsers()
+     * Then: Прочитанный пользователь создаётся, импорт отмечается незавершённым
+     */
+    @Test
+    void shouldStopOnUnreadableInput() {
+        given(userRepository.allocateIds(1)).willReturn(List.of(51L));
+        Iterator<User> users = iterator(new User(null, "Иван Иванов", "{}"), new RuntimeException("неожиданный конец"));
+
+        UserImportResult result = userImporter.importUsers(users);
+
+        assertThat(result.imported()).isEqualTo(1);
+        assertThat(result.complete()).isFalse();
+        assertThat(result.errors()).containsExactly("импорт прерван после записи 1: неожиданный конец");
+    }
+
+    /**
+     * Итератор, возвращающий пользователей и выбрасывающий переданные исключения на их позициях.
+     */
+    private static Iterator<User> iterator(Object... items) {
+        return new Iterator<>() {
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+                return next < items.length;
+            }
+
+            @Override
+            public User next() {
+                if (next >= items.length) {
+                    throw new NoSuchElementException();
+                }
+                Object item = items[next++];
+                if (item instanceof RuntimeException e) {
+                    throw e;
+                }
+                return (User) item;
+            }
+        };
+    }
+}
@@ -0,0 +1,208 @@
+package com.example.notification_service.service;
+
+import com.example.notification_service.configuration.NotificationProperties;
+import com.example.notification_service.entity.User;
+import com.example.notification_service.web_socket.service.DeliveryThrottledEvent;
+import com.example.notification_service.web_socket.service.LiveSessionRegistry;
+import com.example.notification_service.web_socket.service.PrivateNotificationService;
+import com.example.notification_service.web_socket.service.UserConnectedEvent;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class UserQueueDrainerTest {
+
+    private final PrivateNotificationService privateNotificationService = mock(PrivateNotificationService.class);
+    private final UserService userService = mock(UserService.class);
+    private final DeliveryCursorService deliveryCursorService = mock(DeliveryCursorService.class);
+    private final LiveSessionRegistry liveSessionRegistry = mock(LiveSessionRegistry.class);
+    private final DeliveryRateLimiter deliveryRateLimiter = mock(DeliveryRateLimiter.class);
+    private final ScheduledExecutorService retryScheduler = mock(ScheduledExecutorService.class);
+
+    private UserQueueDrainer drainer;
+
+    @BeforeEach
+    void init() {
+        when(deliveryCursorService.claim(any(), any(), any()))
+                .thenAnswer(invocation -> List.copyOf(invocation.<Collection<Long>>getArgument(0)));
+        NotificationProperties properties = new NotificationProperties();
+        properties.getRateLimit().setRetryDelay(Duration.ofMillis(10));
+        drainer = new UserQueueDrainer(privateNotificationService, userService, deliveryCursorService, liveSessionRegistry,
+                deliveryRateLimiter, properties, new NotificationMetrics(new SimpleMeterRegistry()), new HikariDataSource(),
+                retryScheduler);
+    }
+
+    @AfterEach
+    void shutdown() throws InterruptedException {
+        drainer.shutdown();
+    }
+
+    /**
+     * Scenario: Ошибка при доставке очереди одному из пользователей
+     * <p>
+     * Given: Доставка очереди первому пользователю завершается ошибкой
+     * When: Очереди трёх пользователей передаются на доставку
+     * Then: Очереди остальных пользователей доставляются, метод возвращается после завершения всех доставок
+     */
+    @Test
+    void shouldDrainAllUsersDespiteFailure() {
+        User failing = new User();
+        failing.setId(1L);
+        User second = new User();
+        second.setId(2L);
+        User third = new User();
+        third.setId(3L);
+        doThrow(new IllegalStateException("boom")).when(privateNotificationService).processUserEvents(failing);
+
+        drainer.drain(List.of(failing, second, third));
+
+        verify(privateNotificationService).processUserEvents(second);
+        verify(privateNotificationService).processUserEvents(third);
+        verify(deliveryCursorService).release(eq(1L), any());
+    }
+
+    /**
+     * Scenario: Пользователь захвачен другим исполнителем
+     * <p>
+     * Given: Из двух пользователей удалось захватить только второго
+     * When: Очереди пользователей передаются на доставку
+     * Then: Доставляется только очередь второго пользователя, после доставки он освобождается
+     */
+    @Test
+    void shouldDrainOnlyClaimedUsers() {
+        User claimedElsewhere = new User();
+        claimedElsewhere.setId(1L);
+        User claimed = new User();
+        claimed.setId(2L);
+        doReturn(List.of(2L)).when(deliveryCursorService).claim(eq(List.of(1L, 2L)), any(), any());
+
+        drainer.drain(List.of(claimedElsewhere, claimed));
+
+        verify(privateNotificationService).processUserEvents(claimed);
+        verify(privateNotificationService, never()).processUserEvents(claimedElsewhere);
+        verify(deliveryCursorService).release(eq(2L), any());
+        verify(deliveryCursorService, never()).release(eq(1L), any());
+    }
+
+    /**
+     * Scenario: Подключение пользователя
+     * <p>
+     * Given: Подключились два пользователя, у первого идёт период информирования, у второго нет
+     * When: Реестр сессий сообщает об их подключении
+     * Then: Очередь доставляется сразу только первому пользователю
+     */
+    @Test
+    void shouldDrainActiveUserOnConnect() {
+        User active = new User();
+        active.setId(1L);
+        User inactive = new User();
+        inactive.setId(2L);
+        when(userService.findById(1L)).thenReturn(Optional.of(active));
+        when(userService.findById(2L)).thenReturn(Optional.of(inactive));
+        when(userService.isUserActive(eq(active), any())).thenReturn(true);
+
+        drainer.onUserConnected(new UserConnectedEvent(1L));
+        drainer.onUserConnected(new UserConnectedEvent(2L));
+
+        verify(privateNotificationService, timeout(5000)).processUserEvents(active);
+        verify(userService, timeout(5000)).isUserActive(eq(inactive), any());
+        verify(privateNotificationService, never()).processUserEvents(inactive);
+    }
+
+    /**
+     * Scenario: Повтор доставки, остановленной ограничением скорости
+     * <p>
+     * Given: Подключённый пользователь с идущим периодом информирования и отключившийся пользователь
+     * When: Доставка обоим остановлена ограничением скорости, первому — дважды до повтора, и сработал таймер повтора
+     * Then: Повтор запланирован один раз, очередь повторно доставляется один раз и только подключённому пользователю
+     * And: Отложенного не осталось, следующий повтор не планируется
+     */
+    @Test
+    void shouldRetryThrottledDeliveryOnce() {
+        User connected = new User();
+        connected.setId(1L);
+        when(liveSessionRegistry.isConnected(1L)).thenReturn(true);
+        when(userService.findAllById(List.of(1L))).thenReturn(List.of(connected));
+        when(userService.isUserActive(eq(connected), any())).thenReturn(true);
+
+        drainer.onDeliveryThrottled(new DeliveryThrottledEvent(List.of(1L)));
+        drainer.onDeliveryThrottled(new DeliveryThrottledEvent(List.of(1L, 2L)));
+        runRetry();
+
+        verify(privateNotificationService, times(1)).processUserEvents(connected);
+        verify(deliveryCursorService).release(eq(1L), any());
+        verify(liveSessionRegistry).isConnected(2L);
+        verify(userService, times(1)).findAllById(any());
+        verify(retryScheduler, times(1)).schedule(any(Runnable.class), anyLong(), any());
+    }
+
+    /**
+     * Scenario: Повтор доставки, снова остановленной ограничением скорости
+     * <p>
+     * Given: Доставка подключённому пользователю остановлена ограничением скорости
+     * When: Во время повтора доставка снова остановлена, и у пользователя осталось отложенное
+     * Then: Пользователь остаётся до следующего повтора, который планируется один раз после завершения текущего
+     */
+    @Test
+    void shouldRetryAgainWhileBacklogged() {
+        User connected = new User();
+        connected.setId(1L);
+        when(liveSessionRegistry.isConnected(1L)).thenReturn(true);
+        when(userService.findAllById(List.of(1L))).thenReturn(List.of(connected));
+        when(userService.isUserActive(eq(connected), any())).thenReturn(true);
+        when(deliveryRateLimiter.isBacklogged(1L)).thenReturn(true);
+        doAnswer(invocation -> {
+            drainer.onDeliveryThrottled(new DeliveryThrottledEvent(List.of(1L)));
+            return null;
+        }).when(privateNotificationService).processUserEvents(connected);
+
+        drainer.onDeliveryThrottled(new DeliveryThrottledEvent(List.of(1L)));
+        runRetry();
+        runRetry();
+
+        verify(privateNotificationService, times(2)).processUserEvents(connected);
+        verify(retryScheduler, times(3)).schedule(any(Runnable.class), anyLong(), any());
+    }
+
+    private void runRetry() {
+        ArgumentCaptor<Runnable> retry = ArgumentCaptor.forClass(Runnable.class);
+        verify(retryScheduler, atLeastOnce()).schedule(retry.capture(), eq(10L), eq(TimeUnit.MILLISECONDS));
+        retry.getValue().run();
+    }
+
+    /**
+     * Scenario: Ограничение числа одновременных доставок
+     * <p>
+     * Given: Пул соединений Hikari на 10 соединений
+     * When: Ограничение не задано явно либо задано в настройках
+     * Then: Используется половина пула соединений либо заданное значение
+     */
+    @Test
+    void shouldLimitConcurrencyByConnectionPool() {
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setMaximumPoolSize(10);
+        NotificationProperties.Drain drain = new NotificationProperties.Drain();
+
+        assertThat(UserQueueDrainer.concurrency(drain, dataSource)).isEqualTo(5);
+
+        drain.setMaxConcurrency(3);
+
+        assertThat(UserQueueDrainer.concurrency(drain, dataSource)).isEqualTo(3);
+    }
+}
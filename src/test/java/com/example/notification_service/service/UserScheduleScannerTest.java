@@ -0,0 +1,56 @@
+package com.example.notification_service.service;
+
+import com.example.notification_service.repository.UserRepository;
+import com.example.notification_service.repository.UserSchedule;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.BDDMockito.given;
+
+@ExtendWith(MockitoExtension.class)
+class UserScheduleScannerTest {
+
+    @InjectMocks
+    private UserScheduleScanner scanner;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private ScheduleHelper scheduleHelper;
+
+    /**
+     * Scenario: Потоковый обход расписаний
+     * <p>
+     * Given: В базе два пользователя с расписаниями
+     * When: Вызван метод forEachSchedule()
+     * Then: Обработчик получает скомпилированное расписание каждого пользователя, поток закрывается
+     */
+    @Test
+    void shouldCompileEachScheduleAndCloseStream() {
+        CompiledSchedule first = CompiledSchedule.compile("first", Map.of());
+        CompiledSchedule second = CompiledSchedule.compile("second", Map.of());
+        AtomicBoolean closed = new AtomicBoolean();
+        given(userRepository.streamSchedules()).willReturn(Stream.of(
+                        new UserSchedule(1L, "first"),
+                        new UserSchedule(2L, "second"))
+                .onClose(() -> closed.set(true)));
+        given(scheduleHelper.compiledSchedule(1L, "first")).willReturn(first);
+        given(scheduleHelper.compiledSchedule(2L, "second")).willReturn(second);
+
+        Map<Long, CompiledSchedule> visited = new LinkedHashMap<>();
+        scanner.forEachSchedule(visited::put);
+
+        assertThat(visited).containsExactly(Map.entry(1L, first), Map.entry(2L, second));
+        assertThat(closed).isTrue();
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.notification_service.service;
+
+import com.example.notification_service.repository.EventRepository;
+import com.example.notification_service.repository.UserRepository;
+import com.example.notification_service.repository.UserSchedule;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.DayOfWeek;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class UserScheduleSyncTest {
+
+    @InjectMocks
+    private UserScheduleSync userScheduleSync;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private UserScheduleScanner userScheduleScanner;
+
+    @Mock
+    private ScheduleHelper scheduleHelper;
+
+    @Mock
+    private ScheduleWindowTimer scheduleWindowTimer;
+
+    @Mock
+    private ActiveUserIndex activeUserIndex;
+
+    @Mock
+    private EventRepository eventRepository;
+
+    private final CompiledSchedule monday =
+            CompiledSchedule.compile("monday", Map.of(DayOfWeek.MONDAY, List.of("09:00-18:00")));
+
+    /**
+     * Scenario: Сохранение пользователя
+     * <p>
+     * Given: Пользователь 1 сохранён с новым расписанием
+     * When: Вызван метод saved()
+     * Then: Расписание применяется на этом экземпляре
+     * And: Остальным экземплярам отправляется уведомление с идентификатором пользователя
+     */
+    @Test
+    void shouldApplyAndPublishSavedSchedule() {
+        userScheduleSync.saved(Map.of(1L, monday));
+
+        verify(scheduleHelper).cacheSchedule(1L, monday);
+        verify(scheduleWindowTimer).arm(eq(1L), eq(monday), any(LocalDateTime.class));
+        verify(activeUserIndex).put(1L, monday);
+        verify(eventRepository).publishNotification(UserScheduleSync.CHANNEL, "1");
+    }
+
+    /**
+     * Scenario: Уведомление от другого экземпляра
+     * <p>
+     * Given: Пользователь 1 изменён, пользователь 2 удалён на другом экземпляре
+     * When: Получено уведомление с их идентификаторами
+     * Then: Расписание пользователя 1 перечитывается и применяется, пользователь 2 забывается
+     */
+    @Test
+    void shouldReloadSchedulesOnNotification() {
+        given(userRepository.findSchedules(anyCollection())).willReturn(List.of(new UserSchedule(1L, "monday")));
+        given(scheduleHelper.compiledSchedule(1L, "monday")).willReturn(monday);
+
+        userScheduleSync.onNotification("1,2");
+
+        verify(scheduleWindowTimer).arm(eq(1L), eq(monday), any(LocalDateTime.class));
+        verify(activeUserIndex).put(1L, monday);
+        verify(scheduleHelper).evictSchedule(2L);
+        verify(scheduleWindowTimer).cancel(2L);
+        verify(activeUserIndex).remove(2L);
+        verify(activeUserIndex, never()).remove(1L);
+        verify(eventRepository, never()).publishNotification(any(), any());
+    }
+
+    /**
+     * Scenario: Загрузка всех расписаний
+     * <p>
+     * Given: Существуют два пользователя с расписаниями
+     * When: Вызван метод reloadAll()
+     * Then: Таймер взводится для обоих, индекс активных пользователей загружается
+     */
+    @Test
+    void shouldArmTimersAndLoadIndexOnReload() {
+        CompiledSchedule never = CompiledSchedule.compile("{}", Map.of());
+        doAnswer(invocation -> {
+            BiConsumer<Long, CompiledSchedule> action = invocation.getArgument(0);
+            action.accept(1L, monday);
+            action.accept(2L, never);
+            return null;
+        }).when(userScheduleScanner).forEachSchedule(any());
+
+        userScheduleSync.reloadAll();
+
+        verify(scheduleWindowTimer).arm(eq(1L), eq(monday), any(LocalDateTime.class));
+        verify(scheduleWindowTimer).arm(eq(2L), eq(never), any(LocalDateTime.class));
+        verify(activeUserIndex).load(eq(Map.of(1L, monday, 2L, never)), any(LocalDateTime.class));
+    }
+}
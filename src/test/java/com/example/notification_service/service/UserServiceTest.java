@@ -1,23 +1,35 @@
 package com.example.notification_service.service;
 
 import com.example.notification_service.entity.User;
+import com.example.notification_service.repository.UserEventRepository;
 import com.example.notification_service.repository.UserRepository;
+import com.example.notification_service.repository.UserScheduleWindowRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.given;
-import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 
 @ExtendWith(MockitoExtension.class)
 class UserServiceTest {
@@ -31,19 +43,40 @@ class UserServiceTest {
     @Mock
     private ScheduleHelper scheduleHelper;
 
+    @Mock
+    private ActiveUserIndex activeUserIndex;
+
+    @Mock
+    private UserEventRepository userEventRepository;
+
+    @Mock
+    private UserScheduleWindowRepository userScheduleWindowRepository;
+
+    @Mock
+    private DeliveryCursorService deliveryCursorService;
+
+    @Spy
+    private NotificationMetrics notificationMetrics = new NotificationMetrics(new SimpleMeterRegistry());
+
+    @Mock
+    private NearCache nearCache;
+
+    @Mock
+    private UserScheduleSync userScheduleSync;
+
     /**
-     * Scenario: Поиск всех пользователей
+     * Scenario: Поиск страницы пользователей
      * <p>
-     * Given: Репозиторий возвращает список пользователей
-     * When: Вызван метод findAll()
-     * Then: Возвращается полный список пользователей
+     * Given: Репозиторий возвращает пользователей после курсора
+     * When: Вызван метод findPage()
+     * Then: Возвращается страница пользователей после курсора
      */
     @Test
-    void shouldReturnAllUsers() {
+    void shouldReturnUserPage() {
         List<User> users = List.of(new User(), new User());
-        given(userRepository.findAll()).willReturn(users);
+        given(userRepository.findByIdGreaterThanOrderById(10L, Limit.of(2))).willReturn(users);
 
-        List<User> retrievedUsers = userService.findAll();
+        List<User> retrievedUsers = userService.findPage(10L, 2);
 
         assertThat(retrievedUsers).isEqualTo(users);
     }
@@ -53,13 +86,13 @@ class UserServiceTest {
      * <p>
      * Given: Пользователь с указанным ID существует
      * When: Вызван метод findById()
-     * Then: Возвращается пользователь с указанным ID
+     * Then: Пользователь возвращается из кэша
      */
     @Test
     void shouldFindUserById() {
         User user = new User();
         user.setId(1L);
-        given(userRepository.findById(1L)).willReturn(Optional.of(user));
+        given(nearCache.findUser(1L)).willReturn(Optional.of(user));
 
         Optional<User> retrievedUser = userService.findById(1L);
 
@@ -80,7 +113,37 @@ class UserServiceTest {
 
         userService.deleteById(userId);
 
+        verify(userEventRepository).deleteAllForUser(userId);
         verify(userRepository).deleteById(userId);
+        verify(nearCache).evictUser(userId);
+        verify(userScheduleSync).deleted(userId);
+    }
+
+    /**
+     * Scenario: Удаление пользователя внутри транзакции
+     * <p>
+     * Given: Пользователь удаляется внутри транзакции
+     * When: Вызван метод deleteById(), затем транзакция фиксируется
+     * Then: Очередь и пользователь удаляются сразу, кэш и расписания в памяти изменяются только после фиксации
+     */
+    @Test
+    void shouldEvictDeletedUserAfterCommit() {
+        Long userId = 1L;
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            userService.deleteById(userId);
+
+            verify(userEventRepository).deleteAllForUser(userId);
+            verify(userRepository).deleteById(userId);
+            verifyNoInteractions(nearCache, userScheduleSync);
+
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        verify(nearCache).evictUser(userId);
+        verify(userScheduleSync).deleted(userId);
     }
 
     /**
@@ -93,37 +156,119 @@ class UserServiceTest {
     @Test
     void shouldNormalizeAndSaveUser() {
         User user = new User();
+        user.setId(1L);
         user.setNotificationSchedule("{\"MONDAY\": [\"09:00-18:00\"]}");
+        CompiledSchedule compiledSchedule = CompiledSchedule.compile(user.getNotificationSchedule(), Map.of());
 
-        doNothing().when(scheduleHelper).normalizeUserSchedule(user);
-        given(userRepository.save(user)).willReturn(user);
+        given(scheduleHelper.normalizeUserSchedule(user)).willReturn(compiledSchedule);
+        given(userRepository.saveAndFlush(user)).willReturn(user);
 
         User savedUser = userService.normalizeUserNotificationScheduleAndSave(user);
 
         assertThat(savedUser).isEqualTo(user);
+        verify(nearCache).evictUser(1L);
+        verify(userScheduleSync).saved(Map.of(1L, compiledSchedule));
+        verify(userScheduleWindowRepository).replaceAll(1L, List.of());
+        verify(deliveryCursorService).register(1L);
+        verify(deliveryCursorService, never()).settle(any(), any());
+    }
+
+    /**
+     * Scenario: Смена расписания пользователя
+     * <p>
+     * Given: Пользователь с ранее сохранённым расписанием
+     * When: Расписание изменено и сохранено
+     * Then: Недоставленная часть ленты переносится в очередь по прежнему расписанию до сохранения нового
+     */
+    @Test
+    void shouldSettleEventFeedWhenScheduleChanges() {
+        User user = new User();
+        user.setId(1L);
+        user.setNotificationSchedule("{\"TUESDAY\": [\"09:00-18:00\"]}");
+        CompiledSchedule previous = CompiledSchedule.compile("{\"MONDAY\":[\"09:00-18:00\"]}", Map.of());
+        CompiledSchedule updated = CompiledSchedule.compile(user.getNotificationSchedule(), Map.of());
+        given(scheduleHelper.cachedSchedule(1L)).willReturn(Optional.of(previous));
+        given(scheduleHelper.normalizeUserSchedule(user)).willReturn(updated);
+        given(userRepository.saveAndFlush(user)).willReturn(user);
+
+        userService.normalizeUserNotificationScheduleAndSave(user);
+
+        InOrder inOrder = inOrder(deliveryCursorService, userRepository);
+        inOrder.verify(deliveryCursorService).settle(1L, previous);
+        inOrder.verify(userRepository).saveAndFlush(user);
+    }
+
+    /**
+     * Scenario: Обновление памяти после фиксации транзакции
+     * <p>
+     * Given: Пользователь сохраняется внутри транзакции
+     * When: Вызван метод normalizeUserNotificationScheduleAndSave(), затем транзакция фиксируется
+     * Then: Кэш и расписания в памяти не изменяются до фиксации и обновляются после неё
+     */
+    @Test
+    void shouldUpdateMemoryAfterCommit() {
+        User user = new User();
+        user.setId(1L);
+        user.setNotificationSchedule("{\"MONDAY\": [\"09:00-18:00\"]}");
+        CompiledSchedule compiledSchedule = CompiledSchedule.compile(user.getNotificationSchedule(), Map.of());
+        given(scheduleHelper.normalizeUserSchedule(user)).willReturn(compiledSchedule);
+        given(userRepository.saveAndFlush(user)).willReturn(user);
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            userService.normalizeUserNotificationScheduleAndSave(user);
+
+            verify(deliveryCursorService).register(1L);
+            verifyNoInteractions(nearCache, userScheduleSync);
+
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        verify(nearCache).evictUser(1L);
+        verify(userScheduleSync).saved(Map.of(1L, compiledSchedule));
+    }
+
+    /**
+     * Scenario: Поиск активных пользователей до загрузки индекса
+     * <p>
+     * Given: Индекс активных пользователей ещё не загружен
+     * And: В таблице периодов информирования текущую минуту содержит период одного пользователя
+     * When: Вызван метод findActiveUsers()
+     * Then: Активные пользователи ищутся по минуте недели в базе данных, загружаются только они
+     */
+    @Test
+    void shouldFindActiveUsersInDatabaseBeforeIndexIsLoaded() {
+        User activeUser = new User();
+        activeUser.setId(1L);
+        given(userScheduleWindowRepository.findActiveUserIds(anyInt())).willReturn(List.of(1L));
+        given(nearCache.findUsers(List.of(1L))).willReturn(List.of(activeUser));
+
+        List<User> activeUsers = userService.findActiveUsers();
+
+        assertThat(activeUsers).containsOnly(activeUser);
+        verify(userRepository, never()).findAll();
     }
 
     /**
-     * Scenario: Поиск активных пользователей
+     * Scenario: Поиск активных пользователей по индексу
      * <p>
-     * Given: Есть несколько пользователей, один из которых активен
+     * Given: Индекс активных пользователей загружен и содержит одного активного пользователя
      * When: Вызван метод findActiveUsers()
-     * Then: Возвращается список активных пользователей
+     * Then: Загружается только активный пользователь, полный список пользователей не читается
      */
     @Test
-    void shouldFindActiveUsers() {
+    void shouldFindActiveUsersByIndex() {
         User activeUser = new User();
         activeUser.setId(1L);
-        User inactiveUser = new User();
-        inactiveUser.setId(2L);
-        List<User> users = List.of(activeUser, inactiveUser);
-        given(userRepository.findAll()).willReturn(users);
-        given(scheduleHelper.isUserActive(eq(activeUser), any(LocalDateTime.class))).willReturn(true);
-        given(scheduleHelper.isUserActive(eq(inactiveUser), any(LocalDateTime.class))).willReturn(false);
+        given(activeUserIndex.isReady()).willReturn(true);
+        given(activeUserIndex.activeUserIds(any(LocalDateTime.class))).willReturn(new long[]{1L});
+        given(nearCache.findUsers(List.of(1L))).willReturn(List.of(activeUser));
 
         List<User> activeUsers = userService.findActiveUsers();
 
         assertThat(activeUsers).containsOnly(activeUser);
+        verify(userRepository, never()).findAll();
     }
 
     /**
@@ -144,4 +289,4 @@ class UserServiceTest {
 
         assertThat(isActive).isTrue();
     }
-}
\ No newline at end of file
+}
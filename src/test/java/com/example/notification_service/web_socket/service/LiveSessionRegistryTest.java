@@ -0,0 +1,168 @@
+package com.example.notification_service.web_socket.service;
+
+import com.example.notification_service.repository.LiveSessionRepository;
+import com.example.notification_service.repository.RelayNode;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.broker.SimpleBrokerMessageHandler;
+import org.springframework.messaging.support.MessageBuilder;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+class LiveSessionRegistryTest {
+
+    private final ApplicationEventPublisher eventPublisher = mock(ApplicationEventPublisher.class);
+
+    private final LiveSessionRepository liveSessionRepository = mock(LiveSessionRepository.class);
+
+    private final LiveSessionRegistry registry = new LiveSessionRegistry(eventPublisher, liveSessionRepository);
+
+    private final RelayNode node = new RelayNode(42, OffsetDateTime.now());
+
+    private final MessageChannel clientInboundChannel = mock(MessageChannel.class);
+
+    private final SimpleBrokerMessageHandler broker = mock(SimpleBrokerMessageHandler.class);
+
+    /**
+     * Scenario: Подключение пользователя в двух сессиях
+     * <p>
+     * Given: Пользователь подписался на свою очередь из двух сессий
+     * When: Одна сессия отписывается, другая закрывается
+     * Then: Пользователь считается подключённым до закрытия последней подписки
+     * And: События подключения и отключения публикуются по одному разу
+     */
+    @Test
+    void shouldTrackUserAcrossSessions() {
+        handled(stomp(SimpMessageType.SUBSCRIBE, "s1", "sub-0", "/queue/user/1"));
+        handled(stomp(SimpMessageType.SUBSCRIBE, "s2", "sub-0", "/queue/user/1"));
+
+        assertThat(registry.isConnected(1L)).isTrue();
+        verify(eventPublisher, times(1)).publishEvent(new UserConnectedEvent(1L));
+
+        handled(stomp(SimpMessageType.UNSUBSCRIBE, "s1", "sub-0", null));
+
+        assertThat(registry.isConnected(1L)).isTrue();
+        verify(eventPublisher, never()).publishEvent(new UserDisconnectedEvent(1L));
+
+        handled(stomp(SimpMessageType.DISCONNECT, "s2", null, null));
+
+        assertThat(registry.isConnected(1L)).isFalse();
+        assertThat(registry.connectedUsers()).isZero();
+        verify(eventPublisher, times(1)).publishEvent(new UserDisconnectedEvent(1L));
+    }
+
+    /**
+     * Scenario: Подписка с подтверждениями
+     * <p>
+     * Given: Пользователь подписан из сессии s1 с заголовком ack: client и из сессии s2 без него
+     * When: Подписка с подтверждениями отменяется
+     * Then: До отмены пользователь подтверждает получение, после — нет, но остаётся подключённым
+     * And: Сессия считается подписанной только на очередь своего пользователя
+     */
+    @Test
+    void shouldTrackAcknowledgingSubscriptions() {
+        Message<byte[]> acknowledging = stomp(SimpMessageType.SUBSCRIBE, "s1", "sub-0", "/queue/user/1", "client");
+        handled(acknowledging);
+        handled(stomp(SimpMessageType.SUBSCRIBE, "s2", "sub-0", "/queue/user/1"));
+
+        assertThat(registry.acknowledges(1L)).isTrue();
+        assertThat(registry.isSubscribed("s1", 1L)).isTrue();
+        assertThat(registry.isSubscribed("s1", 2L)).isFalse();
+        assertThat(registry.isSubscribed("s3", 1L)).isFalse();
+
+        handled(stomp(SimpMessageType.UNSUBSCRIBE, "s1", "sub-0", null));
+
+        assertThat(registry.acknowledges(1L)).isFalse();
+        assertThat(registry.isConnected(1L)).isTrue();
+    }
+
+    /**
+     * Scenario: Подписка, ещё не обработанная брокером
+     * <p>
+     * Given: Сообщение SUBSCRIBE на очередь пользователя
+     * When: Его обработал не брокер, а обработчик сообщений приложения, либо брокер завершил обработку ошибкой
+     * Then: Пользователь не считается подключённым, событие подключения не публикуется
+     */
+    @Test
+    void shouldRegisterSubscriptionOnlyAfterBroker() {
+        Message<byte[]> subscribe = stomp(SimpMessageType.SUBSCRIBE, "s1", "sub-0", "/queue/user/1");
+
+        registry.afterMessageHandled(subscribe, clientInboundChannel, mock(MessageHandler.class), null);
+        registry.afterMessageHandled(subscribe, clientInboundChannel, broker, new IllegalStateException("boom"));
+
+        assertThat(registry.isConnected(1L)).isFalse();
+        verifyNoInteractions(eventPublisher);
+
+        handled(subscribe);
+
+        assertThat(registry.isConnected(1L)).isTrue();
+        verify(eventPublisher).publishEvent(new UserConnectedEvent(1L));
+    }
+
+    /**
+     * Scenario: Подписка на постороннюю очередь
+     * <p>
+     * Given: Сессия подписалась на общий топик и на очередь с некорректным идентификатором
+     * When: Реестр обрабатывает подписки
+     * Then: Ни один пользователь не считается подключённым
+     */
+    @Test
+    void shouldIgnoreForeignDestinations() {
+        handled(stomp(SimpMessageType.SUBSCRIBE, "s1", "sub-0", "/topic/news"));
+        handled(stomp(SimpMessageType.SUBSCRIBE, "s1", "sub-1", "/queue/user/abc"));
+
+        assertThat(registry.connectedUsers()).isZero();
+        verifyNoInteractions(eventPublisher);
+    }
+
+    /**
+     * Scenario: Отражение подключений в общей таблице
+     * <p>
+     * Given: Пользователь 1 подписался до начала прослушивания рассылки
+     * When: Экземпляр начинает слушать рассылку, затем подписывается пользователь 2 и отписывается пользователь 1
+     * Then: Записи устаревших экземпляров удаляются, подключения и отключения отражаются от имени экземпляра
+     */
+    @Test
+    void shouldSyncPresenceWhileAttached() {
+        handled(stomp(SimpMessageType.SUBSCRIBE, "s1", "sub-0", "/queue/user/1"));
+        verifyNoInteractions(liveSessionRepository);
+
+        registry.attach(node);
+        handled(stomp(SimpMessageType.SUBSCRIBE, "s2", "sub-0", "/queue/user/2"));
+        handled(stomp(SimpMessageType.UNSUBSCRIBE, "s1", "sub-0", null));
+
+        verify(liveSessionRepository).removeDeadNodes();
+        verify(liveSessionRepository).addAll(List.of(1L), node);
+        verify(liveSessionRepository).addAll(List.of(2L), node);
+        verify(liveSessionRepository).remove(1L, node);
+    }
+
+    private void handled(Message<byte[]> message) {
+        registry.afterMessageHandled(message, clientInboundChannel, broker, null);
+    }
+
+    private static Message<byte[]> stomp(SimpMessageType type, String sessionId, String subscriptionId, String destination) {
+        return stomp(type, sessionId, subscriptionId, destination, null);
+    }
+
+    private static Message<byte[]> stomp(SimpMessageType type, String sessionId, String subscriptionId, String destination,
+                                         String ack) {
+        SimpMessageHeaderAccessor headers = SimpMessageHeaderAccessor.create(type);
+        if (ack != null) {
+            headers.setNativeHeader("ack", ack);
+        }
+        headers.setSessionId(sessionId);
+        headers.setSubscriptionId(subscriptionId);
+        headers.setDestination(destination);
+        return MessageBuilder.createMessage(new byte[0], headers.getMessageHeaders());
+    }
+}
@@ -2,23 +2,49 @@ package com.example.notification_service.web_socket.service;
 
 import com.example.notification_service.entity.Event;
 import com.example.notification_service.entity.User;
-import com.example.notification_service.entity.UserEvent;
-import com.example.notification_service.repository.EventRepository;
+import com.example.notification_service.enums.DeliveryChannel;
 import com.example.notification_service.repository.UserEventRepository;
+import com.example.notification_service.service.CompiledSchedule;
+import com.example.notification_service.service.DeliveryAcknowledgements;
+import com.example.notification_service.service.DeliveryAuditLog;
+import com.example.notification_service.service.DeliveryCursorService;
+import com.example.notification_service.service.DeliveryRateLimiter;
+import com.example.notification_service.service.EventRelay;
+import com.example.notification_service.service.NearCache;
+import com.example.notification_service.service.NotificationMetrics;
 import com.example.notification_service.service.UserService;
 import com.example.notification_service.web_socket.message.WSMessage;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.converter.MessageConverter;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 
+import java.nio.charset.StandardCharsets;
+import java.time.DayOfWeek;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
+import java.util.stream.LongStream;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.Mockito.*;
 
@@ -37,55 +63,226 @@ class PrivateNotificationServiceTest {
     private UserEventRepository userEventRepository;
 
     @Mock
-    private EventRepository eventRepository;
+    private DeliveryCursorService deliveryCursorService;
+
+    @Mock
+    private LiveSessionRegistry liveSessionRegistry;
+
+    @Mock
+    private NearCache nearCache;
+
+    @Mock
+    private EventRelay eventRelay;
+
+    @Mock
+    private DeliveryAuditLog deliveryAuditLog;
+
+    @Mock
+    private DeliveryAcknowledgements deliveryAcknowledgements;
+
+    @Mock
+    private DeliveryRateLimiter deliveryRateLimiter;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Spy
+    private NotificationMetrics notificationMetrics = new NotificationMetrics(meterRegistry);
+
+    private final MessageConverter messageConverter = spy(new MappingJackson2MessageConverter());
 
     @BeforeEach
     void init() {
         MockitoAnnotations.openMocks(this);
+        given(template.getMessageConverter()).willReturn(messageConverter);
+        given(deliveryRateLimiter.tryAcquire(anyLong())).willReturn(true);
     }
 
     /**
-     * Scenario: Отправка события активным пользователям
+     * Scenario: Публикация события
      * <p>
-     * Given: Пользователь активен и находится онлайн
-     * When: Выполнен метод sendEvent()
-     * Then: Сообщение доставляется пользователю через веб-сокеты
+     * Given: Из трёх пользователей активны двое, один из них не подключён ни к одному экземпляру
+     * When: Выполнен метод publishEvents()
+     * Then: Событие публикуется для всех экземпляров, сообщения этим экземпляром сразу не отправляются,
+     * недоставленными считаются сообщения неактивного и неподключённого пользователей
      */
     @Test
-    void shouldSendEventToActiveUser() {
-        User activeUser = new User();
-        activeUser.setId(1L);
-        Event event = new Event();
-        event.setMessage("Test Event");
+    void shouldPublishEvent() {
+        Event event = new Event(10L, "Test Event", ZonedDateTime.now());
+        given(userService.findActiveUserIds(any())).willReturn(List.of(1L, 2L));
+        given(userService.countUsers()).willReturn(3L);
+        given(eventRelay.publish(List.of(event), List.of(1L, 2L))).willReturn(1);
 
-        given(userService.findAll()).willReturn(List.of(activeUser));
-        given(userService.isUserActive(any(), any())).willReturn(true);
+        serviceUnderTest.publishEvents(List.of(event));
 
-        serviceUnderTest.sendEvent(event);
+        verify(eventRelay, times(1)).publish(List.of(event), List.of(1L, 2L));
+        verify(template, never()).send(anyString(), any(Message.class));
+        assertThat(meterRegistry.get("notification.queue.pending").gauge().value()).isEqualTo(2);
+    }
 
-        verify(template, times(1))
-                .convertAndSend(eq("/queue/user/" + activeUser.getId()), any(WSMessage.class));
+    /**
+     * Scenario: Публикация пачки событий одной минуты
+     * <p>
+     * Given: Два события одной минуты, из трёх пользователей активен один, и он не подключён
+     * When: Выполнен метод publishEvents()
+     * Then: Активные пользователи определяются один раз, события публикуются вместе
+     * And: Для каждого события недоставленными считаются сообщения всех трёх пользователей
+     */
+    @Test
+    void shouldPublishEventsOfOneMinuteTogether() {
+        ZonedDateTime now = ZonedDateTime.now();
+        List<Event> events = List.of(new Event(10L, "Первое", now), new Event(11L, "Второе", now));
+        given(userService.findActiveUserIds(any())).willReturn(List.of(1L));
+        given(userService.countUsers()).willReturn(3L);
+        given(eventRelay.publish(events, List.of(1L))).willReturn(2);
+
+        serviceUnderTest.publishEvents(events);
+
+        verify(userService, times(1)).findActiveUserIds(any());
+        verify(eventRelay, times(1)).publish(events, List.of(1L));
+        assertThat(meterRegistry.get("notification.queue.pending").gauge().value()).isEqualTo(6);
     }
 
     /**
-     * Scenario: Добавление события в очередь неактивному пользователю
+     * Scenario: Доставка пачки опубликованных событий
      * <p>
-     * Given: Пользователь не активен
-     * When: Выполнен метод sendEvent()
-     * Then: Событие помещается в очередь
+     * Given: Два события одной минуты и одно событие следующей минуты, подключены двое активных пользователей
+     * When: Выполнен метод deliverRelayedEvents()
+     * Then: Получатели определяются один раз на минуту, каждое сообщение сериализуется один раз
+     * And: Каждому пользователю события минуты отправляются подряд в порядке ленты
      */
     @Test
-    void shouldAddEventToInactiveUserQueue() {
-        User inactiveUser = new User();
-        Event event = new Event();
-        event.setMessage("Test Event");
-        given(userService.findAll()).willReturn(List.of(inactiveUser));
-        given(userService.isUserActive(inactiveUser, LocalDateTime.now())).willReturn(false);
+    void shouldDeliverRelayedEventsGroupedPerUser() {
+        ZonedDateTime minute = ZonedDateTime.of(2025, 6, 2, 10, 0, 0, 0, ZoneId.systemDefault());
+        Event first = new Event(10L, "Первое", minute);
+        Event second = new Event(11L, "Второе", minute.plusSeconds(30));
+        Event third = new Event(12L, "Третье", minute.plusMinutes(1));
+        List<User> users = List.of(new User(1L, "Пользователь 1", "{}"), new User(2L, "Пользователь 2", "{}"));
+        given(nearCache.findEvents(List.of(10L, 11L, 12L))).willReturn(List.of(first, second, third));
+        given(userService.findActiveUserIds(any())).willReturn(List.of(1L, 2L));
+        given(liveSessionRegistry.isConnected(anyLong())).willReturn(true);
+        given(userService.findAllById(List.of(1L, 2L))).willReturn(users);
 
-        serviceUnderTest.sendEvent(event);
+        serviceUnderTest.deliverRelayedEvents(List.of(10L, 11L, 12L));
 
-        verify(userEventRepository, times(1))
-                .save(any(UserEvent.class));
+        verify(userService, times(2)).findActiveUserIds(any());
+        verify(messageConverter, times(3)).toMessage(any(), any());
+        InOrder order = inOrder(deliveryAuditLog);
+        order.verify(deliveryAuditLog).record(1L, 10L, DeliveryChannel.LIVE);
+        order.verify(deliveryAuditLog).record(1L, 11L, DeliveryChannel.LIVE);
+        order.verify(deliveryAuditLog).record(2L, 10L, DeliveryChannel.LIVE);
+        order.verify(deliveryAuditLog).record(2L, 11L, DeliveryChannel.LIVE);
+        order.verify(deliveryAuditLog).record(1L, 12L, DeliveryChannel.LIVE);
+        order.verify(deliveryAuditLog).record(2L, 12L, DeliveryChannel.LIVE);
+        assertThat(meterRegistry.get("notification.deliveries").tag("mode", "live").counter().count()).isEqualTo(6);
+    }
+
+    /**
+     * Scenario: Доставка опубликованного события подключённым пользователям
+     * <p>
+     * Given: Активны два пользователя, к этому экземпляру подключён только первый
+     * When: Выполнен метод deliverRelayedEvents()
+     * Then: Сообщение отправляется только первому пользователю
+     */
+    @Test
+    void shouldDeliverRelayedEventToLocalSessions() {
+        User connectedUser = new User(1L, "Пользователь 1", "{}");
+        Event event = new Event(10L, "Test Event", ZonedDateTime.now());
+        given(nearCache.findEvents(List.of(10L))).willReturn(List.of(event));
+        given(userService.findActiveUserIds(any())).willReturn(List.of(1L, 2L));
+        given(liveSessionRegistry.isConnected(1L)).willReturn(true);
+        given(userService.findAllById(List.of(1L))).willReturn(List.of(connectedUser));
+
+        serviceUnderTest.deliverRelayedEvents(List.of(10L));
+
+        verify(template, times(1)).send(eq("/queue/user/1"), any(Message.class));
+        verify(template, never()).send(eq("/queue/user/2"), any(Message.class));
+        verify(deliveryAuditLog, times(1)).record(1L, 10L, DeliveryChannel.LIVE);
+        verifyNoInteractions(userEventRepository);
+    }
+
+    /**
+     * Scenario: Нет подключённых получателей
+     * <p>
+     * Given: Активный пользователь не подключён к этому экземпляру
+     * When: Выполнен метод deliverRelayedEvents()
+     * Then: Пользователи не загружаются, сообщения не отправляются
+     */
+    @Test
+    void shouldSkipDeliveryWithoutLocalSessions() {
+        Event event = new Event(10L, "Test Event", ZonedDateTime.now());
+        given(nearCache.findEvents(List.of(10L))).willReturn(List.of(event));
+        given(userService.findActiveUserIds(any())).willReturn(List.of(1L));
+
+        serviceUnderTest.deliverRelayedEvents(List.of(10L));
+
+        verify(userService, never()).findAllById(any());
+        verify(template, never()).send(anyString(), any(Message.class));
+    }
+
+    /**
+     * Scenario: Рассылка события нескольким активным пользователям
+     * <p>
+     * Given: Три активных пользователя
+     * When: Событие разослано
+     * Then: Сообщение сериализуется один раз, каждому пользователю отправляется одно и то же тело
+     * с идентификатором события в заголовке
+     * And: Отправка запоминается для подтверждения получения
+     */
+    @Test
+    void shouldSerializeBroadcastOnce() {
+        List<User> activeUsers = LongStream.rangeClosed(1, 3)
+                .mapToObj(id -> new User(id, "Пользователь " + id, "{}"))
+                .toList();
+        Event event = new Event(10L, "Test Event", ZonedDateTime.now());
+
+        serviceUnderTest.deliverEvents(List.of(event), activeUsers);
+
+        verify(messageConverter, times(1)).toMessage(any(), any());
+        ArgumentCaptor<Message<?>> sent = ArgumentCaptor.forClass(Message.class);
+        verify(template, times(3)).send(anyString(), sent.capture());
+        Object payload = sent.getValue().getPayload();
+        assertThat(sent.getAllValues()).allSatisfy(message -> assertThat(message.getPayload()).isSameAs(payload));
+        assertThat(new String((byte[]) payload, StandardCharsets.UTF_8))
+                .isEqualTo("{\"message\":\"Test Event\"}");
+        assertThat(SimpMessageHeaderAccessor.wrap(sent.getValue()).getFirstNativeHeader("event-id")).isEqualTo("10");
+        verify(template, never()).convertAndSend(anyString(), any(WSMessage.class), anyMap());
+        verify(deliveryAcknowledgements, times(3)).sentLive(any(), eq(10L));
+    }
+
+    /**
+     * Scenario: Рассылка сверх ограничения скорости
+     * <p>
+     * Given: Два события для трёх пользователей, второму пользователю ограничение позволяет только одно сообщение
+     * And: У третьего пользователя есть сообщения, отложенные раньше
+     * When: События разосланы
+     * Then: Первый получает оба события, второй — первое, второе ставится в его очередь
+     * And: Третьему оба события ставятся в очередь за отложенными
+     * And: Отложенное обоим ставится в очереди одним запросом, повторная доставка запрашивается для обоих одним событием
+     */
+    @Test
+    void shouldDeferEventsOverRateLimit() {
+        List<User> activeUsers = LongStream.rangeClosed(1, 3)
+                .mapToObj(id -> new User(id, "Пользователь " + id, "{}"))
+                .toList();
+        ZonedDateTime now = ZonedDateTime.now();
+        List<Event> events = List.of(new Event(10L, "Первое", now), new Event(11L, "Второе", now));
+        given(deliveryRateLimiter.tryAcquire(2L)).willReturn(true, false);
+        given(deliveryRateLimiter.isBacklogged(3L)).willReturn(true);
+
+        serviceUnderTest.deliverEvents(events, activeUsers);
+
+        verify(template, times(2)).send(eq("/queue/user/1"), any(Message.class));
+        verify(template, times(1)).send(eq("/queue/user/2"), any(Message.class));
+        verify(template, never()).send(eq("/queue/user/3"), any(Message.class));
+        verify(userEventRepository).enqueueFrom(List.of(10L, 11L), List.of(2L, 3L), List.of(1, 0));
+        verify(userEventRepository, never()).enqueue(any(), any());
+        verify(deliveryRateLimiter).markBacklogged(2L);
+        verify(eventPublisher).publishEvent(new DeliveryThrottledEvent(List.of(2L, 3L)));
+        assertThat(meterRegistry.get("notification.deliveries").tag("mode", "live").counter().count()).isEqualTo(3);
+        assertThat(meterRegistry.get("notification.queue.pending").gauge().value()).isEqualTo(3);
     }
 
     /**
@@ -98,35 +295,239 @@ class PrivateNotificationServiceTest {
     @Test
     void shouldProcessQueuedEvents() {
         User user = new User();
+        user.setId(1L);
         Event event = new Event();
+        event.setId(10L);
         event.setMessage("Test Event");
-        UserEvent queuedEvent = new UserEvent(user, event);
-        given(userEventRepository.findByUserId(user.getId())).willReturn(List.of(queuedEvent));
-        given(eventRepository.findById(event.getId())).willReturn(Optional.of(event));
+        given(userEventRepository.findPendingEventIds(eq(1L), any(Limit.class))).willReturn(List.of(10L));
+        given(nearCache.findEvents(List.of(10L))).willReturn(List.of(event));
 
         serviceUnderTest.processUserEvents(user);
 
         verify(template, times(1))
-                .convertAndSend(eq("/queue/user/" + user.getId()), any(WSMessage.class));
-        verify(userEventRepository, times(1)).delete(queuedEvent);
+                .convertAndSend(eq("/queue/user/" + user.getId()), any(WSMessage.class), anyMap());
+        verify(userEventRepository, times(1)).deleteDelivered(1L, List.of(10L));
+        verify(userEventRepository, never()).findPendingEventIdsAfter(any(), any(), any(), any());
     }
 
     /**
-     * Scenario: Логирование и доставка сообщения
+     * Scenario: Постраничная обработка большой очереди
+     * <p>
+     * Given: У пользователя в очереди больше событий, чем помещается в одну страницу
+     * When: Выполнен метод processUserEvents()
+     * Then: Следующая страница запрашивается после последнего доставленного события,
+     * каждая страница удаляется из очереди одним запросом
+     */
+    @Test
+    void shouldProcessQueuedEventsPageByPage() {
+        User user = new User();
+        user.setId(1L);
+        ZonedDateTime occurredAt = ZonedDateTime.now();
+        List<Event> firstPage = LongStream.rangeClosed(1, 500)
+                .mapToObj(id -> new Event(id, "Event " + id, occurredAt))
+                .toList();
+        Event tail = new Event(501L, "Event 501", occurredAt);
+        List<Long> firstPageIds = firstPage.stream().map(Event::getId).toList();
+        given(userEventRepository.findPendingEventIds(eq(1L), any(Limit.class))).willReturn(firstPageIds);
+        given(nearCache.findEvents(firstPageIds)).willReturn(firstPage);
+        given(userEventRepository.findPendingEventIdsAfter(eq(1L), eq(occurredAt), eq(500L), any(Limit.class)))
+                .willReturn(List.of(501L));
+        given(nearCache.findEvents(List.of(501L))).willReturn(List.of(tail));
+
+        serviceUnderTest.processUserEvents(user);
+
+        verify(template, times(501))
+                .convertAndSend(eq("/queue/user/" + user.getId()), any(WSMessage.class), anyMap());
+        verify(userEventRepository, times(1)).deleteDelivered(1L, List.of(501L));
+        verify(userEventRepository, times(2)).deleteDelivered(eq(1L), any());
+    }
+
+    /**
+     * Scenario: Доставка ленты событий после курсора
+     * <p>
+     * Given: Пользователь с периодом информирования в понедельник с 09:00 до 12:00
+     * And: В ленте после его курсора событие в 10:00, доставленное сразу, и событие в 13:00
+     * When: Выполнен метод processUserEvents()
+     * Then: Доставляется только событие в 13:00, курсор сдвигается на конец ленты
+     */
+    @Test
+    void shouldDrainEventFeedSkippingLiveDeliveries() {
+        User user = new User();
+        user.setId(1L);
+        CompiledSchedule mondayMorning = CompiledSchedule.compile(
+                "morning", Map.of(DayOfWeek.MONDAY, List.of("09:00-12:00")));
+        Event deliveredLive = new Event(10L, "Live", mondayAt(10), 6L);
+        Event missed = new Event(11L, "Missed", mondayAt(13), 7L);
+        given(userService.compiledSchedule(user)).willReturn(mondayMorning);
+        given(deliveryCursorService.cursor(1L)).willReturn(5L);
+        given(deliveryCursorService.eventsAfter(5L, 500)).willReturn(List.of(deliveredLive, missed));
+        given(deliveryCursorService.advance(1L, 5L, 7L)).willReturn(true);
+
+        serviceUnderTest.processUserEvents(user);
+
+        verify(template, times(1)).convertAndSend(eq("/queue/user/1"), any(WSMessage.class), anyMap());
+        verify(deliveryCursorService, times(1)).advance(1L, 5L, 7L);
+    }
+
+    /**
+     * Scenario: Доставка ленты, остановленная ограничением скорости
+     * <p>
+     * Given: В ленте после курсора пользователя событие, доставленное сразу, и два пропущенных
+     * And: Ограничение позволяет отправить одно сообщение
+     * When: Выполнен метод processUserEvents()
+     * Then: Отправляется первое пропущенное событие, курсор сдвигается только на него
+     * And: Повторная доставка запрашивается, пользователь отмечается как имеющий отложенные сообщения
+     */
+    @Test
+    void shouldStopDrainOverRateLimit() {
+        User user = new User();
+        user.setId(1L);
+        CompiledSchedule mondayMorning = CompiledSchedule.compile(
+                "morning", Map.of(DayOfWeek.MONDAY, List.of("09:00-12:00")));
+        Event deliveredLive = new Event(10L, "Live", mondayAt(10), 6L);
+        Event firstMissed = new Event(11L, "Missed", mondayAt(13), 7L);
+        Event secondMissed = new Event(12L, "Missed", mondayAt(14), 8L);
+        given(userService.compiledSchedule(user)).willReturn(mondayMorning);
+        given(deliveryCursorService.cursor(1L)).willReturn(5L);
+        given(deliveryCursorService.eventsAfter(5L, 500)).willReturn(List.of(deliveredLive, firstMissed, secondMissed));
+        given(deliveryCursorService.advance(1L, 5L, 7L)).willReturn(true);
+        given(deliveryRateLimiter.tryAcquire(1L)).willReturn(true, false);
+
+        serviceUnderTest.processUserEvents(user);
+
+        verify(deliveryAuditLog, times(1)).record(1L, 11L, DeliveryChannel.QUEUED);
+        verify(deliveryAuditLog, never()).record(1L, 12L, DeliveryChannel.QUEUED);
+        verify(deliveryCursorService, times(1)).advance(1L, 5L, 7L);
+        verify(deliveryCursorService, never()).advance(1L, 5L, 8L);
+        verify(deliveryRateLimiter).markBacklogged(1L);
+        verify(deliveryRateLimiter, never()).clearBacklog(1L);
+        verify(eventPublisher).publishEvent(new DeliveryThrottledEvent(List.of(1L)));
+    }
+
+    /**
+     * Scenario: Доставка пользователю, подтверждающему получение
+     * <p>
+     * Given: Пользователь подписан с подтверждениями, у него одно событие в очереди и одно пропущенное в ленте
+     * When: Выполнен метод processUserEvents()
+     * Then: Оба события отправляются и запоминаются до подтверждения, лента отмечается прочитанной
+     * And: Строки очереди не удаляются, курсор не сдвигается
+     */
+    @Test
+    void shouldKeepDrainedEventsUntilAcknowledged() {
+        User user = new User();
+        user.setId(1L);
+        Event queued = new Event(10L, "Queued", mondayAt(8), 6L);
+        Event missed = new Event(11L, "Missed", mondayAt(13), 7L);
+        DeliveryAcknowledgements.Unacknowledged unacknowledged = mock(DeliveryAcknowledgements.Unacknowledged.class);
+        given(liveSessionRegistry.acknowledges(1L)).willReturn(true);
+        given(deliveryCursorService.cursor(1L)).willReturn(6L);
+        given(deliveryAcknowledgements.start(1L, 6L)).willReturn(unacknowledged);
+        given(unacknowledged.feedEnd()).willReturn(6L);
+        given(userEventRepository.findPendingEventIds(eq(1L), any(Limit.class))).willReturn(List.of(10L));
+        given(nearCache.findEvents(List.of(10L))).willReturn(List.of(queued));
+        given(userService.compiledSchedule(user)).willReturn(CompiledSchedule.compile("{}", Map.of()));
+        given(deliveryCursorService.eventsAfter(6L, 500)).willReturn(List.of(missed));
+
+        serviceUnderTest.processUserEvents(user);
+
+        verify(template, times(2)).convertAndSend(eq("/queue/user/1"), any(WSMessage.class), anyMap());
+        InOrder order = inOrder(unacknowledged);
+        order.verify(unacknowledged).sentFromQueue(10L);
+        order.verify(unacknowledged).sentFromFeed(11L, 7L);
+        order.verify(unacknowledged).readFeedUpTo(7L);
+        verify(userEventRepository, never()).deleteDelivered(any(), any());
+        verify(deliveryCursorService, never()).advance(any(), anyLong(), anyLong());
+    }
+
+    /**
+     * Scenario: Повторная доставка пользователю, не подтвердившему отправленное
+     * <p>
+     * Given: Пользователь подписан с подтверждениями, строка очереди 10 уже отправлена, лента прочитана до номера 7
+     * And: В очереди события 10 и 12, в ленте после номера 7 событие 13
+     * When: Выполнен метод processUserEvents()
+     * Then: Отправляются только события 12 и 13, лента читается после номера 7
+     */
+    @Test
+    void shouldResumeDrainAfterUnacknowledgedMessages() {
+        User user = new User();
+        user.setId(1L);
+        Event sent = new Event(10L, "Sent", mondayAt(8), 6L);
+        Event queued = new Event(12L, "Queued", mondayAt(9), 8L);
+        Event missed = new Event(13L, "Missed", mondayAt(13), 9L);
+        DeliveryAcknowledgements.Unacknowledged unacknowledged = mock(DeliveryAcknowledgements.Unacknowledged.class);
+        given(liveSessionRegistry.acknowledges(1L)).willReturn(true);
+        given(deliveryCursorService.cursor(1L)).willReturn(5L);
+        given(deliveryAcknowledgements.start(1L, 5L)).willReturn(unacknowledged);
+        given(unacknowledged.isSentFromQueue(10L)).willReturn(true);
+        given(unacknowledged.feedEnd()).willReturn(7L);
+        given(userEventRepository.findPendingEventIds(eq(1L), any(Limit.class))).willReturn(List.of(10L, 12L));
+        given(nearCache.findEvents(List.of(10L, 12L))).willReturn(List.of(sent, queued));
+        given(userService.compiledSchedule(user)).willReturn(CompiledSchedule.compile("{}", Map.of()));
+        given(deliveryCursorService.eventsAfter(7L, 500)).willReturn(List.of(missed));
+
+        serviceUnderTest.processUserEvents(user);
+
+        verify(template, times(2)).convertAndSend(eq("/queue/user/1"), any(WSMessage.class), anyMap());
+        verify(unacknowledged, never()).sentFromQueue(10L);
+        verify(unacknowledged).sentFromQueue(12L);
+        verify(unacknowledged).sentFromFeed(13L, 9L);
+        verify(deliveryCursorService, never()).eventsAfter(5L, 500);
+    }
+
+    /**
+     * Scenario: Метрики доставки и глубины очереди
+     * <p>
+     * Given: Один пользователь активен, двое других нет
+     * When: Событие разослано, а затем очередь одного из неактивных пользователей обработана
+     * Then: Доставки учтены по способу, число недоставленных сообщений уменьшилось на доставленные
+     */
+    @Test
+    void shouldRecordDeliveryAndQueueMetrics() {
+        User activeUser = new User();
+        activeUser.setId(1L);
+        User inactiveUser = new User();
+        inactiveUser.setId(2L);
+        Event event = new Event(10L, "Test Event", ZonedDateTime.now().minusMinutes(5), 1L);
+        given(userService.countUsers()).willReturn(3L);
+        given(userService.compiledSchedule(inactiveUser)).willReturn(CompiledSchedule.compile("{}", Map.of()));
+        given(deliveryCursorService.eventsAfter(0L, 500)).willReturn(List.of(event));
+        given(deliveryCursorService.advance(2L, 0L, 1L)).willReturn(true);
+        given(userService.findActiveUserIds(any())).willReturn(List.of(1L));
+
+        serviceUnderTest.publishEvents(List.of(event));
+        serviceUnderTest.deliverEvents(List.of(event), List.of(activeUser));
+
+        assertThat(meterRegistry.get("notification.queue.pending").gauge().value()).isEqualTo(2);
+        assertThat(meterRegistry.get("notification.queue.oldest.age").timeGauge().value()).isGreaterThanOrEqualTo(300);
+
+        serviceUnderTest.processUserEvents(inactiveUser);
+
+        assertThat(meterRegistry.get("notification.deliveries").tag("mode", "live").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("notification.deliveries").tag("mode", "queued").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("notification.queue.pending").gauge().value()).isEqualTo(1);
+        assertThat(meterRegistry.get("notification.queue.drain").timer().count()).isEqualTo(1);
+    }
+
+    /**
+     * Scenario: Доставка сообщения с записью в журнал
      * <p>
      * Given: Пользователь и событие
      * When: Выполнен метод sendAndLogEventMessage()
-     * Then: Сообщение отправляется пользователю и регистрируется в логах
+     * Then: Сообщение с идентификатором события отправляется пользователю, доставка из очереди регистрируется в журнале доставки
      */
     @Test
     void shouldSendAndLogEventMessage() {
-        User user = new User();
-        Event event = new Event();
-        event.setMessage("Test Event");
+        User user = new User(1L, "Пользователь 1", "{}");
+        Event event = new Event(10L, "Test Event", ZonedDateTime.now());
 
         serviceUnderTest.sendAndLogEventMessage(user, event);
 
         verify(template, times(1))
-                .convertAndSend(eq("/queue/user/" + user.getId()), any(WSMessage.class));
+                .convertAndSend(eq("/queue/user/1"), any(WSMessage.class), eq(Map.of("event-id", "10")));
+        verify(deliveryAuditLog, times(1)).record(1L, 10L, DeliveryChannel.QUEUED);
+    }
+
+    private static ZonedDateTime mondayAt(int hour) {
+        return ZonedDateTime.of(LocalDateTime.of(2025, 6, 2, hour, 0), ZoneId.systemDefault());
     }
-}
\ No newline at end of file
+}